@@ -0,0 +1,181 @@
+package alignment;
+
+public class BandedAligner
+{
+    //banded global and semi-global alignment of a query against a reference (score based, max)
+    //only the cells (i, j) w/ |j - i - diagonal| <= band are computed, so an alignment takes
+    //O(m * band) time and memory instead of O(m * n) (m: length of query, n: length of reference)
+    //global: both sequences are aligned end to end (n - m has to be within the band)
+    //semi-global: the query is aligned end to end, leading and trailing reference bases are free
+    //(used to extend read mapping seeds, see ReadMapper)
+    //linear gap scores like NeedlemanWunsch; the alignment is reported as a CIGAR string
+    //(M: match/mismatch, I: insertion into the reference, D: deletion from the reference)
+
+    private static final int NEG = Integer.MIN_VALUE / 2;
+    private static final byte STOP = 0, DIAG = 1, UP = 2, LEFT = 3;
+
+    private int match, mismatch, gap;
+
+    public static class Alignment
+    {
+        public final int score;
+        public final int refStart, refEnd; //aligned part of the reference: refStart ... refEnd-1
+        public final String cigar;
+
+        Alignment(int score, int refStart, int refEnd, String cigar)
+        {
+            this.score = score;
+            this.refStart = refStart;
+            this.refEnd = refEnd;
+            this.cigar = cigar;
+        }
+
+        @Override
+        public String toString() {return String.format("%d-%d %s (score: %d)", refStart, refEnd, cigar, score);}
+    }
+
+    public BandedAligner()
+    {
+        this(1, -1, -2);
+    }
+
+    public BandedAligner(int match, int mismatch, int gap)
+    {
+        this.match = match;
+        this.mismatch = mismatch;
+        this.gap = gap;
+    }
+
+    public Alignment align(String query, String ref, int band)
+    {
+        return align(query, ref, 0, band, false);
+    }
+
+    public Alignment alignSemiGlobal(String query, String ref, int diagonal, int band)
+    {
+        return align(query, ref, diagonal, band, true);
+    }
+
+    public Alignment align(String query, String ref, int diagonal, int band, boolean semiGlobal)
+    {
+        //row i (query position) stores the columns j = i + diagonal - band ... i + diagonal + band (offset o = j - i - diagonal + band)
+        //returns null if no alignment fits into the band
+
+        int m = query.length();
+        int n = ref.length();
+        int width = 2 * band + 1;
+
+        int[] prev = new int[width];
+        int[] curr = new int[width];
+        byte[] trace = new byte[(m + 1) * width];
+
+        //row 0: semi-global alignments may start at any reference position, global ones only at 0
+        for (int o=0; o<width; o++)
+        {
+            int j = o + diagonal - band;
+            if (j < 0 || j > n) prev[o] = NEG;
+            else if (semiGlobal) prev[o] = 0;
+            else
+            {
+                prev[o] = j * gap;
+                trace[o] = (j == 0) ? STOP : LEFT;
+            }
+        }
+
+        for (int i=1; i<=m; i++)
+        {
+            char q = Character.toUpperCase(query.charAt(i-1));
+
+            for (int o=0; o<width; o++)
+            {
+                int j = i + o + diagonal - band;
+                int t = i * width + o;
+
+                if (j < 0 || j > n)
+                {
+                    curr[o] = NEG;
+                    continue;
+                }
+
+                int best = NEG;
+                byte op = STOP;
+
+                if (j > 0 && prev[o] > NEG)
+                {
+                    best = prev[o] + ((q == Character.toUpperCase(ref.charAt(j-1))) ? match : mismatch);
+                    op = DIAG;
+                }
+                if (o + 1 < width && prev[o+1] > NEG && prev[o+1] + gap > best)
+                {
+                    best = prev[o+1] + gap;
+                    op = UP;
+                }
+                if (o > 0 && curr[o-1] > NEG && curr[o-1] + gap > best)
+                {
+                    best = curr[o-1] + gap;
+                    op = LEFT;
+                }
+
+                curr[o] = best;
+                trace[t] = op;
+            }
+
+            int[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+
+        //end cell: (m, n) for global alignments, the best cell of the last row for semi-global ones
+        int endO = -1;
+        if (semiGlobal)
+        {
+            for (int o=0; o<width; o++)
+            {
+                if (prev[o] > NEG && (endO < 0 || prev[o] > prev[endO])) endO = o;
+            }
+        }
+        else
+        {
+            int o = n - m - diagonal + band;
+            if (o >= 0 && o < width && prev[o] > NEG) endO = o;
+        }
+        if (endO < 0) return null;
+
+        return traceBack(trace, width, m, endO, diagonal - band, prev[endO]);
+    }
+
+    private Alignment traceBack(byte[] trace, int width, int m, int o, int shift, int score)
+    {
+        //follow the operations back from the end cell and collect them run-length encoded
+
+        StringBuilder cigar = new StringBuilder();
+        int i = m;
+        int refEnd = i + o + shift;
+        char runOp = 0;
+        int runLength = 0;
+
+        byte op;
+        while ((op = trace[i * width + o]) != STOP)
+        {
+            char c = (op == DIAG) ? 'M' : (op == UP) ? 'I' : 'D';
+            if (c != runOp && runLength > 0)
+            {
+                cigar.insert(0, runOp).insert(0, runLength);
+                runLength = 0;
+            }
+            runOp = c;
+            runLength++;
+
+            if (op == DIAG) i--;
+            else if (op == UP)
+            {
+                i--;
+                o++;
+            }
+            else o--;
+        }
+        if (runLength > 0) cigar.insert(0, runOp).insert(0, runLength);
+
+        return new Alignment(score, i + o + shift, refEnd, cigar.toString());
+    }
+}
@@ -0,0 +1,162 @@
+package alignment;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import stringsearch.Nucleotides;
+
+/**
+ * This class tests the banded alignments of the <code>BandedAligner</code> class against the full
+ * dynamic programming matrix and the seed-and-extend mapping of the <code>ReadMapper</code> class
+ * using the JUnit unittesting framework
+ */
+public class BandedAlignerTest
+{
+    private static final int MATCH = 1, MISMATCH = -1, GAP = -2; //default scores of the BandedAligner
+    private ArrayList<String[]> pairs;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        Random random = new Random(36);
+        this.pairs = new ArrayList<String[]>();
+        for (int p=0; p<500; p++) pairs.add(new String[]{RandomSequences.randomSeq(random, random.nextInt(40), "ACGT"), RandomSequences.randomSeq(random, random.nextInt(40), "ACGT")});
+    }
+
+    private static int fullMatrixScore(String query, String ref, boolean semiGlobal)
+    {
+        //best score of the complete dynamic programming matrix (semi-global: leading and trailing reference bases are free)
+
+        int m = query.length(), n = ref.length();
+        int[][] score = new int[m + 1][n + 1];
+        for (int j=0; j<=n; j++) score[0][j] = semiGlobal ? 0 : j * GAP;
+
+        for (int i=1; i<=m; i++)
+        {
+            score[i][0] = i * GAP;
+            for (int j=1; j<=n; j++)
+            {
+                int diagonal = score[i-1][j-1] + ((query.charAt(i-1) == ref.charAt(j-1)) ? MATCH : MISMATCH);
+                score[i][j] = Math.max(diagonal, Math.max(score[i-1][j], score[i][j-1]) + GAP);
+            }
+        }
+
+        if (!semiGlobal) return score[m][n];
+
+        int best = Integer.MIN_VALUE;
+        for (int j=0; j<=n; j++) best = Math.max(best, score[m][j]);
+        return best;
+    }
+
+    private static int cigarScore(String query, String ref, BandedAligner.Alignment alignment)
+    {
+        //rescore the alignment along its CIGAR string (the whole query and ref[refStart ... refEnd-1] have to be consumed)
+
+        int i = 0, j = alignment.refStart, score = 0;
+        Matcher ops = Pattern.compile("(\\d+)([MID])").matcher(alignment.cigar);
+
+        while (ops.find())
+        {
+            int length = Integer.parseInt(ops.group(1));
+            char op = ops.group(2).charAt(0);
+            for (int x=0; x<length; x++)
+            {
+                if (op == 'M') score += (query.charAt(i++) == ref.charAt(j++)) ? MATCH : MISMATCH;
+                else if (op == 'I') {score += GAP; i++;}
+                else {score += GAP; j++;}
+            }
+        }
+        assertEquals(query.length(), i);
+        assertEquals(alignment.refEnd, j);
+
+        return score;
+    }
+
+    /**
+     * JUnit unittest:
+     * w/ a band that covers the whole matrix the global alignment must have the optimal score
+     * and its CIGAR string must reproduce that score
+     */
+    @Test
+    public void compareGlobal()
+    {
+        BandedAligner aligner = new BandedAligner();
+        for (String[] pair: pairs)
+        {
+            BandedAligner.Alignment alignment = aligner.align(pair[0], pair[1], 60);
+
+            assertEquals(fullMatrixScore(pair[0], pair[1], false), alignment.score);
+            assertEquals(0, alignment.refStart);
+            assertEquals(pair[1].length(), alignment.refEnd);
+            assertEquals(alignment.score, cigarScore(pair[0], pair[1], alignment));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the semi-global alignment must have the optimal score of a query aligned to any part of the reference
+     */
+    @Test
+    public void compareSemiGlobal()
+    {
+        BandedAligner aligner = new BandedAligner();
+        for (String[] pair: pairs)
+        {
+            BandedAligner.Alignment alignment = aligner.alignSemiGlobal(pair[0], pair[1], 0, 60);
+
+            assertEquals(fullMatrixScore(pair[0], pair[1], true), alignment.score);
+            assertEquals(alignment.score, cigarScore(pair[0], pair[1], alignment));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * reads sampled from a random reference (w/ a few substitutions and indels, on both strands)
+     * must be mapped to their origin
+     */
+    @Test
+    public void mapReads()
+    {
+        Random random = new Random(362);
+        String reference = RandomSequences.randomSeq(random, 200000, "ACGT");
+        ReadMapper mapper = new ReadMapper(reference, 15, 10, 16, 2);
+
+        int total = 500;
+        String[] reads = new String[total];
+        int[] origins = new int[total];
+        boolean[] reverse = new boolean[total];
+
+        for (int r=0; r<total; r++)
+        {
+            origins[r] = random.nextInt(reference.length() - 200);
+            StringBuilder read = new StringBuilder(reference.substring(origins[r], origins[r] + 150));
+            for (int e=0; e<5; e++)
+            {
+                int p = 10 + random.nextInt(read.length() - 20);
+                switch (random.nextInt(3))
+                {
+                    case 0 -> read.setCharAt(p, "ACGT".charAt(random.nextInt(4)));
+                    case 1 -> read.deleteCharAt(p);
+                    default -> read.insert(p, 'A');
+                }
+            }
+            reverse[r] = random.nextBoolean();
+            reads[r] = reverse[r] ? Nucleotides.reverseComplement(read.toString()) : read.toString();
+        }
+
+        ArrayList<ReadMapper.Mapping> mappings = mapper.map(null, reads);
+        int correct = 0;
+        for (int r=0; r<total; r++)
+        {
+            ReadMapper.Mapping mapping = mappings.get(r);
+            if (mapping.isMapped() && Math.abs(mapping.position - origins[r]) <= 5 && mapping.reverse == reverse[r]) correct++;
+        }
+        assertTrue(correct + "/" + total + " reads mapped correctly", correct >= 0.99 * total);
+    }
+}
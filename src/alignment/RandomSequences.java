@@ -0,0 +1,19 @@
+package alignment;
+
+import java.util.Random;
+
+/**
+ * This class generates the random sequences for the unittests of the alignment package
+ */
+class RandomSequences
+{
+    private RandomSequences() {}
+
+    static String randomSeq(Random random, int length, String alphabet)
+    {
+        //every character drawn uniformly from the alphabet
+        StringBuilder seq = new StringBuilder(length);
+        for (int i=0; i<length; i++) seq.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return seq.toString();
+    }
+}
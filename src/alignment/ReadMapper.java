@@ -0,0 +1,186 @@
+package alignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import fastagen.Sequence;
+import fastagen.SequenceCollection;
+
+import stringsearch.MinimizerIndex;
+import stringsearch.Nucleotides;
+
+import alignment.BandedAligner;
+
+public class ReadMapper
+{
+    //seed-and-extend mapper for DNA reads
+    //seeds: the minimizers of a read (and of its reverse complement) are looked up in a minimizer index of the reference,
+    //every seed hit votes for a diagonal (reference position - read position)
+    //extension: the densest cluster of diagonals per strand is aligned semi-globally w/ a band around the cluster,
+    //the strand w/ the best score wins
+    //minimizers occurring more than maxOccurrences times in the reference (repeats) are ignored
+    //reads are mapped in parallel (one job per batch of reads)
+
+    private static final int BATCH_SIZE = 256;
+
+    MinimizerIndex index;
+    String reference;
+    BandedAligner aligner;
+    int band;
+    int maxOccurrences;
+    int nThreads;
+
+    public static class Mapping
+    {
+        public final String name;
+        public final int position;   //0-based start on the reference (-1: unmapped)
+        public final boolean reverse;//read maps to the reverse strand
+        public final int score;
+        public final String cigar;
+
+        Mapping(String name, int position, boolean reverse, int score, String cigar)
+        {
+            this.name = name;
+            this.position = position;
+            this.reverse = reverse;
+            this.score = score;
+            this.cigar = cigar;
+        }
+
+        public boolean isMapped() {return position >= 0;}
+
+        @Override
+        public String toString()
+        {
+            //tab separated: name, strand, position (1-based like SAM, 0: unmapped), score, CIGAR
+            return String.format("%s\t%c\t%d\t%d\t%s", name, reverse ? '-' : '+', position + 1, score, cigar);
+        }
+    }
+
+    public ReadMapper(String reference)
+    {
+        this(reference, 15, 10, 16, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ReadMapper(String reference, int k, int w, int band, int nThreads)
+    {
+        this.reference = reference;
+        this.index = new MinimizerIndex(reference, k, w);
+        this.aligner = new BandedAligner();
+        this.band = band;
+        this.maxOccurrences = 500;
+        this.nThreads = Math.max(nThreads, 1);
+    }
+
+    public void setMaxOccurrences(int maxOccurrences) {this.maxOccurrences = maxOccurrences;}
+
+    public Mapping map(String read) {return map(null, read);}
+
+    public Mapping map(String name, String read)
+    {
+        Mapping fwd = mapStrand(name, read, false);
+        Mapping rev = mapStrand(name, Nucleotides.reverseComplement(read), true);
+
+        if (fwd == null) return (rev == null) ? new Mapping(name, -1, false, 0, "*") : rev;
+        return (rev == null || fwd.score >= rev.score) ? fwd : rev;
+    }
+
+    private Mapping mapStrand(String name, String read, boolean reverse)
+    {
+        //collect the diagonals of all seed hits
+
+        int[][] diagonals = {new int[64]};
+        int[] total = new int[1];
+
+        MinimizerIndex.minimizers(read, index.getK(), index.getW(), (kmer, readPos) ->
+        {
+            if (index.occurrences(kmer) > maxOccurrences) return;
+
+            index.lookup(kmer, refPos ->
+            {
+                if (total[0] == diagonals[0].length) diagonals[0] = Arrays.copyOf(diagonals[0], 2 * total[0]);
+                diagonals[0][total[0]++] = refPos - readPos;
+                return true;
+            });
+        });
+        if (total[0] == 0) return null;
+
+        //densest cluster: most diagonals within a window of width band (sliding window over the sorted diagonals)
+        int[] d = diagonals[0];
+        Arrays.sort(d, 0, total[0]);
+
+        int bestFrom = 0, bestTo = 1;
+        for (int from=0, to=0; from<total[0]; from++)
+        {
+            while (to < total[0] && d[to] - d[from] <= band) to++;
+            if (to - from > bestTo - bestFrom)
+            {
+                bestFrom = from;
+                bestTo = to;
+            }
+        }
+
+        //align the read against the reference window around the cluster
+        int diagonal = (d[bestFrom] + d[bestTo-1]) / 2;
+        int width = band + (d[bestTo-1] - d[bestFrom]) / 2 + 1;
+        int windowStart = Math.max(0, diagonal - width);
+        int windowEnd = Math.min(reference.length(), diagonal + read.length() + width);
+        if (windowStart >= windowEnd) return null;
+
+        BandedAligner.Alignment alignment = aligner.alignSemiGlobal(read, reference.substring(windowStart, windowEnd), diagonal - windowStart, width);
+        if (alignment == null) return null;
+
+        return new Mapping(name, windowStart + alignment.refStart, reverse, alignment.score, alignment.cigar);
+    }
+
+    public ArrayList<Mapping> map(SequenceCollection<String, Sequence> reads)
+    {
+        String[] names = reads.keySet().toArray(new String[0]);
+        String[] seqs = new String[names.length];
+        for (int i=0; i<names.length; i++) seqs[i] = reads.get(names[i]).getSequence();
+
+        return map(names, seqs);
+    }
+
+    public ArrayList<Mapping> map(String[] names, String[] reads)
+    {
+        //map all reads in parallel (the mappings are returned in the order of the reads)
+
+        Mapping[] mappings = new Mapping[reads.length];
+        ExecutorService threadPool = Executors.newFixedThreadPool(nThreads);
+        ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+        for (int from=0; from<reads.length; from+=BATCH_SIZE)
+        {
+            int batchStart = from;
+            int batchEnd = Math.min(from + BATCH_SIZE, reads.length);
+
+            Callable<Void> job = () ->
+            {
+                for (int i=batchStart; i<batchEnd; i++) mappings[i] = map((names == null) ? null : names[i], reads[i]);
+                return null;
+            };
+            futures.add(threadPool.submit(job));
+        }
+
+        try
+        {
+            for (Future<Void> future: futures) future.get();
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            throw new RuntimeException("Read mapping failed!", e);
+        }
+        finally
+        {
+            threadPool.shutdown();
+        }
+
+        return new ArrayList<Mapping>(Arrays.asList(mappings));
+    }
+}
@@ -0,0 +1,298 @@
+package geneprediction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import geneprediction.CompiledHMM;
+import geneprediction.ForwardBackward;
+import geneprediction.HMM;
+
+public class BaumWelch
+{
+    //Baum-Welch training (expectation maximization) of the probabilities of a HMM on unannotated sequences
+    //E-step: expected number of initial states, transitions and emissions w/ the scaled forward-backward algorithm
+    //M-step: new probabilities = normalized expected counts (+ pseudocount, so no allowed probability becomes 0;
+    //structural zeros of the starting model, e.g. forbidden transitions, get no pseudocount and stay 0)
+    //the E-step runs in parallel: long sequences are split into chunks of chunkSize observations
+    //(every chunk is treated as a sequence starting w/ the initial state distribution, which slightly
+    //underestimates the transitions at the chunk borders), each thread takes chunks from a shared counter
+    //and sums up its own expected counts, the counts of the threads are added after every iteration
+    //(one thread pool per train() call); the forward and backward columns are computed w/ the kernels of ForwardBackward
+    //iterations stop after maxIterations or when the log-likelihood per observation improves by less than tolerance
+    //semi-supervised training: positions w/ a label (state index >= 0) are clamped to that state,
+    //unlabeled positions (-1) are trained like unannotated sequences
+
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    int nThreads;
+    int chunkSize = CHUNK_SIZE;
+    int maxIterations = 100;
+    double tolerance = 1e-6;
+    double pseudocount = 1e-6;
+    ArrayList<Double> logLikelihoods = new ArrayList<Double>();
+
+    private static class Counts
+    {
+        //expected counts of one thread
+
+        double[] initial;
+        double[][] transition;
+        double[][] emission;
+        double logLikelihood = 0.0;
+
+        Counts(int states, int symbols)
+        {
+            this.initial = new double[states];
+            this.transition = new double[states][states];
+            this.emission = new double[states][symbols];
+        }
+
+        void add(Counts c)
+        {
+            for (int s=0; s<initial.length; s++)
+            {
+                initial[s] += c.initial[s];
+                for (int t=0; t<initial.length; t++) transition[s][t] += c.transition[s][t];
+                for (int i=0; i<emission[s].length; i++) emission[s][i] += c.emission[s][i];
+            }
+            logLikelihood += c.logLikelihood;
+        }
+    }
+
+    public BaumWelch()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public BaumWelch(int nThreads)
+    {
+        this.nThreads = Math.max(nThreads, 1);
+    }
+
+    public void setMaxIterations(int maxIterations) {this.maxIterations = maxIterations;}
+    public void setTolerance(double tolerance) {this.tolerance = tolerance;}
+    public void setPseudocount(double pseudocount) {this.pseudocount = pseudocount;}
+    public void setChunkSize(int chunkSize) {this.chunkSize = Math.max(chunkSize, 2);}
+
+    public ArrayList<Double> getLogLikelihoods() {return logLikelihoods;}
+
+    public HMM train(HMM hmm, CharSequence... sequences)
+    {
+        //unsupervised training, starting w/ the probabilities of hmm (returns a new HMM)
+        return train(hmm, sequences, null);
+    }
+
+    public HMM train(HMM hmm, CharSequence[] sequences, byte[][] labels)
+    {
+        CompiledHMM model = hmm.compile();
+        byte[][] obs = new byte[sequences.length][];
+        for (int i=0; i<sequences.length; i++) obs[i] = model.encode(sequences[i]);
+
+        return train(model, obs, labels).toHMM();
+    }
+
+    public CompiledHMM train(CompiledHMM model, byte[][] obs, byte[][] labels)
+    {
+        //labels: state index of every observation (-1: unlabeled), labels == null or labels[i] == null: unlabeled
+        //the log-likelihood of every iteration is recorded (see getLogLikelihoods())
+
+        logLikelihoods.clear();
+
+        //chunks: {sequence, from, to}
+        ArrayList<int[]> chunks = new ArrayList<int[]>();
+        long total = 0;
+        int maxChunk = 0;
+        for (int i=0; i<obs.length; i++)
+        {
+            maxChunk = Math.max(maxChunk, Math.min(obs[i].length, chunkSize));
+            for (int from=0; from<obs[i].length; from+=chunkSize) chunks.add(new int[]{i, from, Math.min(from + chunkSize, obs[i].length)});
+            total += obs[i].length;
+        }
+        if (total == 0) return model;
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(nThreads);
+        try
+        {
+            double previous = Double.NEGATIVE_INFINITY;
+            for (int iteration=0; iteration<maxIterations; iteration++)
+            {
+                Counts counts = expectedCounts(threadPool, model, obs, labels, chunks, maxChunk);
+                logLikelihoods.add(counts.logLikelihood);
+                model = maximize(model, counts);
+
+                if ((counts.logLikelihood - previous) / total < tolerance) break;
+                previous = counts.logLikelihood;
+            }
+        }
+        finally
+        {
+            threadPool.shutdown();
+        }
+        return model;
+    }
+
+    private Counts expectedCounts(ExecutorService threadPool, CompiledHMM model, byte[][] obs, byte[][] labels, ArrayList<int[]> chunks, int maxChunk)
+    {
+        //E-step in parallel (one job per thread, the chunks are distributed dynamically)
+
+        int S = model.totalStates;
+        int M = model.unknown;
+        AtomicInteger next = new AtomicInteger();
+        ArrayList<Future<Counts>> futures = new ArrayList<Future<Counts>>();
+
+        for (int t=0; t<nThreads; t++)
+        {
+            Callable<Counts> job = () ->
+            {
+                Counts counts = new Counts(S, M);
+                double[][] alpha = new double[maxChunk][S];
+                double[] scale = new double[maxChunk];
+
+                int c;
+                while ((c = next.getAndIncrement()) < chunks.size())
+                {
+                    int[] chunk = chunks.get(c);
+                    byte[] label = (labels == null) ? null : labels[chunk[0]];
+                    count(model, obs[chunk[0]], label, chunk[1], chunk[2], alpha, scale, counts);
+                }
+                return counts;
+            };
+            futures.add(threadPool.submit(job));
+        }
+
+        Counts counts = new Counts(S, M);
+        try
+        {
+            for (Future<Counts> future: futures) counts.add(future.get());
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            throw new RuntimeException("Baum-Welch training failed!", e);
+        }
+
+        return counts;
+    }
+
+    private static void count(CompiledHMM model, byte[] obs, byte[] label, int from, int to, double[][] alpha, double[] scale, Counts counts)
+    {
+        //scaled forward-backward algorithm on obs[from ... to-1], adds the expected counts
+
+        int S = model.totalStates;
+        int n = to - from;
+        double[][] transition = model.transition;
+        double[][] emission = model.emission;
+
+        //forward pass (alpha[t][s], normalized to a sum of 1 per column)
+        double logLikelihood = 0.0;
+        for (int t=0; t<n; t++)
+        {
+            int o = from + t;
+            int clamp = (label == null) ? -1 : label[o];
+
+            if (t == 0) ForwardBackward.initialColumn(model, alpha[0], obs[o], clamp);
+            else ForwardBackward.forwardColumn(model, alpha[t - 1], alpha[t], obs[o], clamp);
+
+            //impossible under the current model (e.g. contradicting labels): the chunk is ignored
+            double logScale = ForwardBackward.normalize(alpha[t]);
+            if (logScale == Double.NEGATIVE_INFINITY) return;
+
+            scale[t] = Math.exp(logScale);
+            logLikelihood += logScale;
+        }
+
+        //backward pass (scaled w/ the forward scaling factors), accumulating the expected counts
+        int unknown = model.unknown;
+        double[] beta = new double[S];
+        double[] prevBeta = new double[S];
+        double[] w = new double[S];
+        Arrays.fill(beta, 1.0);
+
+        for (int t=n-1; t>=0; t--)
+        {
+            int symbol = obs[from + t];
+
+            //gamma_t(s) = alpha_t(s) * beta_t(s)
+            for (int s=0; s<S; s++)
+            {
+                double gamma = alpha[t][s] * beta[s];
+                if (symbol != unknown) counts.emission[s][symbol] += gamma;
+                if (t == 0 && from == 0) counts.initial[s] += gamma;
+            }
+            if (t == 0) break;
+
+            //xi_{t-1}(i, j) = alpha_{t-1}(i) * P(i -> j) * P(o_t | j) * beta_t(j) / scale_t
+            int clamp = (label == null) ? -1 : label[from + t];
+            for (int j=0; j<S; j++) w[j] = (clamp >= 0 && clamp != j) ? 0.0 : emission[j][symbol] * beta[j] / scale[t];
+
+            for (int i=0; i<S; i++)
+            {
+                double a = alpha[t - 1][i];
+                for (int j=0; j<S; j++) counts.transition[i][j] += a * transition[i][j] * w[j];
+            }
+
+            ForwardBackward.backwardColumn(model, beta, prevBeta, symbol, clamp);
+            for (int i=0; i<S; i++) prevBeta[i] /= scale[t];
+
+            double[] tmp = beta;
+            beta = prevBeta;
+            prevBeta = tmp;
+        }
+
+        counts.logLikelihood += logLikelihood;
+    }
+
+    private CompiledHMM maximize(CompiledHMM model, Counts counts)
+    {
+        //M-step: normalize the expected counts
+
+        int S = model.totalStates;
+        int M = model.unknown;
+
+        String[] stateNames = new String[S];
+        String[] symbols = new String[M];
+        for (int s=0; s<S; s++) stateNames[s] = model.getStateName(s);
+        for (int i=0; i<M; i++) symbols[i] = model.getSymbol(i);
+
+        double[] initial = normalize(counts.initial, model.initial);
+        double[][] transition = new double[S][];
+        double[][] emission = new double[S][];
+        for (int s=0; s<S; s++)
+        {
+            transition[s] = normalize(counts.transition[s], model.transition[s]);
+            emission[s] = normalize(counts.emission[s], model.emission[s]);
+        }
+
+        return new CompiledHMM(stateNames, symbols, initial, transition, emission);
+    }
+
+    private double[] normalize(double[] counts, double[] current)
+    {
+        //the pseudocount is only added to the entries that are allowed by the current model: the expected counts of
+        //zero probabilities are 0, so the zeros of the current model are exactly those of the starting model
+        //(rows w/o any counts become uniform over their allowed entries)
+
+        double sum = 0.0;
+        int allowed = 0;
+        for (int i=0; i<counts.length; i++)
+        {
+            if (current[i] == 0.0) continue;
+            sum += counts[i] + pseudocount;
+            allowed++;
+        }
+
+        double[] p = new double[counts.length];
+        for (int i=0; i<counts.length; i++)
+        {
+            if (current[i] == 0.0) continue;
+            p[i] = (sum > 0.0) ? (counts[i] + pseudocount) / sum : 1.0 / allowed;
+        }
+
+        return p;
+    }
+}
@@ -0,0 +1,340 @@
+package geneprediction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the Baum-Welch training of the <code>BaumWelch</code> class against expected counts
+ * summed over all state paths, plain counting of fully labeled sequences and the monotone log-likelihood
+ * of expectation maximization using the JUnit unittesting framework
+ */
+public class BaumWelchTest
+{
+    private static final String[] SYMBOLS = {"A", "C", "G", "T"};
+
+    private ArrayList<CompiledHMM> models;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //random models w/ 1 to 3 states
+        Random random = new Random(47);
+        this.models = new ArrayList<CompiledHMM>();
+
+        for (int m=0; m<100; m++) models.add(randomModel(random, 1 + random.nextInt(3)));
+    }
+
+    private static CompiledHMM randomModel(Random random, int totalStates)
+    {
+        String[] names = new String[totalStates];
+        double[] initial = randomDistribution(random, totalStates);
+        double[][] transition = new double[totalStates][];
+        double[][] emission = new double[totalStates][];
+        for (int s=0; s<totalStates; s++)
+        {
+            names[s] = "s" + s;
+            transition[s] = randomDistribution(random, totalStates);
+            emission[s] = randomDistribution(random, SYMBOLS.length);
+        }
+        return new CompiledHMM(names, SYMBOLS, initial, transition, emission);
+    }
+
+    private static double[] randomDistribution(Random random, int size)
+    {
+        double[] p = new double[size];
+        double sum = 0;
+        for (int i=0; i<size; i++)
+        {
+            p[i] = 0.05 + random.nextDouble();
+            sum += p[i];
+        }
+        for (int i=0; i<size; i++) p[i] /= sum;
+
+        return p;
+    }
+
+    private static double[][] bruteForce(CompiledHMM model, byte[][] obs, byte[][] labels)
+    {
+        //expected counts of all states^n state paths that agree w/ the labels, weighted w/ P(path | observations):
+        //{initial counts}, S rows of transition counts, S rows of emission counts, {log-likelihood}
+
+        int S = model.getTotalStates();
+        int M = model.getTotalSymbols();
+        double[][] counts = new double[2 * S + 2][];
+        counts[0] = new double[S];
+        for (int s=0; s<S; s++)
+        {
+            counts[1 + s] = new double[S];
+            counts[1 + S + s] = new double[M];
+        }
+        counts[2 * S + 1] = new double[1];
+
+        for (int q=0; q<obs.length; q++)
+        {
+            int n = obs[q].length;
+            int total = (int)Math.pow(S, n);
+            double[] pathP = new double[total];
+            double sum = 0;
+            for (int p=0; p<total; p++)
+            {
+                pathP[p] = 1.0;
+                for (int o=0, rest=p, prev=-1; o<n; o++, rest/=S)
+                {
+                    int s = rest % S;
+                    if (labels[q][o] >= 0 && labels[q][o] != s) pathP[p] = 0.0;
+                    pathP[p] *= (o == 0) ? model.getInitialP(s) : model.getTransitionP(prev, s);
+                    pathP[p] *= model.getEmissionP(s, obs[q][o]);
+                    prev = s;
+                }
+                sum += pathP[p];
+            }
+            for (int p=0; p<total; p++)
+            {
+                double w = pathP[p] / sum;
+                for (int o=0, rest=p, prev=-1; o<n; o++, rest/=S)
+                {
+                    int s = rest % S;
+                    if (o == 0) counts[0][s] += w;
+                    else counts[1 + prev][s] += w;
+                    if (obs[q][o] < M) counts[1 + S + s][obs[q][o]] += w;
+                    prev = s;
+                }
+            }
+            counts[2 * S + 1][0] += Math.log(sum);
+        }
+        return counts;
+    }
+
+    private static double[] normalize(double[] counts)
+    {
+        double sum = 0;
+        for (double c: counts) sum += c;
+
+        double[] p = new double[counts.length];
+        for (int i=0; i<counts.length; i++) p[i] = (sum > 0.0) ? counts[i] / sum : 1.0 / counts.length;
+        return p;
+    }
+
+    private static void assertModel(double[][] counts, CompiledHMM trained, double delta)
+    {
+        //the trained probabilities must be the normalized counts
+
+        int S = trained.getTotalStates();
+        int M = trained.getTotalSymbols();
+        double[] initial = normalize(counts[0]);
+        for (int s=0; s<S; s++)
+        {
+            assertEquals(initial[s], trained.getInitialP(s), delta);
+            double[] transition = normalize(counts[1 + s]);
+            double[] emission = normalize(counts[1 + S + s]);
+            for (int t=0; t<S; t++) assertEquals(transition[t], trained.getTransitionP(s, t), delta);
+            for (int i=0; i<M; i++) assertEquals(emission[i], trained.getEmissionP(s, i), delta);
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * a single iteration on short sequences (incl. unknown symbols and partially labeled positions) must give
+     * the normalized expected counts over all state paths and the log-likelihood of the sequences
+     */
+    @Test
+    public void compareExpectedCounts()
+    {
+        Random random = new Random(470);
+        for (CompiledHMM model: models)
+        {
+            byte[][] obs = new byte[1 + random.nextInt(3)][];
+            byte[][] labels = new byte[obs.length][];
+            for (int q=0; q<obs.length; q++)
+            {
+                obs[q] = model.encode(RandomSequences.randomSeq(random, 1 + random.nextInt(6), "ACGTN"));
+                labels[q] = new byte[obs[q].length];
+                for (int o=0; o<obs[q].length; o++) labels[q][o] = (byte)((random.nextInt(4) == 0) ? random.nextInt(model.getTotalStates()) : -1);
+            }
+            boolean labeled = random.nextBoolean();
+
+            BaumWelch baumWelch = new BaumWelch(1 + random.nextInt(4));
+            baumWelch.setMaxIterations(1);
+            baumWelch.setPseudocount(0.0);
+            CompiledHMM trained = baumWelch.train(model, obs, labeled ? labels : null);
+
+            if (!labeled)
+            {
+                for (byte[] label: labels) Arrays.fill(label, (byte)-1);
+            }
+            double[][] counts = bruteForce(model, obs, labels);
+            assertModel(counts, trained, 1e-9);
+            assertEquals(1, baumWelch.getLogLikelihoods().size());
+            assertEquals(counts[counts.length - 1][0], baumWelch.getLogLikelihoods().get(0), 1e-9);
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * fully labeled sequences must be trained to the normalized counts of the labeled initial states,
+     * transitions and emissions (w/ the pseudocount added to every count, the random models have no structural zeros)
+     */
+    @Test
+    public void compareLabeledCounts()
+    {
+        Random random = new Random(471);
+        for (CompiledHMM model: models)
+        {
+            int S = model.getTotalStates();
+            byte[][] obs = new byte[1 + random.nextInt(5)][];
+            byte[][] labels = new byte[obs.length][];
+            double pseudocount = random.nextBoolean() ? 0.0 : 0.5;
+
+            double[][] counts = new double[2 * S + 1][];
+            counts[0] = new double[S];
+            for (int s=0; s<S; s++)
+            {
+                counts[1 + s] = new double[S];
+                counts[1 + S + s] = new double[SYMBOLS.length];
+            }
+            for (double[] row: counts) Arrays.fill(row, pseudocount);
+
+            for (int q=0; q<obs.length; q++)
+            {
+                obs[q] = model.encode(RandomSequences.randomSeq(random, 1 + random.nextInt(2000), "ACGTN"));
+                labels[q] = new byte[obs[q].length];
+                for (int o=0; o<obs[q].length; o++)
+                {
+                    labels[q][o] = (byte)((o > 0 && random.nextInt(10) > 0) ? labels[q][o-1] : random.nextInt(S));
+                    if (o == 0) counts[0][labels[q][o]]++;
+                    else counts[1 + labels[q][o-1]][labels[q][o]]++;
+                    if (obs[q][o] < SYMBOLS.length) counts[1 + S + labels[q][o]][obs[q][o]]++;
+                }
+            }
+
+            BaumWelch baumWelch = new BaumWelch(2);
+            baumWelch.setMaxIterations(1);
+            baumWelch.setPseudocount(pseudocount);
+            assertModel(counts, baumWelch.train(model, obs, labels), 1e-9);
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the log-likelihood must never decrease from one iteration to the next (w/o pseudocounts),
+     * the training stops once it improves by less than the tolerance
+     */
+    @Test
+    public void increaseLikelihood()
+    {
+        Random random = new Random(472);
+        for (int m=0; m<20; m++)
+        {
+            CompiledHMM model = models.get(m);
+            byte[][] obs = {model.encode(RandomSequences.randomSeq(random, 5000, "ACGT")), model.encode(RandomSequences.randomSeq(random, 3000, "AACGTT"))};
+
+            BaumWelch baumWelch = new BaumWelch(4);
+            baumWelch.setPseudocount(0.0);
+            baumWelch.setMaxIterations(30);
+            baumWelch.setTolerance(1e-7);
+            baumWelch.train(model, obs, null);
+
+            ArrayList<Double> logLikelihoods = baumWelch.getLogLikelihoods();
+            assertTrue(logLikelihoods.size() >= 1 && logLikelihoods.size() <= 30);
+            for (int i=1; i<logLikelihoods.size(); i++)
+            {
+                assertTrue(logLikelihoods.toString(), logLikelihoods.get(i) >= logLikelihoods.get(i - 1) - 1e-9 * Math.abs(logLikelihoods.get(i - 1)));
+            }
+            if (logLikelihoods.size() < 30)
+            {
+                int last = logLikelihoods.size() - 1;
+                assertTrue(last == 0 || (logLikelihoods.get(last) - logLikelihoods.get(last - 1)) / 8000 < 1e-7);
+            }
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * structural zeros of the starting model (initial states, transitions and emissions) must stay 0 w/ a pseudocount,
+     * every allowed probability must stay > 0 (also for states whose rows get no expected counts)
+     */
+    @Test
+    public void keepStructuralZeros()
+    {
+        Random random = new Random(474);
+        for (int m=0; m<30; m++)
+        {
+            CompiledHMM start = models.get(m);
+            int S = start.getTotalStates();
+
+            //forbid random entries (at least one allowed entry per row)
+            double[] initial = new double[S];
+            double[][] transition = new double[S][S];
+            double[][] emission = new double[S][SYMBOLS.length];
+            String[] names = new String[S];
+            initial[random.nextInt(S)] = 1.0;
+            for (int s=0; s<S; s++)
+            {
+                names[s] = start.getStateName(s);
+                if (random.nextBoolean()) initial[s] = 1.0;
+                transition[s][random.nextInt(S)] = 1.0;
+                emission[s][random.nextInt(SYMBOLS.length)] = 1.0;
+                for (int t=0; t<S; t++) transition[s][t] = random.nextBoolean() ? 1.0 : transition[s][t];
+                for (int i=0; i<SYMBOLS.length; i++) emission[s][i] = (random.nextInt(3) > 0) ? 1.0 : emission[s][i];
+            }
+            normalizeInPlace(initial);
+            for (double[] row: transition) normalizeInPlace(row);
+            for (double[] row: emission) normalizeInPlace(row);
+            CompiledHMM model = new CompiledHMM(names, SYMBOLS, initial, transition, emission);
+
+            byte[][] obs = {model.encode(RandomSequences.randomSeq(random, 1 + random.nextInt(500), "ACGTN"))};
+            BaumWelch baumWelch = new BaumWelch(2);
+            baumWelch.setMaxIterations(5);
+            baumWelch.setPseudocount(0.5);
+            CompiledHMM trained = baumWelch.train(model, obs, null);
+
+            for (int s=0; s<S; s++)
+            {
+                assertEquals(initial[s] == 0.0, trained.getInitialP(s) == 0.0);
+                for (int t=0; t<S; t++) assertEquals(transition[s][t] == 0.0, trained.getTransitionP(s, t) == 0.0);
+                for (int i=0; i<SYMBOLS.length; i++) assertEquals(emission[s][i] == 0.0, trained.getEmissionP(s, i) == 0.0);
+            }
+        }
+    }
+
+    private static void normalizeInPlace(double[] p)
+    {
+        double sum = 0;
+        for (double x: p) sum += x;
+        for (int i=0; i<p.length; i++) p[i] /= sum;
+    }
+
+    /**
+     * JUnit unittest:
+     * the trained model must not depend on the number of threads (the chunks are distributed dynamically)
+     */
+    @Test
+    public void compareThreads()
+    {
+        Random random = new Random(473);
+        CompiledHMM model = models.get(5);
+        byte[][] obs = {model.encode(RandomSequences.randomSeq(random, 20000, "ACGTN")), model.encode(RandomSequences.randomSeq(random, 777, "ACGT"))};
+
+        CompiledHMM[] trained = new CompiledHMM[2];
+        int[] threads = {1, 8};
+        for (int i=0; i<2; i++)
+        {
+            BaumWelch baumWelch = new BaumWelch(threads[i]);
+            baumWelch.setMaxIterations(5);
+            baumWelch.setChunkSize(1000);
+            trained[i] = baumWelch.train(model, obs, null);
+        }
+
+        for (int s=0; s<model.getTotalStates(); s++)
+        {
+            assertEquals(trained[0].getInitialP(s), trained[1].getInitialP(s), 1e-9);
+            for (int t=0; t<model.getTotalStates(); t++) assertEquals(trained[0].getTransitionP(s, t), trained[1].getTransitionP(s, t), 1e-9);
+            for (int i=0; i<SYMBOLS.length; i++) assertEquals(trained[0].getEmissionP(s, i), trained[1].getEmissionP(s, i), 1e-9);
+        }
+    }
+}
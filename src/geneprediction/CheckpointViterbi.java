@@ -0,0 +1,154 @@
+package geneprediction;
+
+import java.util.Arrays;
+
+import geneprediction.CompiledHMM;
+
+public class CheckpointViterbi
+{
+    //memory efficient version of the viterbi algorithm (same result as Viterbi.decode())
+    //the plain algorithm keeps a backpointer for every observation and state (n * states bytes);
+    //here the forward pass keeps only the current column of scores and stores a checkpoint column
+    //every ~sqrt(n) observations, the traceback then recomputes one segment after another (from the last one)
+    //starting at its checkpoint and follows the backpointers of that segment only
+    //backpointers are bit-packed w/ ceil(log2(states)) bits each (1 bit for a 2 state model),
+    //so besides the observations and the path (n bytes each) only O(sqrt(n) * states) memory is needed
+    //at the cost of a second forward pass, e.g. 2 state model and 500 Mbp: ~22k checkpoints * 2 states * 8 bytes
+    //= ~350 kB instead of 1 GB of backpointers (the observations and the path still take ~1 GB together)
+
+    private CompiledHMM model;
+    private int totalStates;
+    private int bits;         //bits per backpointer
+    private long mask;
+
+    public CheckpointViterbi(CompiledHMM model)
+    {
+        this.model = model;
+        this.totalStates = model.totalStates;
+        this.bits = Math.max(32 - Integer.numberOfLeadingZeros(totalStates - 1), 1);
+        this.mask = (1L << bits) - 1;
+    }
+
+    public CheckpointViterbi(HMM hmm)
+    {
+        this(hmm.compile());
+    }
+
+    public byte[] decode(byte[] obs)
+    {
+        //most likely state path of the encoded observations (see CompiledHMM.encode())
+
+        int n = obs.length;
+        int S = totalStates;
+        byte[] path = new byte[n];
+        if (n == 0) return path;
+
+        int segLength = Math.max((int)Math.ceil(Math.sqrt(n)), 1);
+        int totalSegments = (n + segLength - 1) / segLength;
+
+        //forward pass: checkpoints[j] = scores of the last column before segment j (j >= 1)
+        double[][] checkpoints = new double[totalSegments][S];
+        double[] prev = new double[S];
+        double[] curr = new double[S];
+
+        for (int s=0; s<S; s++) prev[s] = model.logInitial[s] + model.logEmission[s][obs[0]];
+
+        for (int o=1; o<n; o++)
+        {
+            if (o % segLength == 0) System.arraycopy(prev, 0, checkpoints[o / segLength], 0, S);
+
+            column(prev, curr, obs[o], null, 0);
+
+            double[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+
+        //best last state
+        int k = 0;
+        for (int s=1; s<S; s++)
+        {
+            if (prev[s] > prev[k]) k = s;
+        }
+
+        //traceback segment by segment (recompute the backpointers of the segment from its checkpoint)
+        long[] backpointers = new long[(int)(((long)segLength * S * bits + 63) >>> 6)];
+
+        for (int j=totalSegments-1; j>=0; j--)
+        {
+            int from = j * segLength;
+            int to = Math.min(from + segLength, n);
+            Arrays.fill(backpointers, 0L);
+
+            int first = from;
+            if (j == 0)
+            {
+                for (int s=0; s<S; s++) prev[s] = model.logInitial[s] + model.logEmission[s][obs[0]];
+                first = 1;
+            }
+            else System.arraycopy(checkpoints[j], 0, prev, 0, S);
+
+            for (int o=first; o<to; o++)
+            {
+                column(prev, curr, obs[o], backpointers, (long)(o - from) * S * bits);
+
+                double[] tmp = prev;
+                prev = curr;
+                curr = tmp;
+            }
+
+            for (int o=to-1; o>=from; o--)
+            {
+                path[o] = (byte)k;
+                if (o > 0) k = get(backpointers, (long)((o - from) * S + k) * bits);
+            }
+        }
+        return path;
+    }
+
+    private void column(double[] prev, double[] curr, int symbol, long[] backpointers, long offset)
+    {
+        //next column of scores (and the backpointers of its states starting at bit offset)
+
+        int S = totalStates;
+        double[][] logTransition = model.logTransition;
+        double[][] logEmission = model.logEmission;
+
+        for (int s=0; s<S; s++)
+        {
+            int k = 0;
+            double best = prev[0] + logTransition[0][s];
+            for (int i=1; i<S; i++)
+            {
+                double v = prev[i] + logTransition[i][s];
+                if (v > best)
+                {
+                    best = v;
+                    k = i;
+                }
+            }
+            curr[s] = best + logEmission[s][symbol];
+            if (backpointers != null && k != 0) set(backpointers, offset + (long)s * bits, k);
+        }
+    }
+
+    private void set(long[] packed, long bit, int value)
+    {
+        //set a backpointer (the packed array is cleared before every segment, so OR is sufficient)
+
+        int w = (int)(bit >>> 6);
+        int offset = (int)(bit & 63);
+        packed[w] |= (long)value << offset;
+        if (offset + bits > 64) packed[w+1] |= (long)value >>> (64 - offset);
+    }
+
+    private int get(long[] packed, long bit)
+    {
+        int w = (int)(bit >>> 6);
+        int offset = (int)(bit & 63);
+        long value = packed[w] >>> offset;
+        if (offset + bits > 64) value |= packed[w+1] << (64 - offset);
+
+        return (int)(value & mask);
+    }
+}
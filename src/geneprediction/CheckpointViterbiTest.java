@@ -0,0 +1,101 @@
+package geneprediction;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests that the checkpointing decoder of the <code>CheckpointViterbi</code> class
+ * returns the same state paths as the plain <code>Viterbi</code> class using the JUnit unittesting framework
+ */
+public class CheckpointViterbiTest
+{
+    private static final String[] SYMBOLS = {"A", "C", "G", "T"};
+
+    private ArrayList<CompiledHMM> models;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //random models w/ 1 to 127 states (1 to 7 bits per backpointer), some transitions and emissions are impossible
+        Random random = new Random(43);
+        this.models = new ArrayList<CompiledHMM>();
+
+        for (int m=0; m<100; m++) models.add(randomModel(random, 1 + random.nextInt((m % 4 == 0) ? 127 : 9)));
+    }
+
+    private static CompiledHMM randomModel(Random random, int totalStates)
+    {
+        String[] names = new String[totalStates];
+        double[] initial = new double[totalStates];
+        double[][] transition = new double[totalStates][];
+        double[][] emission = new double[totalStates][];
+        for (int s=0; s<totalStates; s++)
+        {
+            names[s] = "s" + s;
+            initial[s] = 1.0 / totalStates;
+            transition[s] = randomDistribution(random, totalStates);
+            emission[s] = randomDistribution(random, SYMBOLS.length);
+        }
+        return new CompiledHMM(names, SYMBOLS, initial, transition, emission);
+    }
+
+    private static double[] randomDistribution(Random random, int size)
+    {
+        //every 5th probability is 0 (but at least one is > 0)
+        double[] p = new double[size];
+        double sum = 0;
+        for (int i=0; i<size; i++)
+        {
+            p[i] = (random.nextInt(5) == 0 && i > 0) ? 0.0 : 0.05 + random.nextDouble();
+            sum += p[i];
+        }
+        for (int i=0; i<size; i++) p[i] /= sum;
+
+        return p;
+    }
+
+    /**
+     * JUnit unittest:
+     * the paths must equal the paths of Viterbi.decode(), for lengths w/ full and partial last segments
+     */
+    @Test
+    public void compareWithViterbi()
+    {
+        Random random = new Random(430);
+        int[] lengths = {0, 1, 2, 3, 4, 15, 16, 17, 99, 100, 101};
+        for (CompiledHMM model: models)
+        {
+            Viterbi viterbi = new Viterbi(model);
+            CheckpointViterbi checkpointViterbi = new CheckpointViterbi(model);
+            for (int q=0; q<lengths.length+3; q++)
+            {
+                int n = (q < lengths.length) ? lengths[q] : random.nextInt(3000);
+                byte[] obs = model.encode(RandomSequences.randomSeq(random, n, "ACGTN"));
+                assertArrayEquals(viterbi.decode(obs), checkpointViterbi.decode(obs));
+            }
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * a long observation through a HMM built from states must give the path of Viterbi.decode()
+     */
+    @Test
+    public void compareLongObservation()
+    {
+        char[] emissions = {'A', 'C', 'G', 'T'};
+        State[] states = {new State("C", emissions, new double[]{0.1, 0.4, 0.4, 0.1}, 0.5),
+                          new State("N", emissions, new double[]{0.3, 0.2, 0.2, 0.3}, 0.5)};
+        HMM hmm = new HMM(states, new double[][]{{0.99, 0.01}, {0.02, 0.98}});
+
+        Viterbi viterbi = new Viterbi(hmm);
+        byte[] obs = viterbi.encode(RandomSequences.randomSeq(new Random(431), 1000003, "ACGT"));
+        byte[] path = new CheckpointViterbi(hmm).decode(obs);
+        assertEquals(obs.length, path.length);
+        assertArrayEquals(viterbi.decode(obs), path);
+    }
+}
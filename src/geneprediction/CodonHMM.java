@@ -0,0 +1,257 @@
+package geneprediction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import stringsearch.Nucleotides;
+
+public class CodonHMM
+{
+    //gene model w/ a non-coding state (N) and three coding states for the codon positions (C1 -> C2 -> C3 -> C1 ...)
+    //the emissions depend on the k preceding bases (k-th order Markov chain): the context is kept as a rolling
+    //2k bit index (2-bit codes, see Nucleotides) while walking along the sequence, so every emission is a single
+    //lookup in a dense table logEmission[state][context * 4 + base] (4^(k+1) entries per state) instead of map lookups;
+    //positions w/ less than k preceding bases (sequence start, after an N) use the zero-order probabilities
+    //N and other non-ACGT characters are emitted w/ probability 1 by every state
+    //the model is built from counts (see train()), decoding is a log space Viterbi over the 4 states
+    //(order 5: 4096 contexts, 128 kB per state)
+
+    public static final int N = 0, C1 = 1, C2 = 2, C3 = 3;
+    public static final int MAX_ORDER = 8;
+    private static final String[] STATE_NAMES = {"N", "C1", "C2", "C3"};
+    private static final int STATES = 4;
+
+    int order;
+    int contextMask;
+    double[] logInitial;
+    double[][] logTransition;
+    double[][] logEmission;   //logEmission[state][context * 4 + base]
+    double[][] logEmission0;  //zero-order emissions logEmission0[state][base]
+
+    public CodonHMM(int order, long[][] transitionCounts, long[][] emissionCounts)
+    {
+        //transitionCounts[from][to] (4 x 4), emissionCounts[state][context * 4 + base] (4 x 4^(order+1))
+        //all probabilities get a pseudocount of 1, except for the transitions the model doesn't allow
+
+        if (order < 0 || order > MAX_ORDER) throw new IllegalArgumentException("The order must be between 0 and " + MAX_ORDER + "!");
+
+        this.order = order;
+        this.contextMask = (1 << (2 * order)) - 1;
+        int contexts = 1 << (2 * order);
+
+        this.logInitial = new double[STATES];
+        Arrays.fill(logInitial, Double.NEGATIVE_INFINITY);
+        logInitial[N] = 0.0;
+
+        //allowed transitions: N -> N, N -> C1, C1 -> C2, C2 -> C3, C3 -> C1, C3 -> N
+        boolean[][] allowed = new boolean[STATES][STATES];
+        allowed[N][N] = allowed[N][C1] = allowed[C1][C2] = allowed[C2][C3] = allowed[C3][C1] = allowed[C3][N] = true;
+
+        this.logTransition = new double[STATES][STATES];
+        for (int s=0; s<STATES; s++)
+        {
+            double total = 0.0;
+            for (int t=0; t<STATES; t++)
+            {
+                if (allowed[s][t]) total += transitionCounts[s][t] + 1;
+            }
+            for (int t=0; t<STATES; t++) logTransition[s][t] = allowed[s][t] ? Math.log((transitionCounts[s][t] + 1) / total) : Double.NEGATIVE_INFINITY;
+        }
+
+        this.logEmission = new double[STATES][contexts * 4];
+        this.logEmission0 = new double[STATES][4];
+        for (int s=0; s<STATES; s++)
+        {
+            long[] counts0 = new long[4];
+            for (int c=0; c<contexts; c++)
+            {
+                long total = 4;
+                for (int b=0; b<4; b++)
+                {
+                    total += emissionCounts[s][c * 4 + b];
+                    counts0[b] += emissionCounts[s][c * 4 + b];
+                }
+                for (int b=0; b<4; b++) logEmission[s][c * 4 + b] = Math.log((emissionCounts[s][c * 4 + b] + 1.0) / total);
+            }
+
+            long total0 = 4;
+            for (int b=0; b<4; b++) total0 += counts0[b];
+            for (int b=0; b<4; b++) logEmission0[s][b] = Math.log((counts0[b] + 1.0) / total0);
+        }
+    }
+
+    public static CodonHMM train(CharSequence seq, BitSet coding, int order)
+    {
+        //train on a sequence whose genes are all on the + strand
+        return train(seq, coding, new BitSet(), order);
+    }
+
+    public static CodonHMM train(CharSequence seq, BitSet forward, BitSet reverse, int order)
+    {
+        //count the transitions and the emissions in context of an annotated sequence
+        //forward, reverse: 0-based positions of the genes on the + and - strand (forward strand coordinates)
+        //the + strand genes are counted on the sequence, the - strand genes on its reverse complement
+        //(so every coding run starts w/ C1 at its start codon); positions of a gene on the other strand only
+        //are skipped in either pass (they are neither non-coding nor in frame on this strand)
+
+        long[][] transitionCounts = new long[STATES][STATES];
+        long[][] emissionCounts = new long[STATES][4 << (2 * order)];
+
+        count(seq, forward, reverse, false, order, transitionCounts, emissionCounts);
+        count(seq, reverse, forward, true, order, transitionCounts, emissionCounts);
+
+        return new CodonHMM(order, transitionCounts, emissionCounts);
+    }
+
+    private static void count(CharSequence seq, BitSet coding, BitSet other, boolean reverse, int order, long[][] transitionCounts, long[][] emissionCounts)
+    {
+        //one strand: walk along the sequence (reverse: the reverse complement), every coding run starts w/ C1
+
+        int n = seq.length();
+        int contextMask = (1 << (2 * order)) - 1;
+
+        int context = 0;
+        int valid = 0;          //number of preceding ACGT bases
+        int prevState = -1;
+        int runStart = 0;
+        boolean prevCoding = false;
+
+        for (int i=0; i<n; i++)
+        {
+            int pos = reverse ? n - 1 - i : i;
+            boolean isCoding = coding.get(pos);
+
+            if (!isCoding && other.get(pos))
+            {
+                prevState = -1;
+                prevCoding = false;
+                valid = 0;
+                continue;
+            }
+
+            int state;
+            if (!isCoding) state = N;
+            else
+            {
+                if (!prevCoding) runStart = i;
+                state = C1 + (i - runStart) % 3;
+            }
+            prevCoding = isCoding;
+            if (prevState >= 0) transitionCounts[prevState][state]++;
+            prevState = state;
+
+            char c = seq.charAt(pos);
+            int code = Nucleotides.code(reverse ? Nucleotides.complement(c) : c);
+            if (code < 0)
+            {
+                valid = 0;
+                continue;
+            }
+            if (valid >= order) emissionCounts[state][(context << 2) | code]++;
+
+            context = ((context << 2) | code) & contextMask;
+            valid++;
+        }
+    }
+
+    public int getOrder() {return order;}
+    public static String getStateName(int state) {return STATE_NAMES[state];}
+
+    public byte[] decode(CharSequence seq)
+    {
+        //most likely state path (N, C1, C2, C3 of every position)
+
+        int n = seq.length();
+        byte[] path = new byte[n];
+        if (n == 0) return path;
+
+        double[] prev = new double[STATES];
+        double[] curr = new double[STATES];
+        byte[] backpointers = new byte[n * STATES];
+
+        int context = 0;
+        int valid = 0;
+
+        for (int o=0; o<n; o++)
+        {
+            int code = Nucleotides.code(seq.charAt(o));
+
+            //emission table row of the position (null: emitted w/ probability 1)
+            double[][] table = null;
+            int index = code;
+            if (code >= 0)
+            {
+                if (valid >= order)
+                {
+                    table = logEmission;
+                    index = (context << 2) | code;
+                }
+                else table = logEmission0;
+
+                context = ((context << 2) | code) & contextMask;
+                valid++;
+            }
+            else valid = 0;
+
+            for (int s=0; s<STATES; s++)
+            {
+                double best;
+                int k = 0;
+                if (o == 0) best = logInitial[s];
+                else
+                {
+                    best = prev[0] + logTransition[0][s];
+                    for (int i=1; i<STATES; i++)
+                    {
+                        double v = prev[i] + logTransition[i][s];
+                        if (v > best)
+                        {
+                            best = v;
+                            k = i;
+                        }
+                    }
+                }
+                curr[s] = (table == null) ? best : best + table[s][index];
+                backpointers[o * STATES + s] = (byte)k;
+            }
+
+            double[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+
+        int k = 0;
+        for (int s=1; s<STATES; s++)
+        {
+            if (prev[s] > prev[k]) k = s;
+        }
+        for (int o=n-1; o>=0; o--)
+        {
+            path[o] = (byte)k;
+            k = backpointers[o * STATES + k];
+        }
+        return path;
+    }
+
+    public ArrayList<int[]> predict(CharSequence seq)
+    {
+        //coding regions of the + strand as 0-based {start, end (exclusive)} (same convention as the training BitSets)
+
+        byte[] path = decode(seq);
+        ArrayList<int[]> regions = new ArrayList<int[]>();
+
+        for (int i=0; i<path.length; )
+        {
+            if (path[i] == N)
+            {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < path.length && path[i] != N) i++;
+            regions.add(new int[]{start, i});
+        }
+        return regions;
+    }
+}
@@ -0,0 +1,224 @@
+package geneprediction;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import stringsearch.Nucleotides;
+
+/**
+ * This class tests the training (counts in context on both strands) and the decoding of the <code>CodonHMM</code> class
+ * against brute force counting and the best of all state paths using the JUnit unittesting framework
+ */
+public class CodonHMMTest
+{
+    private ArrayList<String> seqs;
+    private ArrayList<BitSet[]> genes;  //{+ strand, - strand}
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //random sequences w/ N's and soft-masked bases, genes on both strands (some of them overlapping)
+        Random random = new Random(48);
+        this.seqs = new ArrayList<String>();
+        this.genes = new ArrayList<BitSet[]>();
+
+        for (int q=0; q<100; q++)
+        {
+            String seq = RandomSequences.randomSeq(random, random.nextInt(3000), (q % 2 == 0) ? "ACGT" : "ACGTacgtN");
+            BitSet[] strands = {new BitSet(), new BitSet()};
+            int totalGenes = random.nextInt(10);
+            for (int g=0; g<totalGenes && seq.length()>0; g++)
+            {
+                int start = random.nextInt(seq.length());
+                strands[random.nextInt(2)].set(start, Math.min(start + 3 * (1 + random.nextInt(100)), seq.length()));
+            }
+            seqs.add(seq);
+            genes.add(strands);
+        }
+    }
+
+    private static int code(char c) {return "ACGT".indexOf(Character.toUpperCase(c));}
+
+    private static void count(String strand, int[] states, int order, long[][] transitionCounts, long[][] emissionCounts)
+    {
+        //states of every position of one strand (-1: skipped), the context of a base are the order preceding bases
+        //(all of them ACGT and not skipped)
+
+        for (int i=0; i<strand.length(); i++)
+        {
+            if (states[i] < 0) continue;
+            if (i > 0 && states[i-1] >= 0) transitionCounts[states[i-1]][states[i]]++;
+            if (code(strand.charAt(i)) < 0 || i < order) continue;
+
+            int context = 0;
+            boolean valid = true;
+            for (int j=i-order; j<i; j++)
+            {
+                valid &= states[j] >= 0 && code(strand.charAt(j)) >= 0;
+                context = (context << 2) | Math.max(code(strand.charAt(j)), 0);
+            }
+            if (valid) emissionCounts[states[i]][(context << 2) | code(strand.charAt(i))]++;
+        }
+    }
+
+    private static int[] states(int n, BitSet coding, BitSet other, boolean reverse)
+    {
+        //state of every position of a strand: N, C1, C2, C3 counted from the start of every coding run,
+        //-1 for positions of a gene on the other strand only
+        int[] states = new int[n];
+        for (int i=0; i<n; i++)
+        {
+            int pos = reverse ? n - 1 - i : i;
+            if (coding.get(pos)) states[i] = (i > 0 && states[i-1] >= CodonHMM.C1) ? CodonHMM.C1 + states[i-1] % 3 : CodonHMM.C1;
+            else states[i] = other.get(pos) ? -1 : CodonHMM.N;
+        }
+        return states;
+    }
+
+    private static void assertTables(CodonHMM expected, CodonHMM model)
+    {
+        for (int s=0; s<4; s++)
+        {
+            assertEquals(expected.logInitial[s], model.logInitial[s], 1e-12);
+            for (int t=0; t<4; t++) assertEquals(expected.logTransition[s][t], model.logTransition[s][t], 1e-12);
+            for (int i=0; i<expected.logEmission[s].length; i++) assertEquals(expected.logEmission[s][i], model.logEmission[s][i], 1e-12);
+            for (int b=0; b<4; b++) assertEquals(expected.logEmission0[s][b], model.logEmission0[s][b], 1e-12);
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the trained model must be built from the transitions and emissions in context counted on the sequence
+     * (+ strand genes) and on its reverse complement (- strand genes)
+     */
+    @Test
+    public void compareCounts()
+    {
+        Random random = new Random(480);
+        for (int q=0; q<seqs.size(); q++)
+        {
+            String seq = seqs.get(q);
+            BitSet[] strands = genes.get(q);
+            int order = random.nextInt(6);
+            int n = seq.length();
+
+            long[][] transitionCounts = new long[4][4];
+            long[][] emissionCounts = new long[4][4 << (2 * order)];
+            count(seq, states(n, strands[0], strands[1], false), order, transitionCounts, emissionCounts);
+            count(Nucleotides.reverseComplement(seq), states(n, strands[1], strands[0], true), order, transitionCounts, emissionCounts);
+
+            assertTables(new CodonHMM(order, transitionCounts, emissionCounts), CodonHMM.train(seq, strands[0], strands[1], order));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * training on the reverse complement w/ mirrored genes on swapped strands must give the same model
+     */
+    @Test
+    public void compareStrands()
+    {
+        Random random = new Random(481);
+        for (int q=0; q<seqs.size(); q++)
+        {
+            String seq = seqs.get(q);
+            BitSet[] strands = genes.get(q);
+            int n = seq.length();
+            int order = random.nextInt(6);
+
+            BitSet[] mirrored = {new BitSet(), new BitSet()};
+            for (int i=0; i<n; i++)
+            {
+                mirrored[0].set(n - 1 - i, strands[1].get(i));
+                mirrored[1].set(n - 1 - i, strands[0].get(i));
+            }
+
+            assertTables(CodonHMM.train(seq, strands[0], strands[1], order), CodonHMM.train(Nucleotides.reverseComplement(seq), mirrored[0], mirrored[1], order));
+        }
+    }
+
+    private static double logP(CodonHMM model, String seq, int[] path)
+    {
+        //log probability of a state path, emissions in context of the order preceding ACGT bases
+        double logP = 0;
+        for (int o=0; o<seq.length(); o++)
+        {
+            logP += (o == 0) ? model.logInitial[path[0]] : model.logTransition[path[o-1]][path[o]];
+
+            int code = code(seq.charAt(o));
+            if (code < 0) continue;
+
+            int context = 0;
+            boolean valid = o >= model.getOrder();
+            for (int j=Math.max(o - model.getOrder(), 0); j<o; j++)
+            {
+                valid &= code(seq.charAt(j)) >= 0;
+                context = (context << 2) | Math.max(code(seq.charAt(j)), 0);
+            }
+            logP += valid ? model.logEmission[path[o]][(context << 2) | code] : model.logEmission0[path[o]][code];
+        }
+        return logP;
+    }
+
+    /**
+     * JUnit unittest:
+     * the decoded path of short sequences must be one of the most likely of all state paths,
+     * the predicted regions must be the coding runs of the path
+     */
+    @Test
+    public void compareDecoding()
+    {
+        Random random = new Random(482);
+        for (int q=0; q<20; q++)
+        {
+            int order = random.nextInt(4);
+            CodonHMM model = CodonHMM.train(seqs.get(q), genes.get(q)[0], genes.get(q)[1], order);
+
+            for (int t=0; t<20; t++)
+            {
+                String seq = RandomSequences.randomSeq(random, 1 + random.nextInt(7), "ACGTacgtN");
+                int n = seq.length();
+
+                double best = Double.NEGATIVE_INFINITY;
+                int[] path = new int[n];
+                for (int p=0; p<(1 << (2 * n)); p++)
+                {
+                    for (int o=0; o<n; o++) path[o] = (p >> (2 * o)) & 3;
+                    best = Math.max(best, logP(model, seq, path));
+                }
+
+                byte[] decoded = model.decode(seq);
+                for (int o=0; o<n; o++) path[o] = decoded[o];
+                assertEquals(seq, best, logP(model, seq, path), 1e-9 * Math.max(1.0, Math.abs(best)));
+
+                ArrayList<int[]> regions = model.predict(seq);
+                int covered = 0;
+                for (int[] region: regions)
+                {
+                    assertTrue(region[0] == 0 || decoded[region[0] - 1] == CodonHMM.N);
+                    assertTrue(region[1] == n || decoded[region[1]] == CodonHMM.N);
+                    for (int o=region[0]; o<region[1]; o++) assertTrue(decoded[o] != CodonHMM.N);
+                    covered += region[1] - region[0];
+                }
+                int coding = 0;
+                for (byte s: decoded) coding += (s != CodonHMM.N) ? 1 : 0;
+                assertEquals(coding, covered);
+            }
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * orders w/ more contexts than supported are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectLargeOrder()
+    {
+        CodonHMM.train("ACGT", new BitSet(), CodonHMM.MAX_ORDER + 1);
+    }
+}
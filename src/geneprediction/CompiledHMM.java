@@ -0,0 +1,166 @@
+package geneprediction;
+
+import geneprediction.State;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+
+public final class CompiledHMM
+{
+    //immutable, array based form of a HMM (see HMM.compile()) used by the decoders
+    //states and emitted symbols are numbered, the probabilities are stored in dense tables
+    //(emission[state][symbol], transition[from][to]) together w/ their logarithms,
+    //observations are encoded once into symbol codes (byte[]) w/ encode()
+    //the last symbol code stands for all symbols that no state can emit (e.g. N in a genome),
+    //it has the emission probability 1 in every state, so it doesn't influence the decoding
+
+    public static final int MAX_SYMBOLS = 127;
+
+    private final String[] stateNames;
+    private final String[] symbols;
+    private final HashMap<String, Integer> symbolIndex = new HashMap<String, Integer>();
+    private final byte[] charIndex = new byte[256];  //symbol code of every single character symbol (ASCII)
+
+    final int totalStates;
+    final int unknown;                  //symbol code of unknown symbols (= number of symbols)
+    final double[] initial, logInitial;
+    final double[][] transition, logTransition;
+    final double[][] emission, logEmission;
+
+    public CompiledHMM(State[] states, double[][] transitionP)
+    {
+        this(namesOf(states), symbolsOf(states), initialOf(states), transitionP, emissionsOf(states, symbolsOf(states)));
+    }
+
+    public CompiledHMM(String[] stateNames, String[] symbols, double[] initial, double[][] transition, double[][] emission)
+    {
+        //emission: emission[state][symbol] probabilities (symbols.length columns)
+
+        if (stateNames.length > 127) throw new IllegalArgumentException("At most 127 states are supported!");
+        if (symbols.length > MAX_SYMBOLS - 1) throw new IllegalArgumentException("At most " + (MAX_SYMBOLS - 1) + " symbols are supported!");
+
+        this.stateNames = stateNames.clone();
+        this.symbols = symbols.clone();
+        this.totalStates = stateNames.length;
+        this.unknown = symbols.length;
+
+        Arrays.fill(charIndex, (byte)unknown);
+        for (int i=0; i<symbols.length; i++)
+        {
+            symbolIndex.put(symbols[i], i);
+            if (symbols[i].length() == 1 && symbols[i].charAt(0) < 256)
+            {
+                char c = symbols[i].charAt(0);
+                charIndex[c] = (byte)i;
+                if (charIndex[Character.toLowerCase(c)] == unknown) charIndex[Character.toLowerCase(c)] = (byte)i;
+            }
+        }
+
+        this.initial = initial.clone();
+        this.transition = new double[totalStates][];
+        this.emission = new double[totalStates][];
+        this.logInitial = new double[totalStates];
+        this.logTransition = new double[totalStates][totalStates];
+        this.logEmission = new double[totalStates][unknown + 1];
+
+        for (int s=0; s<totalStates; s++)
+        {
+            this.transition[s] = transition[s].clone();
+            this.emission[s] = Arrays.copyOf(emission[s], unknown + 1);
+            this.emission[s][unknown] = 1.0;
+
+            logInitial[s] = Math.log(initial[s]);
+            for (int t=0; t<totalStates; t++) logTransition[s][t] = Math.log(transition[s][t]);
+            for (int i=0; i<=unknown; i++) logEmission[s][i] = Math.log(this.emission[s][i]);
+        }
+    }
+
+    private static String[] namesOf(State[] states)
+    {
+        String[] names = new String[states.length];
+        for (int s=0; s<states.length; s++) names[s] = states[s].getName();
+
+        return names;
+    }
+
+    private static String[] symbolsOf(State[] states)
+    {
+        //all symbols emitted by any of the states (in the order they were provided)
+
+        LinkedHashSet<String> symbols = new LinkedHashSet<String>();
+        for (State state: states) symbols.addAll(Arrays.asList(state.getEmissions()));
+
+        return symbols.toArray(new String[0]);
+    }
+
+    private static double[] initialOf(State[] states)
+    {
+        double[] initial = new double[states.length];
+        for (int s=0; s<states.length; s++) initial[s] = states[s].getInitialP();
+
+        return initial;
+    }
+
+    private static double[][] emissionsOf(State[] states, String[] symbols)
+    {
+        double[][] emission = new double[states.length][symbols.length];
+        for (int s=0; s<states.length; s++)
+        {
+            for (int i=0; i<symbols.length; i++) emission[s][i] = states[s].getEmissionProbability(symbols[i]);
+        }
+        return emission;
+    }
+
+    public int getTotalStates() {return totalStates;}
+    public int getTotalSymbols() {return unknown;}
+    public String getStateName(int state) {return stateNames[state];}
+    public String getSymbol(int symbol) {return (symbol == unknown) ? "?" : symbols[symbol];}
+
+    public int getStateIndex(String name) {return Arrays.asList(stateNames).indexOf(name);}
+    public int getSymbolIndex(String symbol) {return symbolIndex.getOrDefault(symbol, unknown);}
+    public int getSymbolIndex(char c) {return (c < 256) ? charIndex[c] : unknown;}
+
+    public double getInitialP(int state) {return initial[state];}
+    public double getTransitionP(int from, int to) {return transition[from][to];}
+    public double getEmissionP(int state, int symbol) {return emission[state][symbol];}
+
+    public HMM toHMM()
+    {
+        //editable HMM w/ the same states and probabilities (e.g. of a trained model)
+
+        State[] states = new State[totalStates];
+        for (int s=0; s<totalStates; s++)
+        {
+            states[s] = new State(stateNames[s], symbols.clone(), Arrays.copyOf(emission[s], unknown), initial[s]);
+        }
+
+        double[][] transitionP = new double[totalStates][];
+        for (int s=0; s<totalStates; s++) transitionP[s] = transition[s].clone();
+
+        return new HMM(states, transitionP);
+    }
+
+    public byte[] encode(CharSequence observedEmissions)
+    {
+        //symbol code of every character of the observations (lower case characters are mapped to upper case symbols)
+
+        byte[] obs = new byte[observedEmissions.length()];
+        for (int i=0; i<obs.length; i++) obs[i] = (byte)getSymbolIndex(observedEmissions.charAt(i));
+
+        return obs;
+    }
+
+    public byte[] encode(String[] observedEmissions)
+    {
+        byte[] obs = new byte[observedEmissions.length];
+        for (int i=0; i<obs.length; i++) obs[i] = (byte)getSymbolIndex(observedEmissions[i]);
+
+        return obs;
+    }
+
+    public void encode(byte[] ascii, int from, int to, byte[] obs, int offset)
+    {
+        //encode ASCII characters (e.g. straight from an input stream buffer) into obs[offset ...]
+        for (int i=from; i<to; i++) obs[offset + i - from] = charIndex[ascii[i] & 0xFF];
+    }
+}
@@ -0,0 +1,163 @@
+package geneprediction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the dense tables and the observation encoding of the <code>CompiledHMM</code> class
+ * against the states of the <code>HMM</code> it was compiled from using the JUnit unittesting framework
+ */
+public class CompiledHMMTest
+{
+    private static final String ALPHABET = "ACGTacgtRY*";
+
+    private ArrayList<HMM> hmms;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //random HMMs w/ states that emit different subsets of single character symbols (incl. lower case symbols),
+        //every 2nd HMM also w/ codon symbols
+        Random random = new Random(42);
+        this.hmms = new ArrayList<HMM>();
+
+        for (int h=0; h<200; h++)
+        {
+            State[] states = new State[1 + random.nextInt(6)];
+            for (int s=0; s<states.length; s++)
+            {
+                LinkedHashSet<String> emissions = new LinkedHashSet<String>();
+                int total = 1 + random.nextInt(6);
+                for (int i=0; i<total; i++)
+                {
+                    if (h % 2 == 0 && random.nextBoolean()) emissions.add(RandomSequences.randomSeq(random, 3, "ACGT"));
+                    else emissions.add(String.valueOf(ALPHABET.charAt(random.nextInt(ALPHABET.length()))));
+                }
+
+                double[] emissionP = new double[emissions.size()];
+                for (int i=0; i<emissionP.length; i++) emissionP[i] = random.nextDouble();
+                states[s] = new State("s" + s, emissions.toArray(new String[0]), emissionP, random.nextDouble());
+            }
+
+            double[][] transitionP = new double[states.length][states.length];
+            for (int s=0; s<states.length; s++)
+            {
+                for (int t=0; t<states.length; t++) transitionP[s][t] = random.nextDouble();
+            }
+            hmms.add(new HMM(states, transitionP));
+        }
+    }
+
+    private static ArrayList<String> symbols(HMM hmm)
+    {
+        //all emitted symbols in the order of their first occurrence
+        LinkedHashSet<String> symbols = new LinkedHashSet<String>();
+        for (int s=0; s<hmm.getTotalStates(); s++) symbols.addAll(Arrays.asList(hmm.getStates()[s].getEmissions()));
+        return new ArrayList<String>(symbols);
+    }
+
+    private static int code(ArrayList<String> symbols, char c)
+    {
+        //symbol code of a character, lower case characters fall back to the upper case symbol
+        int code = symbols.indexOf(String.valueOf(c));
+        if (code < 0) code = symbols.indexOf(String.valueOf(Character.toUpperCase(c)));
+        return (code < 0) ? symbols.size() : code;
+    }
+
+    /**
+     * JUnit unittest:
+     * the state names, symbols and all probabilities must be those of the HMM,
+     * symbols that a state doesn't emit have the probability 0, the unknown symbol has the probability 1
+     */
+    @Test
+    public void compareTables()
+    {
+        for (HMM hmm: hmms)
+        {
+            CompiledHMM model = hmm.compile();
+            ArrayList<String> symbols = symbols(hmm);
+            State[] states = hmm.getStates();
+
+            assertEquals(hmm.getTotalStates(), model.getTotalStates());
+            assertEquals(symbols.size(), model.getTotalSymbols());
+            for (int i=0; i<symbols.size(); i++)
+            {
+                assertEquals(symbols.get(i), model.getSymbol(i));
+                assertEquals(i, model.getSymbolIndex(symbols.get(i)));
+            }
+            assertEquals(symbols.size(), model.getSymbolIndex("NNN"));
+
+            for (int s=0; s<model.getTotalStates(); s++)
+            {
+                assertEquals(states[s].getName(), model.getStateName(s));
+                assertEquals(s, model.getStateIndex(states[s].getName()));
+                assertEquals(states[s].getInitialP(), model.getInitialP(s), 0.0);
+                for (int t=0; t<model.getTotalStates(); t++) assertEquals(hmm.getTransitionProbabilities()[s][t], model.getTransitionP(s, t), 0.0);
+
+                for (int i=0; i<symbols.size(); i++) assertEquals(states[s].getEmissionProbability(symbols.get(i)), model.getEmissionP(s, i), 0.0);
+                assertEquals(1.0, model.getEmissionP(s, symbols.size()), 0.0);
+            }
+
+            //the editable copy compiles to the same tables
+            CompiledHMM copy = model.toHMM().compile();
+            for (int s=0; s<model.getTotalStates(); s++)
+            {
+                for (int i=0; i<=symbols.size(); i++) assertEquals(model.getEmissionP(s, i), copy.getEmissionP(s, i), 0.0);
+            }
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * characters, symbol strings and ASCII bytes must be encoded into the index of their symbol
+     * (lower case characters as their upper case symbol unless they are symbols themselves, all others as unknown)
+     */
+    @Test
+    public void compareEncoding()
+    {
+        Random random = new Random(420);
+        for (HMM hmm: hmms)
+        {
+            CompiledHMM model = hmm.compile();
+            ArrayList<String> symbols = symbols(hmm);
+
+            String seq = RandomSequences.randomSeq(random, random.nextInt(500), ALPHABET + "Nn\u00e9");
+            byte[] expected = new byte[seq.length()];
+            for (int i=0; i<seq.length(); i++) expected[i] = (byte)code(symbols, seq.charAt(i));
+            assertArrayEquals(seq, expected, model.encode(seq));
+
+            String[] tokens = new String[seq.length()];
+            byte[] tokenCodes = new byte[seq.length()];
+            for (int i=0; i<tokens.length; i++)
+            {
+                tokens[i] = random.nextBoolean() ? symbols.get(random.nextInt(symbols.size())) : RandomSequences.randomSeq(random, 3, "ACGT");
+                tokenCodes[i] = (byte)(symbols.contains(tokens[i]) ? symbols.indexOf(tokens[i]) : symbols.size());
+            }
+            assertArrayEquals(tokenCodes, model.encode(tokens));
+
+            //ASCII bytes (w/o the non-ASCII character) encoded into the middle of an array
+            String ascii = seq.replace('\u00e9', 'N');
+            byte[] obs = new byte[ascii.length() + 10];
+            model.encode(ascii.getBytes(), 0, ascii.length(), obs, 5);
+            assertArrayEquals(model.encode(ascii), Arrays.copyOfRange(obs, 5, 5 + ascii.length()));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * more symbols than the byte observations can encode (incl. the unknown symbol) are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectTooManySymbols()
+    {
+        String[] symbols = new String[CompiledHMM.MAX_SYMBOLS];
+        for (int i=0; i<symbols.length; i++) symbols[i] = "s" + i;
+        new CompiledHMM(new String[]{"a"}, symbols, new double[]{1.0}, new double[][]{{1.0}}, new double[][]{new double[symbols.length]});
+    }
+}
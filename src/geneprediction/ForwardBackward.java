@@ -0,0 +1,344 @@
+package geneprediction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import geneprediction.CompiledHMM;
+
+public class ForwardBackward
+{
+    //forward-backward algorithm: posterior probability of every state at every position
+    //(confidence of the Viterbi path, e.g. P(coding) per base for the gene boundaries)
+    //scaled arithmetic on the probability tables of a CompiledHMM: every column of the forward (alpha) and backward (beta)
+    //variables is normalized to a sum of 1, the log-likelihood is the sum of the logs of the forward scaling factors
+    //the posteriors of a position are alpha * beta normalized to a sum of 1 (the scaling factors cancel out),
+    //so both passes are independent and run concurrently
+    //like CheckpointViterbi, only a checkpoint column every ~sqrt(n) positions is kept (alpha at the start,
+    //beta at the end of every segment), the posteriors are computed segment by segment in parallel
+    //(recomputing alpha of the segment) and written to an array or to a file (positional writes, no n * states buffer)
+
+    private CompiledHMM model;
+    private int totalStates;
+    private int nThreads;
+
+    private interface SegmentWriter
+    {
+        //posteriors of the positions from ... from+length-1 (length * states values)
+        void write(int from, double[] posteriors, int length);
+    }
+
+    public ForwardBackward(HMM hmm)
+    {
+        this(hmm.compile());
+    }
+
+    public ForwardBackward(CompiledHMM model)
+    {
+        this(model, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ForwardBackward(CompiledHMM model, int nThreads)
+    {
+        this.model = model;
+        this.totalStates = model.totalStates;
+        this.nThreads = Math.max(nThreads, 1);
+    }
+
+    public CompiledHMM getModel() {return model;}
+
+    public double logLikelihood(byte[] obs)
+    {
+        //log P(observations | model) (forward pass only)
+        return forward(obs, null, 1);
+    }
+
+    public double[] posteriors(byte[] obs)
+    {
+        //posterior probabilities of every position and state (posteriors[o * states + s])
+        //limited to n * states < 2^31 values, use posteriors(obs, state) or posteriors(obs, file) for longer sequences
+
+        int S = totalStates;
+        if ((long)obs.length * S > Integer.MAX_VALUE - 8)
+        {
+            throw new IllegalArgumentException("Too many positions for a single array (" + obs.length + " * " + S + " states), use posteriors(obs, state) or posteriors(obs, file)!");
+        }
+        double[] posteriors = new double[obs.length * S];
+        run(obs, (from, segment, length) -> System.arraycopy(segment, 0, posteriors, from * S, length * S));
+
+        return posteriors;
+    }
+
+    public double[] posteriors(byte[] obs, int state)
+    {
+        //posterior probabilities of a single state (e.g. the coding state) at every position
+
+        int S = totalStates;
+        if (state < 0 || state >= S) throw new IllegalArgumentException("Unknown state index " + state + "!");
+        double[] posteriors = new double[obs.length];
+        run(obs, (from, segment, length) ->
+        {
+            for (int i=0; i<length; i++) posteriors[from + i] = segment[i * S + state];
+        });
+
+        return posteriors;
+    }
+
+    public void posteriors(byte[] obs, Path file) throws IOException
+    {
+        //write the posteriors to a binary file: one row of states doubles (big-endian) per position
+        //the segments are written independently at their offset in the file, so only their buffers are in memory
+
+        int S = totalStates;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            run(obs, (from, segment, length) ->
+            {
+                ByteBuffer buffer = ByteBuffer.allocate(length * S * 8);
+                buffer.asDoubleBuffer().put(segment, 0, length * S);
+
+                try
+                {
+                    long position = (long)from * S * 8;
+                    while (buffer.hasRemaining()) position += channel.write(buffer, position);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    private double run(byte[] obs, SegmentWriter writer)
+    {
+        //forward and backward pass (concurrently), then the posteriors segment by segment (in parallel)
+        //returns the log-likelihood
+
+        int n = obs.length;
+        int S = totalStates;
+        if (n == 0) return 0.0;
+
+        int segLength = Math.max((int)Math.ceil(Math.sqrt(n)), 1);
+        int totalSegments = (n + segLength - 1) / segLength;
+        double[][] alphaCheckpoints = new double[totalSegments][S];
+        double[][] betaCheckpoints = new double[totalSegments][S];
+        double logLikelihood;
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(nThreads);
+        try
+        {
+            Future<Double> forward = threadPool.submit(() -> forward(obs, alphaCheckpoints, segLength));
+            Future<Void> backward = threadPool.submit(() -> backward(obs, betaCheckpoints, segLength));
+            logLikelihood = forward.get();
+            backward.get();
+
+            ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int j=0; j<totalSegments; j++)
+            {
+                int segment = j;
+                Callable<Void> job = () ->
+                {
+                    int from = segment * segLength;
+                    int to = Math.min(from + segLength, n);
+                    double[] posteriors = new double[(to - from) * S];
+
+                    segment(obs, from, to, alphaCheckpoints[segment], betaCheckpoints[segment], posteriors);
+                    writer.write(from, posteriors, to - from);
+                    return null;
+                };
+                futures.add(threadPool.submit(job));
+            }
+            for (Future<Void> future: futures) future.get();
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException("Forward-backward algorithm was interrupted!", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof UncheckedIOException) throw (UncheckedIOException)e.getCause();
+            throw new RuntimeException("Forward-backward algorithm failed!", e);
+        }
+        finally
+        {
+            threadPool.shutdown();
+        }
+
+        return logLikelihood;
+    }
+
+    private double forward(byte[] obs, double[][] checkpoints, int segLength)
+    {
+        //scaled forward pass, stores alpha at the start of every segment (if checkpoints != null)
+        //returns the log-likelihood
+
+        int n = obs.length;
+        int S = totalStates;
+        if (n == 0) return 0.0;
+
+        double[] prev = new double[S];
+        double[] curr = new double[S];
+        double logLikelihood = 0.0;
+
+        initialColumn(model, prev, obs[0], -1);
+        logLikelihood += normalize(prev);
+        if (checkpoints != null) System.arraycopy(prev, 0, checkpoints[0], 0, S);
+
+        for (int o=1; o<n; o++)
+        {
+            forwardColumn(model, prev, curr, obs[o], -1);
+            logLikelihood += normalize(curr);
+            if (checkpoints != null && o % segLength == 0) System.arraycopy(curr, 0, checkpoints[o / segLength], 0, S);
+
+            double[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+        return logLikelihood;
+    }
+
+    private Void backward(byte[] obs, double[][] checkpoints, int segLength)
+    {
+        //scaled backward pass, stores beta at the end (last position) of every segment
+
+        int n = obs.length;
+        int S = totalStates;
+        double[] next = new double[S];
+        double[] curr = new double[S];
+
+        for (int s=0; s<S; s++) next[s] = 1.0 / S;
+        System.arraycopy(next, 0, checkpoints[(n - 1) / segLength], 0, S);
+
+        for (int o=n-2; o>=0; o--)
+        {
+            backwardColumn(model, next, curr, obs[o+1], -1);
+            normalize(curr);
+            if ((o + 1) % segLength == 0) System.arraycopy(curr, 0, checkpoints[o / segLength], 0, S);
+
+            double[] tmp = next;
+            next = curr;
+            curr = tmp;
+        }
+        return null;
+    }
+
+    private void segment(byte[] obs, int from, int to, double[] alphaStart, double[] betaEnd, double[] posteriors)
+    {
+        //posteriors of the positions from ... to-1: alpha is recomputed from the checkpoint (into the posteriors array),
+        //then multiplied w/ beta while going backwards
+
+        int S = totalStates;
+        double[] curr = new double[S];
+        double[] next = new double[S];
+
+        System.arraycopy(alphaStart, 0, posteriors, 0, S);
+        for (int o=from+1; o<to; o++)
+        {
+            System.arraycopy(posteriors, (o - from - 1) * S, curr, 0, S);
+            forwardColumn(model, curr, next, obs[o], -1);
+            normalize(next);
+            System.arraycopy(next, 0, posteriors, (o - from) * S, S);
+        }
+
+        System.arraycopy(betaEnd, 0, next, 0, S);
+        for (int o=to-1; o>=from; o--)
+        {
+            int offset = (o - from) * S;
+            double sum = 0.0;
+            for (int s=0; s<S; s++)
+            {
+                posteriors[offset + s] *= next[s];
+                sum += posteriors[offset + s];
+            }
+            if (sum > 0.0)
+            {
+                for (int s=0; s<S; s++) posteriors[offset + s] /= sum;
+            }
+
+            if (o > from)
+            {
+                backwardColumn(model, next, curr, obs[o], -1);
+                normalize(curr);
+
+                double[] tmp = next;
+                next = curr;
+                curr = tmp;
+            }
+        }
+    }
+
+    //column kernels (shared w/ BaumWelch), clamp: the only state allowed at the position (-1: all states)
+
+    static void initialColumn(CompiledHMM model, double[] curr, int symbol, int clamp)
+    {
+        //curr[s] = P(s) * P(symbol | s)
+
+        for (int s=0; s<model.totalStates; s++) curr[s] = (clamp >= 0 && clamp != s) ? 0.0 : model.initial[s] * model.emission[s][symbol];
+    }
+
+    static void forwardColumn(CompiledHMM model, double[] prev, double[] curr, int symbol, int clamp)
+    {
+        //curr[s] = sum_i prev[i] * P(i -> s) * P(symbol | s)
+
+        int S = model.totalStates;
+        double[][] transition = model.transition;
+        double[][] emission = model.emission;
+
+        for (int s=0; s<S; s++)
+        {
+            if (clamp >= 0 && clamp != s)
+            {
+                curr[s] = 0.0;
+                continue;
+            }
+            double sum = 0.0;
+            for (int i=0; i<S; i++) sum += prev[i] * transition[i][s];
+            curr[s] = sum * emission[s][symbol];
+        }
+    }
+
+    static void backwardColumn(CompiledHMM model, double[] next, double[] curr, int symbol, int clamp)
+    {
+        //curr[i] = sum_s P(i -> s) * P(symbol | s) * next[s] (symbol, clamp: observation and label of the next position)
+
+        int S = model.totalStates;
+        double[][] transition = model.transition;
+        double[][] emission = model.emission;
+
+        for (int i=0; i<S; i++)
+        {
+            double sum = 0.0;
+            for (int s=0; s<S; s++)
+            {
+                if (clamp < 0 || clamp == s) sum += transition[i][s] * emission[s][symbol] * next[s];
+            }
+            curr[i] = sum;
+        }
+    }
+
+    static double normalize(double[] column)
+    {
+        //scale the column to a sum of 1, returns the log of the scaling factor
+
+        double sum = 0.0;
+        for (double v: column) sum += v;
+        if (sum == 0.0) return Double.NEGATIVE_INFINITY;
+
+        for (int s=0; s<column.length; s++) column[s] /= sum;
+        return Math.log(sum);
+    }
+}
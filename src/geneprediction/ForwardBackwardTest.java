@@ -0,0 +1,246 @@
+package geneprediction;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the scaled forward-backward posteriors and log-likelihoods of the <code>ForwardBackward</code> class
+ * against the sum over all state paths (short observations) and an unscaled log space table (long observations)
+ * using the JUnit unittesting framework
+ */
+public class ForwardBackwardTest
+{
+    private static final String[] SYMBOLS = {"A", "C", "G", "T"};
+
+    private ArrayList<CompiledHMM> models;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //random models w/ 1 to 4 states, some transitions are impossible (every state can reach state 0)
+        Random random = new Random(46);
+        this.models = new ArrayList<CompiledHMM>();
+
+        for (int m=0; m<200; m++) models.add(randomModel(random, 1 + random.nextInt(4)));
+    }
+
+    private static CompiledHMM randomModel(Random random, int totalStates)
+    {
+        String[] names = new String[totalStates];
+        double[] initial = randomDistribution(random, totalStates, false);
+        double[][] transition = new double[totalStates][];
+        double[][] emission = new double[totalStates][];
+        for (int s=0; s<totalStates; s++)
+        {
+            names[s] = "s" + s;
+            transition[s] = randomDistribution(random, totalStates, true);
+            emission[s] = randomDistribution(random, SYMBOLS.length, false);
+        }
+        return new CompiledHMM(names, SYMBOLS, initial, transition, emission);
+    }
+
+    private static double[] randomDistribution(Random random, int size, boolean zeros)
+    {
+        //every 5th probability (but the first) is 0 if zeros are allowed
+        double[] p = new double[size];
+        double sum = 0;
+        for (int i=0; i<size; i++)
+        {
+            p[i] = (zeros && random.nextInt(5) == 0 && i > 0) ? 0.0 : 0.05 + random.nextDouble();
+            sum += p[i];
+        }
+        for (int i=0; i<size; i++) p[i] /= sum;
+
+        return p;
+    }
+
+    private static double[] bruteForce(CompiledHMM model, byte[] obs)
+    {
+        //sum of the probabilities of all states^n state paths (last entry) and the posteriors (P(state at o) / sum)
+        int S = model.getTotalStates();
+        int n = obs.length;
+        int total = (int)Math.pow(S, n);
+        double[] posteriors = new double[n * S + 1];
+        byte[] path = new byte[n];
+        for (int p=0; p<total; p++)
+        {
+            double pathP = 1.0;
+            for (int o=0, rest=p; o<n; o++, rest/=S)
+            {
+                path[o] = (byte)(rest % S);
+                pathP *= (o == 0) ? model.getInitialP(path[0]) : model.getTransitionP(path[o-1], path[o]);
+                pathP *= model.getEmissionP(path[o], obs[o]);
+            }
+            for (int o=0; o<n; o++) posteriors[o * S + path[o]] += pathP;
+            posteriors[n * S] += pathP;
+        }
+        for (int i=0; i<n*S; i++) posteriors[i] /= posteriors[n * S];
+
+        return posteriors;
+    }
+
+    private static double logSum(double a, double b)
+    {
+        if (a == Double.NEGATIVE_INFINITY) return b;
+        if (b == Double.NEGATIVE_INFINITY) return a;
+        return Math.max(a, b) + Math.log1p(Math.exp(-Math.abs(a - b)));
+    }
+
+    private static double[] table(CompiledHMM model, byte[] obs)
+    {
+        //unscaled forward and backward tables in log space, the posteriors and the log-likelihood (last entry)
+        int S = model.getTotalStates();
+        int n = obs.length;
+        double[][] alpha = new double[n][S];
+        double[][] beta = new double[n][S];
+
+        for (int s=0; s<S; s++) alpha[0][s] = Math.log(model.getInitialP(s)) + Math.log(model.getEmissionP(s, obs[0]));
+        for (int o=1; o<n; o++)
+        {
+            for (int s=0; s<S; s++)
+            {
+                alpha[o][s] = Double.NEGATIVE_INFINITY;
+                for (int i=0; i<S; i++) alpha[o][s] = logSum(alpha[o][s], alpha[o-1][i] + Math.log(model.getTransitionP(i, s)));
+                alpha[o][s] += Math.log(model.getEmissionP(s, obs[o]));
+            }
+        }
+        for (int o=n-2; o>=0; o--)
+        {
+            for (int i=0; i<S; i++)
+            {
+                beta[o][i] = Double.NEGATIVE_INFINITY;
+                for (int s=0; s<S; s++) beta[o][i] = logSum(beta[o][i], Math.log(model.getTransitionP(i, s)) + Math.log(model.getEmissionP(s, obs[o+1])) + beta[o+1][s]);
+            }
+        }
+
+        double logLikelihood = Double.NEGATIVE_INFINITY;
+        for (int s=0; s<S; s++) logLikelihood = logSum(logLikelihood, alpha[n-1][s]);
+
+        double[] posteriors = new double[n * S + 1];
+        for (int o=0; o<n; o++)
+        {
+            for (int s=0; s<S; s++) posteriors[o * S + s] = Math.exp(alpha[o][s] + beta[o][s] - logLikelihood);
+        }
+        posteriors[n * S] = logLikelihood;
+
+        return posteriors;
+    }
+
+    private static void assertPosteriors(double[] expected, double[] posteriors, double delta)
+    {
+        //all but the last entry of expected (the (log-)likelihood)
+        assertEquals(expected.length - 1, posteriors.length);
+        for (int i=0; i<posteriors.length; i++) assertEquals(expected[i], posteriors[i], delta);
+    }
+
+    /**
+     * JUnit unittest:
+     * the posteriors and the likelihood of short observations (incl. unknown symbols) must equal the sums over all state paths
+     */
+    @Test
+    public void compareShortObservations()
+    {
+        Random random = new Random(460);
+        for (CompiledHMM model: models)
+        {
+            ForwardBackward forwardBackward = new ForwardBackward(model, 1 + random.nextInt(4));
+            for (int q=0; q<5; q++)
+            {
+                byte[] obs = model.encode(RandomSequences.randomSeq(random, 1 + random.nextInt(7), "ACGTN"));
+                double[] expected = bruteForce(model, obs);
+
+                assertPosteriors(expected, forwardBackward.posteriors(obs), 1e-9);
+                double logLikelihood = Math.log(expected[expected.length - 1]);
+                assertEquals(logLikelihood, forwardBackward.logLikelihood(obs), 1e-9 * Math.max(1.0, Math.abs(logLikelihood)));
+            }
+        }
+        assertEquals(0, new ForwardBackward(models.get(0)).posteriors(new byte[0]).length);
+        assertEquals(0.0, new ForwardBackward(models.get(0)).logLikelihood(new byte[0]), 0.0);
+    }
+
+    /**
+     * JUnit unittest:
+     * the posteriors and the log-likelihood of long observations (many segments, far below the smallest double
+     * as a probability) must equal the log space tables, whatever the number of threads
+     */
+    @Test
+    public void compareLongObservations()
+    {
+        Random random = new Random(461);
+        for (int m=0; m<20; m++)
+        {
+            CompiledHMM model = models.get(m);
+            byte[] obs = model.encode(RandomSequences.randomSeq(random, 1000 + random.nextInt(10000), "ACGTN"));
+            double[] expected = table(model, obs);
+
+            for (int nThreads: new int[]{1, 2, 8})
+            {
+                ForwardBackward forwardBackward = new ForwardBackward(model, nThreads);
+                //the log space table loses precision in exp(alpha + beta - logLikelihood) w/ |logLikelihood| ~ 10^4
+                assertPosteriors(expected, forwardBackward.posteriors(obs), 1e-6);
+                double logLikelihood = expected[expected.length - 1];
+                assertEquals(logLikelihood, forwardBackward.logLikelihood(obs), 1e-9 * Math.abs(logLikelihood));
+            }
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the posteriors of a single state and the posteriors written to a file must equal the posteriors array
+     */
+    @Test
+    public void compareOutputs() throws IOException
+    {
+        Random random = new Random(462);
+        CompiledHMM model = models.get(3);
+        int S = model.getTotalStates();
+        byte[] obs = model.encode(RandomSequences.randomSeq(random, 5000, "ACGT"));
+        ForwardBackward forwardBackward = new ForwardBackward(model, 4);
+        double[] posteriors = forwardBackward.posteriors(obs);
+
+        for (int s=0; s<S; s++)
+        {
+            double[] expected = new double[obs.length];
+            for (int o=0; o<obs.length; o++) expected[o] = posteriors[o * S + s];
+            assertArrayEquals(expected, forwardBackward.posteriors(obs, s), 0.0);
+        }
+
+        File file = File.createTempFile("posteriors", ".bin");
+        file.deleteOnExit();
+        forwardBackward.posteriors(obs, file.toPath());
+        assertEquals(8L * posteriors.length, file.length());
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file)))
+        {
+            for (int i=0; i<posteriors.length; i++) assertEquals(posteriors[i], in.readDouble(), 0.0);
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * more posteriors than a single array can hold are rejected (before any work is done)
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectTooManyPosteriors()
+    {
+        CompiledHMM model = randomModel(new Random(463), 127);
+        new ForwardBackward(model).posteriors(new byte[Integer.MAX_VALUE / 127 + 1]);
+    }
+
+    /**
+     * JUnit unittest:
+     * posteriors of an unknown state are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectUnknownState()
+    {
+        new ForwardBackward(models.get(0)).posteriors(new byte[10], models.get(0).getTotalStates());
+    }
+}
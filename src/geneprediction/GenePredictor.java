@@ -3,8 +3,20 @@ package geneprediction;
 import geneprediction.*;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.BitSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import stringsearch.Nucleotides;
+import stringsearch.PackedSequence;
 
 public class GenePredictor
 {
@@ -12,56 +24,91 @@ public class GenePredictor
     uses a HMM to estimate coding sequences (cds) and non-coding sequences on a sample genetic sequence.
     requires input sequence(s) to calculate the HMM parameters*/
     
-    private String sampleSeq;
-    private String trainingSeq;
+    private PackedSequence sampleSeq;
+    private ArrayList<String> sampleNames;
+    private int[] sampleStarts;
+    private SeqDataParser dataParser;
     private BitSet cdsSeq;
     private HMM hmm;
+    private CodonHMM[] codonModels = new CodonHMM[CodonHMM.MAX_ORDER + 1];  //trained on demand, one per order
     private int totalGenes;
 
+    public static class Gene
+    {
+        public final String record;    //name of the record (contig, plasmid) the gene was predicted on
+        public final int start;        //0-based start on the forward strand of the record
+        public final int end;          //end (exclusive) on the forward strand of the record
+        public final boolean reverse;  //gene was predicted on the reverse strand
+
+        Gene(String record, int start, int end, boolean reverse)
+        {
+            this.record = record;
+            this.start = start;
+            this.end = end;
+            this.reverse = reverse;
+        }
+
+        @Override
+        public String toString()
+        {
+            //tab separated: record, start, end (1-based, inclusive like the NCBI feature tables), strand
+            return record + "\t" + (start + 1) + "\t" + end + "\t" + (reverse ? "-" : "+");
+        }
+    }
+
     public GenePredictor(String trainingOrgId, String sampleOrgId, String saveDir)
     {   
         SeqDataParser dataParser = new SeqDataParser(trainingOrgId, sampleOrgId, saveDir);
         this.sampleSeq = dataParser.sampleSeq;
-        this.hmm = createHMM(dataParser.trainingSeq, dataParser.cdsSeq, dataParser.totalGenes);
+        this.sampleNames = dataParser.sampleNames;
+        this.sampleStarts = dataParser.sampleStarts;
+        this.dataParser = dataParser;
+        this.cdsSeq = dataParser.cdsSeq;
+
+        //count the bases of the coding and non-coding regions straight from the gzipped training genome
+        try
+        {
+            TrainingStatistics stats = TrainingStatistics.count(dataParser.trainingFile, dataParser.cdsSeq, Runtime.getRuntime().availableProcessors());
+            this.hmm = createHMM(stats, dataParser.totalGenes);
+        }
+        catch (IOException ex)
+        {
+            System.out.println(ex);
+        }
 
     }
 
-    private double[][] calcEmissionProbabilities(HashMap<Character, Integer> emissions, String trainingSeq, BitSet cdsSeq)
+    GenePredictor(HMM hmm, CodonHMM... codonModels)
     {
-        //calculate the emission probabilites of every state of the HMM
+        //predictor w/ given models and w/o training and sample data (use the methods that take a sequence),
+        //predictCodingRegions() only works for the orders of the given codon models
+        this.hmm = hmm;
+        for (CodonHMM codonModel: codonModels) this.codonModels[codonModel.getOrder()] = codonModel;
+    }
 
-        double[][] emissionP = new double[2][4];
-        int totalCoding = 0;
-        int totalNonCoding = 0;
+    private double[][] calcEmissionProbabilities(char[] emissions, TrainingStatistics stats)
+    {
+        //calculate the emission probabilites of every state of the HMM from the base counts of the training sequence
 
-        for (int i=0; i<trainingSeq.length(); i++)
-        {
-            char c = trainingSeq.charAt(i);
+        double[][] emissionP = new double[2][emissions.length];
+        long totalCoding = stats.getTotal(TrainingStatistics.CODING);
+        long totalNonCoding = stats.getTotal(TrainingStatistics.NON_CODING);
 
-            if (cdsSeq.get(i)) //check if bit at current index is set to "true" (meaning its part of a cds)
-            {
-                totalCoding++;
-                emissionP[0][emissions.get(c)]++;
-            }
-            else
-            {
-                totalNonCoding++;
-                emissionP[1][emissions.get(c)]++;
-            }
+        for (int i=0; i<emissions.length; i++)
+        {
+            emissionP[0][i] = (double)stats.getCount(TrainingStatistics.CODING, emissions[i]) / totalCoding;
+            emissionP[1][i] = (double)stats.getCount(TrainingStatistics.NON_CODING, emissions[i]) / totalNonCoding;
         }
 
-        for (int i=0; i<emissionP[0].length; i++) emissionP[0][i] /= totalCoding;
-        for (int i=0; i<emissionP[1].length; i++) emissionP[1][i] /= totalNonCoding;
-
         return emissionP;
     }
 
-    private double[][] calcTransitionProbabilities(String trainingSeq, int totalGenes)
+    private double[][] calcTransitionProbabilities(long trainingSeqLength, int totalGenes)
     {
         //calculate the transition probabilites between every state of the HMM
         
         double[][] transitionP = new double[2][2];
-        double transitionStateProb = (double)totalGenes / trainingSeq.length();
+        double transitionStateProb = (double)totalGenes / trainingSeqLength;
         double sameStateProb = 1 - transitionStateProb;
 
         transitionP[0][0] = sameStateProb;
@@ -72,33 +119,148 @@ public class GenePredictor
         return transitionP;
     }
 
-    private HMM createHMM(String trainingSeq, BitSet cdsSeq, int totalGenes)
+    private HMM createHMM(TrainingStatistics stats, int totalGenes)
     {
         //create the HMM
 
         char[] emissions = {'A', 'T', 'G', 'C'};
-        HashMap<Character, Integer> emissionsLookup = new HashMap<Character, Integer>();
-
-        for (int i=0; i<emissions.length; i++) emissionsLookup.put(emissions[i], i);
-
-        double[][] emissionP = calcEmissionProbabilities(emissionsLookup, trainingSeq, cdsSeq);
+        double[][] emissionP = calcEmissionProbabilities(emissions, stats);
 
         State[] states = {new State("C", emissions, emissionP[0], 0.0),
                           new State("N", emissions, emissionP[1], 1.0)};
         
-        double[][] transitionP = calcTransitionProbabilities(trainingSeq, totalGenes);
+        double[][] transitionP = calcTransitionProbabilities(stats.getLength(), totalGenes);
         
         return new HMM(states, transitionP);
     }
 
+    public void trainHMM(int nThreads, CharSequence... sequences)
+    {
+        //refine the HMM w/ Baum-Welch training on unannotated sequences (e.g. the sample genome itself)
+        this.hmm = new BaumWelch(nThreads).train(this.hmm, sequences);
+    }
+
+    public ArrayList<int[]> predictCodingRegions(int order) {return predictCodingRegions(this.sampleSeq, order);}
+
+    public ArrayList<int[]> predictCodingRegions(CharSequence sampleSeq, int order)
+    {
+        //predict the coding regions {start, end (exclusive), 0-based} of the + strand w/ the codon position model (see CodonHMM)
+        //and emissions that depend on the previous order bases (e.g. order 5: hexamer statistics)
+        return getCodonModel(order).predict(sampleSeq);
+    }
+
+    synchronized CodonHMM getCodonModel(int order)
+    {
+        //the codon model of an order is trained once (counting the whole training genome) and reused for every sequence
+
+        if (order < 0 || order > CodonHMM.MAX_ORDER) throw new IllegalArgumentException("The order must be between 0 and " + CodonHMM.MAX_ORDER + "!");
+        if (codonModels[order] == null && dataParser == null) throw new IllegalStateException("No codon model of order " + order + " and no training data to train it!");
+        if (codonModels[order] == null) codonModels[order] = CodonHMM.train(dataParser.getTrainingSeq(), dataParser.forwardCdsSeq, dataParser.reverseCdsSeq, order);
+
+        return codonModels[order];
+    }
+
     public String predictCDS() {return predictCDS(this.sampleSeq);}
 
-    public String predictCDS(String sampleSeq)
+    public String predictCDS(CharSequence sampleSeq)
     {
         //run the Viterbi algorithm using the sample sequence as observed emissions
         return new Viterbi(this.hmm).calcBestStatePath(sampleSeq);
     }
 
+    public long predictCDS(Reader sampleSeq, StreamingViterbi.SegmentSink sink) throws IOException
+    {
+        //stream the sample sequence (raw or fasta) through the Viterbi algorithm, the predicted segments
+        //(start, end, state index) are reported as soon as they are known, so the sequence never has to be in memory
+        //as a whole; every fasta record is decoded on its own (see StreamingViterbi.SegmentSink.record())
+        return new StreamingViterbi(this.hmm).decode(sampleSeq, sink);
+    }
+
+    public ArrayList<Gene> predictGenes(int nThreads) {return predictGenes(this.sampleNames, this.sampleSeq, this.sampleStarts, nThreads);}
+
+    public ArrayList<Gene> predictGenes(ArrayList<String> names, CharSequence seq, int[] starts, int nThreads)
+    {
+        //predict the genes of every record (seq[starts[r] ... starts[r+1]-1]) on both strands
+        //every record and strand is decoded as an independent job of a thread pool, the longest records are submitted
+        //first (so a long chromosome doesn't start last while the short contigs keep the other threads busy);
+        //a single record is decoded by one thread per strand, so one long record uses at most two threads
+        //the genes are returned sorted by record, start position and strand
+
+        CompiledHMM model = hmm.compile();
+        int coding = model.getStateIndex("C");
+
+        int totalRecords = names.size();
+        Integer[] order = new Integer[totalRecords];
+        for (int r=0; r<totalRecords; r++) order[r] = r;
+        Arrays.sort(order, Comparator.<Integer>comparingInt(r -> starts[r] - starts[r + 1]));
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(Math.max(nThreads, 1));
+        ArrayList<Future<ArrayList<Gene>>> futures = new ArrayList<Future<ArrayList<Gene>>>();
+        for (int i=0; i<2 * totalRecords; i++) futures.add(null);
+
+        for (int r: order)
+        {
+            String name = names.get(r);
+            int from = starts[r];
+            int to = starts[r + 1];
+            Callable<ArrayList<Gene>> forward = () -> decodeStrand(model, coding, name, seq, from, to, false);
+            Callable<ArrayList<Gene>> reverse = () -> decodeStrand(model, coding, name, seq, from, to, true);
+            futures.set(2 * r, threadPool.submit(forward));
+            futures.set(2 * r + 1, threadPool.submit(reverse));
+        }
+
+        ArrayList<Gene> genes = new ArrayList<Gene>();
+        try
+        {
+            //the results are collected in record order, so sorting by start position within each record is sufficient
+            for (int r=0; r<totalRecords; r++)
+            {
+                ArrayList<Gene> recordGenes = futures.get(2 * r).get();
+                recordGenes.addAll(futures.get(2 * r + 1).get());
+                recordGenes.sort(Comparator.<Gene>comparingInt(g -> g.start).thenComparing(g -> g.reverse));
+                genes.addAll(recordGenes);
+            }
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            throw new RuntimeException("Gene prediction failed!", e);
+        }
+        finally
+        {
+            threadPool.shutdown();
+        }
+
+        return genes;
+    }
+
+    private static ArrayList<Gene> decodeStrand(CompiledHMM model, int coding, String name, CharSequence seq, int from, int to, boolean reverse)
+    {
+        //decode one strand of the record seq[from ... to-1] (the reverse strand is read backwards w/ complemented bases,
+        //w/o a copy) and convert the coding segments to forward strand coordinates of the record
+
+        int n = to - from;
+        ArrayList<Gene> genes = new ArrayList<Gene>();
+        StreamingViterbi viterbi = new StreamingViterbi(model, Math.max(Math.min(n, 1 << 20), 2));
+
+        viterbi.begin((start, end, state) ->
+        {
+            if (state != coding) return true;
+
+            if (reverse) genes.add(new Gene(name, n - (int)end, n - (int)start, true));
+            else genes.add(new Gene(name, (int)start, (int)end, false));
+            return true;
+        });
+
+        for (int i=0; i<n; i++)
+        {
+            char c = reverse ? Nucleotides.complement(seq.charAt(to - 1 - i)) : seq.charAt(from + i);
+            viterbi.add(model.getSymbolIndex(c));
+        }
+        viterbi.end();
+
+        return genes;
+    }
+
     public static void main(String[] args)
     {
         String trainingOrgId = "GCF_000005845.2_ASM584v2"; //ncbi refseq ID + "_" + strain name
@@ -0,0 +1,164 @@
+package geneprediction;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import stringsearch.Nucleotides;
+
+/**
+ * This class tests the multi-record, dual-strand gene prediction of the <code>GenePredictor</code> class
+ * against a Viterbi decoding of every record and its reverse complement using the JUnit unittesting framework
+ */
+public class GenePredictorTest
+{
+    private ArrayList<HMM> hmms;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //coding (C) / non-coding (N) models w/ random GC content and gene lengths (like the model built from the training data)
+        Random random = new Random(45);
+        this.hmms = new ArrayList<HMM>();
+
+        for (int h=0; h<10; h++)
+        {
+            char[] emissions = {'A', 'T', 'G', 'C'};
+            State[] states = {new State("C", emissions, randomDistribution(random, 4), 0.0),
+                              new State("N", emissions, randomDistribution(random, 4), 1.0)};
+            double switchP = 0.001 + 0.05 * random.nextDouble();
+            hmms.add(new HMM(states, new double[][]{{1 - switchP, switchP}, {switchP, 1 - switchP}}));
+        }
+    }
+
+    private static double[] randomDistribution(Random random, int size)
+    {
+        double[] p = new double[size];
+        double sum = 0;
+        for (int i=0; i<size; i++)
+        {
+            p[i] = 0.05 + random.nextDouble();
+            sum += p[i];
+        }
+        for (int i=0; i<size; i++) p[i] /= sum;
+
+        return p;
+    }
+
+    private static ArrayList<String> bruteForce(HMM hmm, ArrayList<String> names, ArrayList<String> records)
+    {
+        //coding runs of the viterbi paths of every record (+ strand) and its reverse complement (- strand),
+        //sorted by record, start and strand, as "record start end strand" (1-based, inclusive)
+
+        Viterbi viterbi = new Viterbi(hmm);
+        int coding = viterbi.getModel().getStateIndex("C");
+        ArrayList<String> genes = new ArrayList<String>();
+
+        for (int r=0; r<records.size(); r++)
+        {
+            int n = records.get(r).length();
+            byte[] forward = viterbi.decode(viterbi.encode(records.get(r)));
+            byte[] reverse = viterbi.decode(viterbi.encode(Nucleotides.reverseComplement(records.get(r))));
+
+            //reverse strand genes in forward coordinates: the path of position i of the record is reverse[n-1-i]
+            for (int i=0; i<n; i++)
+            {
+                if (forward[i] == coding && (i == 0 || forward[i-1] != coding))
+                {
+                    int end = i;
+                    while (end < n && forward[end] == coding) end++;
+                    genes.add(names.get(r) + "\t" + (i + 1) + "\t" + end + "\t+");
+                }
+                if (reverse[n-1-i] == coding && (i == 0 || reverse[n-i] != coding))
+                {
+                    int end = i;
+                    while (end < n && reverse[n-1-end] == coding) end++;
+                    genes.add(names.get(r) + "\t" + (i + 1) + "\t" + end + "\t-");
+                }
+            }
+        }
+        return genes;
+    }
+
+    /**
+     * JUnit unittest:
+     * the genes of all records and strands must be the coding runs of the viterbi paths,
+     * sorted by record, start position and strand, whatever the number of threads
+     */
+    @Test
+    public void compareWithViterbi()
+    {
+        Random random = new Random(450);
+        int totalGenes = 0;
+        for (HMM hmm: hmms)
+        {
+            GenePredictor predictor = new GenePredictor(hmm);
+
+            //records of very different lengths (incl. an empty record), soft-masked bases
+            ArrayList<String> names = new ArrayList<String>();
+            ArrayList<String> records = new ArrayList<String>();
+            StringBuilder seq = new StringBuilder();
+            int totalRecords = 1 + random.nextInt(8);
+            int[] starts = new int[totalRecords + 1];
+            for (int r=0; r<totalRecords; r++)
+            {
+                names.add("contig" + r);
+                records.add(RandomSequences.randomSeq(random, (r == 1) ? 0 : random.nextInt(random.nextBoolean() ? 500 : 50000), "ACGTacgt"));
+                seq.append(records.get(r));
+                starts[r + 1] = seq.length();
+            }
+
+            ArrayList<String> expected = bruteForce(hmm, names, records);
+            totalGenes += expected.size();
+            for (int nThreads: new int[]{1, 3, 8})
+            {
+                ArrayList<String> genes = new ArrayList<String>();
+                for (GenePredictor.Gene gene: predictor.predictGenes(names, seq, starts, nThreads))
+                {
+                    int length = records.get(names.indexOf(gene.record)).length();
+                    assertTrue(gene.toString(), 0 <= gene.start && gene.start < gene.end && gene.end <= length);
+                    genes.add(gene.toString());
+                }
+                assertEquals(expected, genes);
+            }
+        }
+        assertTrue(totalGenes > 100);
+    }
+
+    /**
+     * JUnit unittest:
+     * a predictor w/o training data predicts the coding regions w/ the given codon model
+     */
+    @Test
+    public void predictWithCodonModel()
+    {
+        Random random = new Random(451);
+        String training = RandomSequences.randomSeq(random, 20000, "ACGT");
+        BitSet coding = new BitSet();
+        for (int start=random.nextInt(100); start<training.length(); start+=1000 + random.nextInt(1000)) coding.set(start, start + 300 + 3 * random.nextInt(100));
+        CodonHMM codonModel = CodonHMM.train(training, coding, 2);
+
+        GenePredictor predictor = new GenePredictor(hmms.get(0), codonModel);
+        String seq = RandomSequences.randomSeq(random, 5000, "ACGT");
+        ArrayList<int[]> expected = codonModel.predict(seq);
+        ArrayList<int[]> regions = predictor.predictCodingRegions(seq, 2);
+
+        assertEquals(expected.size(), regions.size());
+        for (int r=0; r<regions.size(); r++) assertArrayEquals(expected.get(r), regions.get(r));
+    }
+
+    /**
+     * JUnit unittest:
+     * codon models of other orders can't be trained w/o training data
+     */
+    @Test(expected = IllegalStateException.class)
+    public void rejectMissingCodonModel()
+    {
+        new GenePredictor(hmms.get(0)).predictCodingRegions("ACGTACGT", 3);
+    }
+}
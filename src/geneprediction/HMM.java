@@ -1,6 +1,8 @@
 package geneprediction;
 
+import geneprediction.CompiledHMM;
 import geneprediction.State;
+import java.util.Arrays;
 
 public class HMM
 {
@@ -76,6 +78,12 @@ public class HMM
         }
     }
 
+    public CompiledHMM compile()
+    {
+        //immutable, array based snapshot of the model for decoding (see CompiledHMM)
+        return new CompiledHMM(Arrays.copyOf(states, totalStates), transitionP);
+    }
+
     public void addState(State state)
     {
         this.states[totalStates] = state;
@@ -1,32 +1,49 @@
 package geneprediction;
 
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.zip.GZIPInputStream;
 import java.io.BufferedReader;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.RandomAccessFile;
 import java.lang.Exception;
 import geneprediction.Downloader;
 import geneprediction.DownloadStatus;
 
+import stringsearch.PackedSequence;
+
 
 public class SeqDataParser
 {
     //download and parse the sequence data required to build and use the HMM
-    BitSet cdsSeq;
-    String trainingSeq;
-    String sampleSeq;
+    //the gzipped files are read as streams (no decompressed copies on disk), the sequences are packed
+    //into 2 bits per base while reading (~0.25 bytes per base, N's are kept in the N-mask, see PackedSequence)
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    BitSet cdsSeq;                  //0-based positions of the training sequence that are part of a gene (either strand)
+    BitSet forwardCdsSeq;           //genes on the + strand
+    BitSet reverseCdsSeq;           //genes on the - strand (forward strand coordinates)
+    PackedSequence trainingSeq;     //loaded on demand (see getTrainingSeq()), the HMM is trained from the gzip stream
+    String trainingFile;
+    PackedSequence sampleSeq;       //all records of the sample concatenated
+    ArrayList<String> sampleNames = new ArrayList<String>();   //fasta headers of the sample records (contigs, plasmids)
+    int[] sampleStarts;             //record r: sampleSeq[sampleStarts[r] ... sampleStarts[r+1]-1]
     int totalGenes = 0;
     String[][] dlFileNames = {{"TrainingOrg_genome.txt.gz", "TrainingOrg_features.txt.gz"}, {"SampleOrg_genome.txt.gz"}};
 
     public SeqDataParser(String trainingOrgId, String sampleOrgId, String saveDir)
     {
         //fetchSeqData(trainingOrgId, sampleOrgId, saveDir, dlFileNames);
-        this.trainingSeq = getSeq(saveDir + dlFileNames[0][0]);
-        this.sampleSeq = getSeq(saveDir + dlFileNames[1][0]);
+        this.trainingFile = saveDir + dlFileNames[0][0];
+        ArrayList<Integer> starts = new ArrayList<Integer>();
+        this.sampleSeq = getSeq(saveDir + dlFileNames[1][0], sampleNames, starts);
+        this.sampleStarts = new int[starts.size() + 1];
+        for (int r=0; r<starts.size(); r++) sampleStarts[r] = starts.get(r);
+        sampleStarts[starts.size()] = sampleSeq.length();
         this.cdsSeq = createCDSSeq(saveDir + dlFileNames[0][1]);
         this.totalGenes = totalGenes;
     }
@@ -51,24 +68,6 @@ public class SeqDataParser
 
     }
 
-    private void decompressGzip(String sourceFile, String targetFile)
-    {
-        //decompress the downloaded NCBI gzip-Files before using them
-        
-        try (GZIPInputStream gis = new GZIPInputStream(new FileInputStream(sourceFile));
-             FileOutputStream fos = new FileOutputStream(targetFile))
-        {
-            // copy GZIPInputStream to FileOutputStream
-            byte[] buffer = new byte[1024];
-            int len;
-            while ((len = gis.read(buffer)) > 0) fos.write(buffer, 0, len);
-        }
-        catch (Exception ex)
-        {
-            System.out.println(ex);
-        }
-    }
-
     private BitSet createCDSSeq(String trainingSeqFeaturesFile)
     {   
         /*create the mapping sequence to the trainin sequence showing which regions are (non-)coding.
@@ -78,17 +77,12 @@ public class SeqDataParser
         int prevStart = 0;
         int startCDS = 0;
         int endCDS = 0;
-        int totalSeqLength = this.trainingSeq.length();
-        String decompressedFeaturesFile = trainingSeqFeaturesFile.replace(".gz", "");
-
-        BitSet cdsSeq = new BitSet(totalSeqLength); //create BitSet with the same length as the training sequence (1 bit per base)
-        
-        //decompress the gzip file
-        decompressGzip(trainingSeqFeaturesFile, decompressedFeaturesFile);
+        BitSet cdsSeq = new BitSet(); //1 bit per base of the training sequence (grows w/ the last gene)
+        this.forwardCdsSeq = new BitSet();
+        this.reverseCdsSeq = new BitSet();
 
-        try
+        try (BufferedReader fin = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(trainingSeqFeaturesFile), BUFFER_SIZE))))
         {
-            BufferedReader fin = new BufferedReader(new InputStreamReader(new FileInputStream(decompressedFeaturesFile)));
             String l;
 
             //read the sequence features file (contains positions of every gene etc.)
@@ -99,13 +93,14 @@ public class SeqDataParser
                 totalGenes++;
 
                 String[] lineContent = l.split("\t");
-                startCDS = Integer.parseInt(lineContent[7]); //start position of the current gene
-                endCDS = Integer.parseInt(lineContent[8]); //end position of the current gene
-                
-                cdsSeq.set(startCDS, endCDS+1); //set bits between start and end to "true"
+                startCDS = Integer.parseInt(lineContent[7]); //start position of the current gene (1-based)
+                endCDS = Integer.parseInt(lineContent[8]); //end position of the current gene (1-based, inclusive)
+                boolean reverse = lineContent.length > 9 && lineContent[9].equals("-");
+
+                //set the bits of the 0-based positions startCDS-1 ... endCDS-1 to "true"
+                cdsSeq.set(startCDS-1, endCDS);
+                (reverse ? reverseCdsSeq : forwardCdsSeq).set(startCDS-1, endCDS);
             }
-            
-            fin.close();
         }
         catch (Exception ex)
         {
@@ -114,27 +109,119 @@ public class SeqDataParser
         return cdsSeq;
     }
 
-    private String getSeq(String seqFile)
+    PackedSequence getTrainingSeq()
+    {
+        //the packed training sequence (only needed by models that aren't trained from the stream)
+        if (trainingSeq == null) trainingSeq = getSeq(trainingFile, new ArrayList<String>(), new ArrayList<Integer>());
+
+        return trainingSeq;
+    }
+
+    private PackedSequence getSeq(String seqFile, ArrayList<String> names, ArrayList<Integer> starts)
     {
-        //read the sequence fasta files to a string
-        String seq = "";
-        String decompressedSeqFile = seqFile.replace(".gz", "");
+        //stream a gzipped (multi) fasta file into a packed sequence (all records concatenated)
+        //names: first word of every header (e.g. the accession), starts: start position of every record
+        //the sequence is sized in advance from the uncompressed size in the gzip trailer (an upper bound of the number
+        //of bases), so it is never copied while growing (peak ~0.25 bytes per base instead of up to 0.75)
+
+        PackedSequence seq = new PackedSequence();
 
-        //decompress the gzip-file
-        decompressGzip(seqFile, decompressedSeqFile);
+        try (RandomAccessFile file = new RandomAccessFile(seqFile, "r"))
+        {
+            //ISIZE: last 4 bytes of the (last) gzip member, uncompressed size mod 2^32 (little endian)
+            if (file.length() >= 18)
+            {
+                file.seek(file.length() - 4);
+                long size = Integer.reverseBytes(file.readInt()) & 0xFFFFFFFFL;
+                if (size >= file.length()) seq.ensureCapacity(size);
+            }
+        }
+        catch (IOException ex)
+        {
+            System.out.println(ex);
+        }
 
-        try
+        try (InputStream in = new GZIPInputStream(new FileInputStream(seqFile), BUFFER_SIZE))
         {
-            //read the sequence to a string
-            Path file = Path.of(decompressedSeqFile);
-            seq = Files.readString(file);
-            seq = seq.substring(seq.indexOf("\n")).replaceAll("\n", "");
+            readFasta(in, seq, names, starts);
         }
         catch (Exception ex)
         {
             System.out.println(ex);
         }
-                
+
+        seq.trimToSize();
         return seq;
     }
+
+    static void readFasta(InputStream in, PackedSequence seq, ArrayList<String> names, ArrayList<Integer> starts) throws IOException
+    {
+        //parse the fasta stream buffer by buffer: sequence lines are appended to seq straight from the buffer,
+        //header lines are collected (they may span several buffers)
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        StringBuilder header = null;
+        boolean lineStart = true;
+
+        int read;
+        while ((read = in.read(buffer)) != -1)
+        {
+            int i = 0;
+            while (i < read)
+            {
+                if (header != null)
+                {
+                    //rest of a header line
+                    int end = i;
+                    while (end < read && buffer[end] != '\n') end++;
+                    for (int j=i; j<end; j++) header.append((char)(buffer[j] & 0xFF));
+                    if (end == read) break;
+
+                    String h = header.toString().trim();
+                    names.add(h.isEmpty() ? "" : h.split("\\s+")[0]);
+                    starts.add(seq.length());
+                    header = null;
+                    lineStart = true;
+                    i = end + 1;
+                    continue;
+                }
+
+                byte b = buffer[i];
+                if (b <= ' ')
+                {
+                    //line breaks and other whitespace
+                    if (b == '\n' || b == '\r') lineStart = true;
+                    i++;
+                    continue;
+                }
+                if (lineStart && b == '>')
+                {
+                    header = new StringBuilder();
+                    i++;
+                    continue;
+                }
+
+                //sequence up to the end of the line (or the buffer)
+                int end = i;
+                while (end < read && buffer[end] > ' ') end++;
+                seq.append(buffer, i, end);
+                lineStart = false;
+                i = end;
+            }
+        }
+
+        if (header != null)
+        {
+            String h = header.toString().trim();
+            names.add(h.isEmpty() ? "" : h.split("\\s+")[0]);
+            starts.add(seq.length());
+        }
+
+        //sequence w/o a header
+        if (starts.isEmpty() && seq.length() > 0)
+        {
+            names.add("");
+            starts.add(0);
+        }
+    }
 }
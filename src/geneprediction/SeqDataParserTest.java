@@ -0,0 +1,209 @@
+package geneprediction;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+
+import stringsearch.PackedSequence;
+
+/**
+ * This class tests the fasta parsing of the <code>SeqDataParser</code> class (plain streams, read in small pieces,
+ * and gzipped files) against a line by line parser using the JUnit unittesting framework
+ */
+public class SeqDataParserTest
+{
+    private ArrayList<String> fastas;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //multi fasta files w/ indented headers, empty headers and records, soft-masked bases, IUPAC codes,
+        //carriage returns, tabs and blank lines, some w/o a header or w/o a final line break
+        Random random = new Random(50);
+        this.fastas = new ArrayList<String>();
+
+        for (int f=0; f<100; f++)
+        {
+            StringBuilder fasta = new StringBuilder();
+            int records = random.nextInt(5);
+            for (int r=0; r<records; r++)
+            {
+                if (r > 0 || random.nextInt(4) > 0)
+                {
+                    fasta.append(random.nextBoolean() ? ">" : " \t>");
+                    if (random.nextInt(5) > 0) fasta.append(random.nextBoolean() ? " " : "").append("NC_").append(r).append(".1 description > ").append(r);
+                    fasta.append(random.nextBoolean() ? "\n" : "\r\n");
+                }
+                int length = random.nextInt(random.nextBoolean() ? 100 : 100000);
+                for (int i=0; i<length; i++)
+                {
+                    fasta.append("ACGTacgtNRY>".charAt(random.nextInt(12)));
+                    if (random.nextInt(70) == 0) fasta.append(new String[]{"\n", "\r\n", " \n", "\t", "\n\n"}[random.nextInt(5)]);
+                }
+                if (random.nextBoolean()) fasta.append("\n");
+            }
+            fastas.add(fasta.toString());
+        }
+    }
+
+    private static String bruteForce(String fasta, ArrayList<String> names, ArrayList<Integer> starts)
+    {
+        //line by line: a line whose first character (after whitespace) is '>' is a header (first word: name),
+        //all characters > ' ' of the other lines are bases (non-ACGT characters as N)
+
+        StringBuilder seq = new StringBuilder();
+        for (String line: fasta.split("\n", -1))
+        {
+            String trimmed = line.trim();
+            if (trimmed.startsWith(">"))
+            {
+                String header = trimmed.substring(1).trim();
+                names.add(header.isEmpty() ? "" : header.split("\\s+")[0]);
+                starts.add(seq.length());
+                continue;
+            }
+            for (int i=0; i<line.length(); i++)
+            {
+                char c = Character.toUpperCase(line.charAt(i));
+                if (c > ' ') seq.append(("ACGT".indexOf(c) >= 0) ? c : 'N');
+            }
+        }
+        if (starts.isEmpty() && seq.length() > 0)
+        {
+            names.add("");
+            starts.add(0);
+        }
+        return seq.toString();
+    }
+
+    private static class PieceStream extends ByteArrayInputStream
+    {
+        //returns at most a few bytes per read() (headers and lines are split across the buffers)
+
+        private Random random;
+
+        PieceStream(byte[] bytes, Random random)
+        {
+            super(bytes);
+            this.random = random;
+        }
+
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length)
+        {
+            return super.read(buffer, offset, Math.min(length, 1 + random.nextInt(20)));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the packed sequence, the record names and the record starts must be those of the line by line parser,
+     * whether the stream returns full buffers or a few bytes at a time
+     */
+    @Test
+    public void compareReadFasta() throws IOException
+    {
+        Random random = new Random(500);
+        for (String fasta: fastas)
+        {
+            ArrayList<String> expectedNames = new ArrayList<String>();
+            ArrayList<Integer> expectedStarts = new ArrayList<Integer>();
+            String expected = bruteForce(fasta, expectedNames, expectedStarts);
+
+            for (int pieces=0; pieces<2; pieces++)
+            {
+                InputStream in = (pieces == 0) ? new ByteArrayInputStream(fasta.getBytes()) : new PieceStream(fasta.getBytes(), random);
+                PackedSequence seq = new PackedSequence();
+                ArrayList<String> names = new ArrayList<String>();
+                ArrayList<Integer> starts = new ArrayList<Integer>();
+                SeqDataParser.readFasta(in, seq, names, starts);
+
+                assertEquals(expected, seq.toString());
+                assertEquals(expectedNames, names);
+                assertEquals(expectedStarts, starts);
+            }
+        }
+    }
+
+    private static void gzip(File file, String... members) throws IOException
+    {
+        //every member as a gzip member of its own (like concatenated .gz files)
+        try (OutputStream out = new FileOutputStream(file))
+        {
+            for (String member: members)
+            {
+                GZIPOutputStream gzip = new GZIPOutputStream(out);
+                gzip.write(member.getBytes());
+                gzip.finish();
+            }
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the sample genome (gzipped, also w/ several gzip members, so the trailer understates the size) and the gene
+     * positions of the feature table must be read into the sample sequence, its records and the coding BitSets
+     */
+    @Test
+    public void compareGzipFiles() throws IOException
+    {
+        Random random = new Random(501);
+        File dir = Files.createTempDirectory("seqdata").toFile();
+        File genome = new File(dir, "SampleOrg_genome.txt.gz");
+        File features = new File(dir, "TrainingOrg_features.txt.gz");
+
+        //feature table: genes on both strands (1-based, inclusive), comments, gene and blank lines are skipped
+        BitSet forward = new BitSet(), reverse = new BitSet();
+        StringBuilder table = new StringBuilder("# feature\tclass\tassembly\tunit\tseq_type\tchromosome\tgenomic_accession\tstart\tend\tstrand\n");
+        for (int g=0; g<200; g++)
+        {
+            int start = 1 + random.nextInt(100000);
+            int end = start + random.nextInt(3000);
+            boolean minus = random.nextBoolean();
+            table.append("gene\twith_protein\tASM\tchromosome\tchromosome\t\tNC_1\t").append(start).append("\t").append(end).append("\t+\n");
+            table.append("CDS\twith_protein\tASM\tchromosome\tchromosome\t\tNC_1\t").append(start).append("\t").append(end).append(minus ? "\t-\n" : "\t+\n\n");
+            (minus ? reverse : forward).set(start - 1, end);
+        }
+        gzip(features, table.toString());
+
+        for (int f=0; f<10; f++)
+        {
+            String fasta = fastas.get(f);
+            int split = random.nextInt(fasta.length() + 1);
+            if (f % 2 == 0) gzip(genome, fasta);
+            else gzip(genome, fasta.substring(0, split), fasta.substring(split));
+
+            ArrayList<String> expectedNames = new ArrayList<String>();
+            ArrayList<Integer> expectedStarts = new ArrayList<Integer>();
+            String expected = bruteForce(fasta, expectedNames, expectedStarts);
+
+            SeqDataParser parser = new SeqDataParser("GCF_000000000.1_training", "GCF_000000000.1_sample", dir.getPath() + File.separator);
+            assertEquals(expected, parser.sampleSeq.toString());
+            assertEquals(expectedNames, parser.sampleNames);
+            assertEquals(expectedStarts.size() + 1, parser.sampleStarts.length);
+            for (int r=0; r<expectedStarts.size(); r++) assertEquals((int)expectedStarts.get(r), parser.sampleStarts[r]);
+            assertEquals(expected.length(), parser.sampleStarts[expectedStarts.size()]);
+
+            assertEquals(200, parser.totalGenes);
+            assertEquals(forward, parser.forwardCdsSeq);
+            assertEquals(reverse, parser.reverseCdsSeq);
+            BitSet coding = (BitSet)forward.clone();
+            coding.or(reverse);
+            assertEquals(coding, parser.cdsSeq);
+        }
+
+        for (File file: dir.listFiles()) file.delete();
+        dir.delete();
+    }
+}
@@ -48,6 +48,20 @@ public class State
 
     public HashMap<String, Double> getEmissionProbalities() {return emissionP;}
 
+    public double getEmissionProbability(String emission) {return emissionP.getOrDefault(emission, 0.0);}
+
+    public String[] getEmissions()
+    {
+        //emissions in the order they were provided (used by HMM.compile())
+
+        if (emissions != null) return emissions;
+
+        String[] e = new String[emissionsChar.length];
+        for (int i=0; i<e.length; i++) e[i] = Character.toString(emissionsChar[i]);
+
+        return e;
+    }
+
     public void setEmissionProbabilities(double[] emissionP, String[] emissions)
     {
         for (int i=0; i<emissionP.length; i++) this.emissionP.put(emissions[i], emissionP[i]);
@@ -0,0 +1,361 @@
+package geneprediction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+
+import geneprediction.CompiledHMM;
+
+public class StreamingViterbi
+{
+    //viterbi algorithm for sequences of any length (chromosomes, metagenome assemblies, streams)
+    //the observations are added one after another (or read from a Reader/InputStream in chunks),
+    //only the current column of scores and the backpointers of the last maxLag observations (ring buffer) are kept
+    //the states are committed as soon as the surviving paths converge: if the traceback of every state
+    //of the current column passes through the same state at position p, the best path up to p can't change anymore
+    //(same result as Viterbi.decode() up to equally likely paths); if they don't converge within maxLag observations,
+    //the older half of the window is committed along the currently best path, i.e. w/ a lookahead of maxLag/2
+    //observations instead of the whole sequence, which can differ from the exact viterbi path
+    //(getForcedCommits() tells if that happened since begin(), 0: the result is exact)
+    //the decoded path is reported incrementally as segments (start, end (exclusive), state) of equal states,
+    //so the memory use is constant (maxLag * states bytes)
+    //fasta input: header lines ('>') are skipped, every record is decoded as a sequence of its own
+    //(positions restart at 0, the sink is told about the start of a record via SegmentSink.record())
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private CompiledHMM model;
+    private int totalStates;
+    private int maxLag;
+    private int checkInterval;   //minimum number of observations between two convergence checks
+
+    //state of the current sequence
+    private byte[] backpointers; //backpointers[(p % maxLag) * totalStates + s]: predecessor of state s at position p
+    private byte[] path;         //buffer for the committed states
+    private double[] prev;
+    private double[] curr;
+    private int[] survivors;
+    private long n;              //number of observations
+    private long committed;      //number of committed observations
+    private long lastCheck;
+    private long segmentStart;
+    private int segmentState;
+    private SegmentSink sink;
+    private boolean stopped;
+    private int forcedCommits;
+
+    //state of the fasta parser (decode(Reader), decode(InputStream))
+    private boolean lineStart;
+    private boolean inHeader;
+    private StringBuilder header = new StringBuilder();
+    private long total;
+
+    public interface SegmentSink
+    {
+        //observations start ... end-1 were decoded as state; return false to stop
+        boolean segment(long start, long end, int state);
+
+        //a new fasta record starts (called before its segments); return false to stop
+        default boolean record(String name) {return true;}
+    }
+
+    public StreamingViterbi(HMM hmm)
+    {
+        this(hmm.compile());
+    }
+
+    public StreamingViterbi(CompiledHMM model)
+    {
+        this(model, 1 << 20);
+    }
+
+    public StreamingViterbi(CompiledHMM model, int maxLag)
+    {
+        if (maxLag < 2) throw new IllegalArgumentException("maxLag must be at least 2!");
+
+        this.model = model;
+        this.totalStates = model.totalStates;
+        this.maxLag = maxLag;
+        this.checkInterval = Math.max(Math.min(maxLag / 4, 4096), 1);
+    }
+
+    public CompiledHMM getModel() {return model;}
+    public int getForcedCommits() {return forcedCommits;}
+
+    public ArrayList<long[]> decode(CharSequence seq)
+    {
+        //every segment is returned as {start, end, state}
+        ArrayList<long[]> segments = new ArrayList<long[]>();
+
+        begin((start, end, state) -> segments.add(new long[]{start, end, state}));
+        for (int i=0; i<seq.length(); i++) add(model.getSymbolIndex(seq.charAt(i)));
+        end();
+
+        return segments;
+    }
+
+    public long decode(Reader in, SegmentSink sink) throws IOException
+    {
+        //decode a raw or fasta sequence read in chunks, header lines, line breaks and other whitespace are skipped
+        //returns the number of observations (of all records)
+
+        char[] buffer = new char[BUFFER_SIZE];
+        beginStream(sink);
+
+        int read;
+        while (!stopped && (read = in.read(buffer)) != -1)
+        {
+            for (int i=0; i<read && !stopped; i++) next(buffer[i]);
+        }
+        return endStream();
+    }
+
+    public long decode(InputStream in, SegmentSink sink) throws IOException
+    {
+        //same as decode(Reader) for ASCII input, w/o the character decoding
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        beginStream(sink);
+
+        int read;
+        while (!stopped && (read = in.read(buffer)) != -1)
+        {
+            for (int i=0; i<read && !stopped; i++) next((char)(buffer[i] & 0xFF));
+        }
+        return endStream();
+    }
+
+    private void beginStream(SegmentSink sink)
+    {
+        begin(sink);
+        this.lineStart = true;
+        this.inHeader = false;
+        this.total = 0;
+    }
+
+    private void next(char c)
+    {
+        //one character of a fasta stream
+
+        if (c == '\n' || c == '\r')
+        {
+            if (inHeader) startRecord();
+            lineStart = true;
+            return;
+        }
+        if (inHeader)
+        {
+            header.append(c);
+            return;
+        }
+        if (lineStart && c == '>')
+        {
+            inHeader = true;
+            header.setLength(0);
+        }
+        else if (!Character.isWhitespace(c)) add(model.getSymbolIndex(c));
+        lineStart = false;
+    }
+
+    private void startRecord()
+    {
+        //finish the previous record and start a new one w/ the current header
+
+        SegmentSink recordSink = sink;
+        inHeader = false;
+        total += end();
+        reset(recordSink);
+        if (!recordSink.record(header.toString().trim())) stopped = true;
+    }
+
+    private long endStream()
+    {
+        if (inHeader && !stopped) startRecord();
+        return total + end();
+    }
+
+    public void begin(SegmentSink sink)
+    {
+        //start a new sequence (the buffers are reused)
+
+        this.forcedCommits = 0;
+        reset(sink);
+    }
+
+    private void reset(SegmentSink sink)
+    {
+        int S = totalStates;
+        if (backpointers == null)
+        {
+            this.backpointers = new byte[maxLag * S];
+            this.path = new byte[maxLag];
+            this.prev = new double[S];
+            this.curr = new double[S];
+            this.survivors = new int[S];
+        }
+        this.sink = sink;
+        this.n = 0;
+        this.committed = 0;
+        this.lastCheck = 0;
+        this.segmentStart = 0;
+        this.segmentState = -1;
+        this.stopped = false;
+    }
+
+    public boolean add(int symbol)
+    {
+        //add the next observation (symbol code, see CompiledHMM), returns false once the sink has stopped
+
+        if (stopped) return false;
+
+        int S = totalStates;
+
+        if (n == 0)
+        {
+            for (int s=0; s<S; s++) prev[s] = model.logInitial[s] + model.logEmission[s][symbol];
+            n++;
+            return true;
+        }
+
+        //the ring buffer is full: check for convergence a last time (the checks can be up to half the window apart),
+        //otherwise commit the older half along the best path
+        if (n - committed == maxLag)
+        {
+            lastCheck = n;
+            converge();
+            if (stopped) return false;
+        }
+        if (n - committed == maxLag)
+        {
+            long to = n - 1 - maxLag / 2;
+            forcedCommits++;
+            commit(to, trace(n - 1, best(), to));
+            if (stopped) return false;
+        }
+
+        double[][] logTransition = model.logTransition;
+        int offset = (int)(n % maxLag) * S;
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int s=0; s<S; s++)
+        {
+            int k = 0;
+            double best = prev[0] + logTransition[0][s];
+            for (int i=1; i<S; i++)
+            {
+                double v = prev[i] + logTransition[i][s];
+                if (v > best)
+                {
+                    best = v;
+                    k = i;
+                }
+            }
+            curr[s] = best + model.logEmission[s][symbol];
+            backpointers[offset + s] = (byte)k;
+            if (curr[s] > max) max = curr[s];
+        }
+
+        //keep the scores close to 0 (only their differences matter)
+        if (max != Double.NEGATIVE_INFINITY)
+        {
+            for (int s=0; s<S; s++) curr[s] -= max;
+        }
+
+        double[] tmp = prev;
+        prev = curr;
+        curr = tmp;
+        n++;
+
+        //a check traces back up to n - committed positions per state, so the checks get rarer while the paths
+        //don't converge (at least (n - committed) / 2 observations apart, i.e. O(states) steps per observation)
+        if (n - lastCheck >= Math.max(checkInterval, (n - committed) / 2))
+        {
+            lastCheck = n;
+            converge();
+        }
+        return !stopped;
+    }
+
+    public long end()
+    {
+        //commit the rest of the path (best last state) and report the last segment
+        //returns the number of observations
+
+        if (n > committed && !stopped) commit(n - 1, best());
+        if (segmentState >= 0 && !stopped) sink.segment(segmentStart, committed, segmentState);
+
+        this.sink = null;
+        return n;
+    }
+
+    private int best()
+    {
+        //best state of the current column
+        int k = 0;
+        for (int s=1; s<totalStates; s++)
+        {
+            if (prev[s] > prev[k]) k = s;
+        }
+        return k;
+    }
+
+    private int trace(long from, int state, long to)
+    {
+        //follow the backpointers from (from, state) back to position to
+        for (long p=from; p>to; p--) state = backpointers[(int)(p % maxLag) * totalStates + state];
+
+        return state;
+    }
+
+    private void converge()
+    {
+        //trace every state back until all paths pass through the same state, then commit up to there
+
+        int S = totalStates;
+        for (int s=0; s<S; s++) survivors[s] = s;
+
+        for (long p=n-1; p>committed; p--)
+        {
+            int offset = (int)(p % maxLag) * S;
+            boolean same = true;
+            for (int s=0; s<S; s++)
+            {
+                survivors[s] = backpointers[offset + survivors[s]];
+                if (survivors[s] != survivors[0]) same = false;
+            }
+            if (same)
+            {
+                commit(p - 1, survivors[0]);
+                return;
+            }
+        }
+    }
+
+    private void commit(long to, int state)
+    {
+        //commit the positions committed ... to, state: state at position to
+
+        int length = (int)(to - committed + 1);
+        for (int i=length-1; i>=0; i--)
+        {
+            path[i] = (byte)state;
+            if (i > 0) state = backpointers[(int)((committed + i) % maxLag) * totalStates + state];
+        }
+
+        for (int i=0; i<length; i++)
+        {
+            if (path[i] == segmentState) continue;
+
+            long pos = committed + i;
+            if (segmentState >= 0 && !sink.segment(segmentStart, pos, segmentState))
+            {
+                stopped = true;
+                return;
+            }
+            segmentStart = pos;
+            segmentState = path[i];
+        }
+        committed = to + 1;
+    }
+}
@@ -0,0 +1,266 @@
+package geneprediction;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests that the streaming decoder of the <code>StreamingViterbi</code> class returns state paths as likely
+ * as the paths of the plain <code>Viterbi</code> class (sequences, fasta records) using the JUnit unittesting framework
+ */
+public class StreamingViterbiTest
+{
+    private static final String[] SYMBOLS = {"A", "C", "G", "T"};
+
+    private ArrayList<CompiledHMM> models;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //random models w/ 1 to 6 states, some transitions and emissions are impossible
+        Random random = new Random(44);
+        this.models = new ArrayList<CompiledHMM>();
+
+        for (int m=0; m<100; m++) models.add(randomModel(random, 1 + random.nextInt(6)));
+    }
+
+    private static CompiledHMM randomModel(Random random, int totalStates)
+    {
+        String[] names = new String[totalStates];
+        double[] initial = new double[totalStates];
+        double[][] transition = new double[totalStates][];
+        double[][] emission = new double[totalStates][];
+        for (int s=0; s<totalStates; s++)
+        {
+            names[s] = "s" + s;
+            initial[s] = 1.0 / totalStates;
+            transition[s] = randomDistribution(random, totalStates);
+            emission[s] = randomDistribution(random, SYMBOLS.length);
+        }
+        return new CompiledHMM(names, SYMBOLS, initial, transition, emission);
+    }
+
+    private static double[] randomDistribution(Random random, int size)
+    {
+        //every 5th probability is 0 (but at least one is > 0)
+        double[] p = new double[size];
+        double sum = 0;
+        for (int i=0; i<size; i++)
+        {
+            p[i] = (random.nextInt(5) == 0 && i > 0) ? 0.0 : 0.05 + random.nextDouble();
+            sum += p[i];
+        }
+        for (int i=0; i<size; i++) p[i] /= sum;
+
+        return p;
+    }
+
+    private static byte[] expand(ArrayList<long[]> segments, int n)
+    {
+        //state path of segments {start, end, state}, the segments must be adjacent and cover 0 ... n-1
+        byte[] path = new byte[n];
+        long end = 0;
+        for (long[] segment: segments)
+        {
+            assertEquals(end, segment[0]);
+            assertTrue(segment[1] > segment[0]);
+            for (long p=segment[0]; p<segment[1]; p++) path[(int)p] = (byte)segment[2];
+            end = segment[1];
+        }
+        assertEquals(n, end);
+        return path;
+    }
+
+    private static double logP(CompiledHMM model, byte[] obs, byte[] path)
+    {
+        //log probability of the observations along a state path
+        double logP = 0;
+        for (int o=0; o<obs.length; o++)
+        {
+            logP += (o == 0) ? Math.log(model.getInitialP(path[0])) : Math.log(model.getTransitionP(path[o-1], path[o]));
+            logP += Math.log(model.getEmissionP(path[o], obs[o]));
+        }
+        return logP;
+    }
+
+    private static void assertSameLogP(CompiledHMM model, byte[] obs, byte[] expected, byte[] path)
+    {
+        //paths w/ the same log probability (up to rounding), tied paths can differ
+        //because the streaming decoder keeps its scores close to 0
+        double logP = logP(model, obs, expected);
+        if (logP == Double.NEGATIVE_INFINITY) assertEquals(logP, logP(model, obs, path), 0.0);
+        else assertEquals(logP, logP(model, obs, path), 1e-9 * Math.max(1.0, Math.abs(logP)));
+    }
+
+    /**
+     * JUnit unittest:
+     * the paths of sequences added one by one must be as likely as the paths of Viterbi.decode() (w/o forced commits),
+     * also when the convergence is checked within a small window
+     */
+    @Test
+    public void compareWithViterbi()
+    {
+        Random random = new Random(440);
+        for (CompiledHMM model: models)
+        {
+            Viterbi viterbi = new Viterbi(model);
+            for (int q=0; q<5; q++)
+            {
+                String seq = RandomSequences.randomSeq(random, random.nextInt(5000), "ACGTN");
+                byte[] obs = model.encode(seq);
+                byte[] expected = viterbi.decode(obs);
+
+                StreamingViterbi streaming = new StreamingViterbi(model);
+                assertSameLogP(model, obs, expected, expand(streaming.decode(seq), seq.length()));
+                assertEquals(0, streaming.getForcedCommits());
+
+                streaming = new StreamingViterbi(model, 2 + random.nextInt(200));
+                byte[] path = expand(streaming.decode(seq), seq.length());
+                if (streaming.getForcedCommits() == 0) assertSameLogP(model, obs, expected, path);
+            }
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * every fasta record (headers, line breaks, blank lines, carriage returns) must be decoded separately
+     * as likely as by Viterbi.decode(), from a Reader and from an InputStream
+     */
+    @Test
+    public void compareFastaRecords() throws IOException
+    {
+        Random random = new Random(441);
+        for (int m=0; m<20; m++)
+        {
+            CompiledHMM model = models.get(m);
+            Viterbi viterbi = new Viterbi(model);
+
+            StringBuilder fasta = new StringBuilder();
+            ArrayList<String> names = new ArrayList<String>();
+            ArrayList<String> seqs = new ArrayList<String>();
+            int records = 1 + random.nextInt(5);
+            for (int r=0; r<records; r++)
+            {
+                names.add("record" + r + " description " + r);
+                seqs.add(RandomSequences.randomSeq(random, random.nextInt(1000), "ACGTacgtN"));
+                String newline = random.nextBoolean() ? "\n" : "\r\n";
+                fasta.append(">").append(names.get(r)).append(newline);
+                for (int i=0; i<seqs.get(r).length(); i+=60) fasta.append(seqs.get(r), i, Math.min(i + 60, seqs.get(r).length())).append(newline);
+                if (random.nextBoolean()) fasta.append(newline);
+            }
+
+            for (int input=0; input<2; input++)
+            {
+                ArrayList<String> recordNames = new ArrayList<String>();
+                ArrayList<ArrayList<long[]>> segments = new ArrayList<ArrayList<long[]>>();
+                StreamingViterbi.SegmentSink sink = new StreamingViterbi.SegmentSink()
+                {
+                    public boolean segment(long start, long end, int state)
+                    {
+                        segments.get(segments.size() - 1).add(new long[]{start, end, state});
+                        return true;
+                    }
+
+                    public boolean record(String name)
+                    {
+                        recordNames.add(name);
+                        segments.add(new ArrayList<long[]>());
+                        return true;
+                    }
+                };
+
+                StreamingViterbi streaming = new StreamingViterbi(model);
+                long total = (input == 0) ? streaming.decode(new StringReader(fasta.toString()), sink)
+                                          : streaming.decode(new ByteArrayInputStream(fasta.toString().getBytes()), sink);
+
+                assertEquals(names, recordNames);
+                long expectedTotal = 0;
+                for (int r=0; r<records; r++)
+                {
+                    byte[] obs = model.encode(seqs.get(r));
+                    byte[] expected = viterbi.decode(obs);
+                    assertSameLogP(model, obs, expected, expand(segments.get(r), seqs.get(r).length()));
+                    expectedTotal += expected.length;
+                }
+                assertEquals(expectedTotal, total);
+            }
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * paths that never converge (no transitions between the states) are committed within the window,
+     * the decoding stops as soon as the sink returns false
+     */
+    @Test
+    public void forceCommitsAndStop()
+    {
+        CompiledHMM model = new CompiledHMM(new String[]{"a", "b"}, SYMBOLS, new double[]{0.5, 0.5},
+                                            new double[][]{{1.0, 0.0}, {0.0, 1.0}}, new double[][]{{0.4, 0.1, 0.1, 0.4}, {0.1, 0.4, 0.4, 0.1}});
+        String seq = RandomSequences.randomSeq(new Random(442), 10000, "ACGT");
+
+        StreamingViterbi streaming = new StreamingViterbi(model, 100);
+        expand(streaming.decode(seq), seq.length());
+        assertTrue(streaming.getForcedCommits() > 0);
+
+        //a model that switches its state often, the sink stops after the 3rd segment
+        model = new CompiledHMM(new String[]{"a", "b"}, SYMBOLS, new double[]{0.5, 0.5},
+                                new double[][]{{0.8, 0.2}, {0.2, 0.8}}, new double[][]{{0.4, 0.1, 0.1, 0.4}, {0.1, 0.4, 0.4, 0.1}});
+        int[] calls = new int[1];
+        streaming = new StreamingViterbi(model, 16);
+        streaming.begin((start, end, state) -> ++calls[0] < 3);
+
+        boolean running = true;
+        for (int i=0; i<seq.length() && running; i++) running = streaming.add(model.getSymbolIndex(seq.charAt(i)));
+        streaming.end();
+        assertFalse(running);
+        assertEquals(3, calls[0]);
+    }
+
+    /**
+     * JUnit unittest:
+     * paths that only converge at rare positions (a symbol that only one state emits) shortly before the window is full
+     * must be committed exactly, although the convergence checks get rarer while the paths don't converge
+     */
+    @Test
+    public void commitLateConvergence()
+    {
+        CompiledHMM model = new CompiledHMM(new String[]{"a", "b"}, SYMBOLS, new double[]{0.5, 0.5},
+                                            new double[][]{{0.999, 0.001}, {0.001, 0.999}}, new double[][]{{0.3, 0.1, 0.3, 0.3}, {0.35, 0.0, 0.35, 0.3}});
+        Random random = new Random(443);
+        Viterbi viterbi = new Viterbi(model);
+
+        for (int q=0; q<10; q++)
+        {
+            int maxLag = 100 + random.nextInt(1000);
+            StringBuilder seq = new StringBuilder();
+            while (seq.length() < 20 * maxLag)
+            {
+                seq.append(RandomSequences.randomSeq(random, maxLag - 3 - random.nextInt(maxLag / 10), "AGT")).append('C');
+            }
+            byte[] obs = model.encode(seq);
+
+            StreamingViterbi streaming = new StreamingViterbi(model, maxLag);
+            byte[] path = expand(streaming.decode(seq), seq.length());
+            assertEquals(0, streaming.getForcedCommits());
+            assertSameLogP(model, obs, viterbi.decode(obs), path);
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * windows smaller than 2 observations are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectSmallWindow()
+    {
+        new StreamingViterbi(models.get(0), 1);
+    }
+}
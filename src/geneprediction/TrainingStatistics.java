@@ -0,0 +1,178 @@
+package geneprediction;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import stringsearch.Nucleotides;
+
+public class TrainingStatistics
+{
+    //base counts of the coding and non-coding regions of a training genome, read straight from a (gzipped) fasta stream
+    //the sequence lines are copied into chunks of CHUNK_SIZE bases (headers and whitespace are skipped,
+    //the records are concatenated), every chunk is counted by a job of a thread pool while the next one is read,
+    //so the genome is never in memory as a whole (at most 2 * nThreads chunks are in flight)
+    //a job walks the coding runs of its chunk w/ BitSet.nextSetBit()/nextClearBit() and counts every run in a tight loop
+    //into a primitive array (no per-base BitSet or map lookups)
+
+    private static final int CHUNK_SIZE = 1 << 22;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public static final int CODING = 0, NON_CODING = 1;
+
+    long[][] counts = new long[2][4];  //counts[CODING or NON_CODING][2-bit base code (see Nucleotides)]
+    long length = 0;                   //number of positions (including N's and other non ACGT characters)
+
+    public long getLength() {return length;}
+
+    public long getCount(int region, char base)
+    {
+        //N's and other non ACGT characters aren't counted (0)
+        int code = Nucleotides.code(base);
+        return (code < 0) ? 0 : counts[region][code];
+    }
+
+    public long getTotal(int region)
+    {
+        //number of A, C, G and T in the coding or non-coding regions
+        long total = 0;
+        for (long c: counts[region]) total += c;
+
+        return total;
+    }
+
+    public static TrainingStatistics count(String gzipFastaFile, BitSet coding, int nThreads) throws IOException
+    {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(gzipFastaFile), BUFFER_SIZE))
+        {
+            return count(in, coding, nThreads);
+        }
+    }
+
+    public static TrainingStatistics count(InputStream in, BitSet coding, int nThreads) throws IOException
+    {
+        //coding: bit i is set if position i (0-based, records concatenated) is part of a coding sequence
+
+        TrainingStatistics stats = new TrainingStatistics();
+        ExecutorService threadPool = Executors.newFixedThreadPool(Math.max(nThreads, 1));
+        ArrayList<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+        InputStream input = new BufferedInputStream(in, BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try
+        {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int filled = 0;
+            boolean header = false;
+            boolean lineStart = true;
+
+            int read;
+            while ((read = input.read(buffer)) != -1)
+            {
+                for (int i=0; i<read; i++)
+                {
+                    //same rules as SeqDataParser.readFasta() (so the positions agree w/ the coding BitSet):
+                    //a header ends at '\n', every byte <= ' ' (whitespace, control characters) is skipped
+                    byte b = buffer[i];
+                    if (header)
+                    {
+                        if (b == '\n')
+                        {
+                            header = false;
+                            lineStart = true;
+                        }
+                        continue;
+                    }
+                    if (b <= ' ')
+                    {
+                        if (b == '\n' || b == '\r') lineStart = true;
+                        continue;
+                    }
+                    if (lineStart && b == '>')
+                    {
+                        header = true;
+                        continue;
+                    }
+                    lineStart = false;
+
+                    chunk[filled++] = b;
+                    if (filled == CHUNK_SIZE)
+                    {
+                        submit(threadPool, futures, stats, chunk, filled, coding, nThreads);
+                        chunk = new byte[CHUNK_SIZE];
+                        filled = 0;
+                    }
+                }
+            }
+            if (filled > 0) submit(threadPool, futures, stats, chunk, filled, coding, nThreads);
+
+            while (!futures.isEmpty()) stats.add(futures.remove(0).get());
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            throw new RuntimeException("Counting the training statistics failed!", e);
+        }
+        finally
+        {
+            threadPool.shutdown();
+        }
+
+        return stats;
+    }
+
+    private static void submit(ExecutorService threadPool, ArrayList<Future<long[]>> futures, TrainingStatistics stats, byte[] chunk, int length, BitSet coding, int nThreads) throws InterruptedException, ExecutionException
+    {
+        //count the chunk in the background (waits for the oldest job if too many chunks are in flight)
+
+        long offset = stats.length;
+        stats.length += length;
+
+        Callable<long[]> job = () -> countChunk(chunk, length, offset, coding);
+        futures.add(threadPool.submit(job));
+
+        if (futures.size() > 2 * nThreads) stats.add(futures.remove(0).get());
+    }
+
+    private static long[] countChunk(byte[] chunk, int length, long offset, BitSet coding)
+    {
+        //counts[CODING * 4 + code], counts[NON_CODING * 4 + code] of the positions offset ... offset+length-1
+
+        long[] counts = new long[8];
+        int pos = (int)offset;
+        int end = pos + length;
+
+        while (pos < end)
+        {
+            boolean isCoding = coding.get(pos);
+            int runEnd = isCoding ? coding.nextClearBit(pos) : coding.nextSetBit(pos);
+            if (runEnd < 0 || runEnd > end) runEnd = end;
+
+            int base = (isCoding ? CODING : NON_CODING) * 4;
+            for (int i=pos-(int)offset; i<runEnd-(int)offset; i++)
+            {
+                int code = Nucleotides.code((char)(chunk[i] & 0xFF));
+                if (code >= 0) counts[base + code]++;
+            }
+            pos = runEnd;
+        }
+        return counts;
+    }
+
+    private void add(long[] chunkCounts)
+    {
+        for (int b=0; b<4; b++)
+        {
+            counts[CODING][b] += chunkCounts[CODING * 4 + b];
+            counts[NON_CODING][b] += chunkCounts[NON_CODING * 4 + b];
+        }
+    }
+}
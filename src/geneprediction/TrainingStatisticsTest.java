@@ -0,0 +1,151 @@
+package geneprediction;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+
+import stringsearch.PackedSequence;
+
+/**
+ * This class tests the streamed base counts of the <code>TrainingStatistics</code> class against counting
+ * the sequence parsed by <code>SeqDataParser.readFasta()</code> position by position using the JUnit unittesting framework
+ */
+public class TrainingStatisticsTest
+{
+    private ArrayList<String> fastas;
+    private ArrayList<BitSet> codings;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //multi fasta files w/ messy whitespace (carriage returns, tabs, blank lines, trailing spaces),
+        //soft-masked bases, N runs and random coding regions (incl. regions beyond the end of the sequence)
+        Random random = new Random(49);
+        this.fastas = new ArrayList<String>();
+        this.codings = new ArrayList<BitSet>();
+
+        for (int f=0; f<50; f++)
+        {
+            StringBuilder fasta = new StringBuilder();
+            int total = 0;
+            int records = random.nextInt(5);
+            for (int r=0; r<records; r++)
+            {
+                if (r > 0 || random.nextBoolean()) fasta.append(">record").append(r).append(" some > description\t").append(random.nextBoolean() ? "\r\n" : "\n");
+                int length = random.nextInt(3000);
+                for (int i=0; i<length; i++)
+                {
+                    fasta.append("ACGTacgtN".charAt(random.nextInt(9)));
+                    if (random.nextInt(60) == 0) fasta.append(new String[]{"\n", "\r\n", " \n", "\t", "\n\n"}[random.nextInt(5)]);
+                }
+                fasta.append("\n");
+                total += length;
+            }
+
+            BitSet coding = new BitSet();
+            int genes = random.nextInt(20);
+            for (int g=0; g<genes; g++)
+            {
+                int start = random.nextInt(total + 10);
+                coding.set(start, start + 1 + random.nextInt(500));
+            }
+            fastas.add(fasta.toString());
+            codings.add(coding);
+        }
+    }
+
+    private static long[][] bruteForce(String seq, BitSet coding)
+    {
+        //counts[CODING or NON_CODING][A, C, G, T] position by position
+        long[][] counts = new long[2][4];
+        for (int i=0; i<seq.length(); i++)
+        {
+            int code = "ACGT".indexOf(Character.toUpperCase(seq.charAt(i)));
+            if (code >= 0) counts[coding.get(i) ? TrainingStatistics.CODING : TrainingStatistics.NON_CODING][code]++;
+        }
+        return counts;
+    }
+
+    private static String readFasta(byte[] fasta) throws IOException
+    {
+        PackedSequence seq = new PackedSequence();
+        SeqDataParser.readFasta(new ByteArrayInputStream(fasta), seq, new ArrayList<String>(), new ArrayList<Integer>());
+        return seq.toString();
+    }
+
+    private static void assertCounts(long[][] expected, long length, TrainingStatistics stats)
+    {
+        assertEquals(length, stats.getLength());
+        for (int region: new int[]{TrainingStatistics.CODING, TrainingStatistics.NON_CODING})
+        {
+            long total = 0;
+            for (int b=0; b<4; b++)
+            {
+                assertEquals(expected[region][b], stats.getCount(region, "ACGT".charAt(b)));
+                assertEquals(expected[region][b], stats.getCount(region, "acgt".charAt(b)));
+                total += expected[region][b];
+            }
+            assertEquals(total, stats.getTotal(region));
+            for (char c: "NnRY- ".toCharArray()) assertEquals(0, stats.getCount(region, c));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the counts of the fasta streams must equal the counts of the sequences parsed by readFasta(),
+     * whatever the number of threads
+     */
+    @Test
+    public void compareCounts() throws IOException
+    {
+        for (int f=0; f<fastas.size(); f++)
+        {
+            byte[] fasta = fastas.get(f).getBytes();
+            String seq = readFasta(fasta);
+            long[][] expected = bruteForce(seq, codings.get(f));
+
+            for (int nThreads: new int[]{1, 4})
+            {
+                assertCounts(expected, seq.length(), TrainingStatistics.count(new ByteArrayInputStream(fasta), codings.get(f), nThreads));
+            }
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * a gzipped genome w/ several chunks (coding regions across the chunk borders) must be counted like the parsed sequence
+     */
+    @Test
+    public void compareGzipFile() throws IOException
+    {
+        Random random = new Random(490);
+        StringBuilder fasta = new StringBuilder(">chromosome\n");
+        for (int i=0; i<10000000; i++)
+        {
+            fasta.append("ACGTN".charAt(random.nextInt(5)));
+            if (i % 80 == 79) fasta.append('\n');
+        }
+        BitSet coding = new BitSet();
+        for (int start=random.nextInt(1000); start<10000000; start+=random.nextInt(20000)) coding.set(start, start + random.nextInt(3000));
+        coding.set((1 << 22) - 5, (1 << 22) + 5);
+
+        File file = File.createTempFile("genome", ".fna.gz");
+        file.deleteOnExit();
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file)))
+        {
+            out.write(fasta.toString().getBytes());
+        }
+
+        String seq = readFasta(fasta.toString().getBytes());
+        assertCounts(bruteForce(seq, coding), seq.length(), TrainingStatistics.count(file.getPath(), coding, 3));
+    }
+}
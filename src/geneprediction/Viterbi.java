@@ -2,175 +2,125 @@ package geneprediction;
 
 import geneprediction.State;
 import geneprediction.HMM;
-import java.lang.StringBuffer;
+import geneprediction.CompiledHMM;
 
 public class Viterbi
 {
     //Java implementation of the viterbi algorithm
     //calculates the most likely (hidden) state path
     //based on a hidden markov model (HMM)
+    //works in log space (sums of log probabilities instead of products of probabilities, which underflow to 0.0
+    //after a few hundred observations) on the dense tables of a CompiledHMM:
+    //the observations are encoded as symbol codes (byte[]) and the path is returned as state indices (byte[]),
+    //so a decode takes O(n * states^2) time w/o any lookups or allocations in the inner loop
 
-    private State[] states;
-    private double[][] transitionP;
+    private CompiledHMM model;
     private int totalStates;
 
     public Viterbi(HMM hmm)
     {
-        this.states = hmm.getStates();
-        this.totalStates = hmm.getTotalStates();
-        this.transitionP = hmm.getTransitionProbabilities();
+        this(hmm.compile());
     }
 
     public Viterbi(State[] states, double[][] transitionP)
     {
-        this.states = states;
-        this.totalStates = states.length;
-        this.transitionP = transitionP;
+        this(new CompiledHMM(states, transitionP));
     }
 
-    private int argMax(double[][] viterbiMatrix, String[] observedEmissions, int currObs, int currState, int totalStates)
+    public Viterbi(CompiledHMM model)
     {
-        double[] values = new double[totalStates];
+        //the backpointers are stored as bytes
+        if (model.totalStates > Byte.MAX_VALUE) throw new IllegalArgumentException("The viterbi algorithm supports at most " + Byte.MAX_VALUE + " states!");
 
-        for (int i=0; i<totalStates; i++)
-        {
-            values[i] = viterbiMatrix[i][currObs] * this.transitionP[i][currState] * this.states[currState].getEmissionProbalities().get(observedEmissions[currObs]);
-        }
-
-        double mxValue = 0.0;
-        int mxI = 0;
-        
-        for (int i=0; i<values.length; i++)
-        {
-            if (values[i] > mxValue)
-            {
-                mxValue = values[i];
-                mxI = i;
-            }
-        }
-        
-        return mxI;
+        this.model = model;
+        this.totalStates = model.totalStates;
     }
 
-    private int argMax(double[][] viterbiMatrix, String observedEmissions, int currObs, int currState, int totalStates)
-    {
-        double[] values = new double[totalStates];
+    public CompiledHMM getModel() {return model;}
 
-        for (int i=0; i<totalStates; i++)
-        {
-            values[i] = viterbiMatrix[i][currObs] * this.transitionP[i][currState] * this.states[currState].getEmissionProbalities().get(Character.toString(observedEmissions.charAt(currObs)));
-        }
+    public byte[] encode(CharSequence observedEmissions) {return model.encode(observedEmissions);}
 
-        double mxValue = 0.0;
-        int mxI = 0;
-        
-        for (int i=0; i<values.length; i++)
-        {
-            if (values[i] > mxValue)
-            {
-                mxValue = values[i];
-                mxI = i;
-            }
-        }
-        
-        return mxI;
-    }
+    public byte[] encode(String[] observedEmissions) {return model.encode(observedEmissions);}
 
-    public String[] calcBestStatePath(String[] observedEmissions)
+    public byte[] decode(byte[] obs)
     {
-        int totalStates = this.totalStates;
-        int totalObservations = observedEmissions.length;
-        String[] bestStatePath = new String[totalObservations];
-        int k = 0;
-
-        //matrix to store the best path probabilities
-        double[][] viterbiMatrix = new double[totalStates][totalObservations];
-
-        //matrix to store the indices of the states associated with the current best path probability (used in backtracing later)
-        int[][] stateMatrix = new int[totalStates][totalObservations];   
-
-        //initialize the first column of the matrix (==start of the state path)
-        for (int s=0; s<totalStates; s++) viterbiMatrix[s][0] = states[s].getInitialP() * states[s].getEmissionProbalities().get(observedEmissions[0]); 
-
-        //calculate the probability of each state path (refer to the recursive definition of the algorithm for details)
-        for (int o=1; o<totalObservations; o++)
+        //log space viterbi algorithm on encoded observations, returns the state index of every observation
+        //only two columns of scores are kept, the backpointers need one byte per observation and state
+
+        int n = obs.length;
+        int S = totalStates;
+        double[] logInitial = model.logInitial;
+        double[][] logTransition = model.logTransition;
+        double[][] logEmission = model.logEmission;
+        if ((long)n * S > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many observations for the backpointer table, use CheckpointViterbi or StreamingViterbi!");
+        byte[] path = new byte[n];
+        if (n == 0) return path;
+
+        double[] prev = new double[S];
+        double[] curr = new double[S];
+        byte[] backpointers = new byte[n * S];
+
+        //initialize the first column (==start of the state path)
+        for (int s=0; s<S; s++) prev[s] = logInitial[s] + logEmission[s][obs[0]];
+
+        for (int o=1; o<n; o++)
         {
-            for(int s=0; s<totalStates; s++)
+            int symbol = obs[o];
+            for (int s=0; s<S; s++)
             {
-                k = argMax(viterbiMatrix, observedEmissions, o-1, s, totalStates); 
-                viterbiMatrix[s][o] = viterbiMatrix[k][o-1] * this.transitionP[k][s] * states[s].getEmissionProbalities().get(observedEmissions[o]);
-                stateMatrix[s][o] = k;
+                //best predecessor of state s
+                int k = 0;
+                double best = prev[0] + logTransition[0][s];
+                for (int i=1; i<S; i++)
+                {
+                    double v = prev[i] + logTransition[i][s];
+                    if (v > best)
+                    {
+                        best = v;
+                        k = i;
+                    }
+                }
+                curr[s] = best + logEmission[s][symbol];
+                backpointers[o * S + s] = (byte)k;
             }
+
+            double[] tmp = prev;
+            prev = curr;
+            curr = tmp;
         }
 
-        //find the start state for the backtracing (will be the last state of the best state path at the end)
-        double mxValue = 0.0;
-        for (int i=0; i<totalStates; i++)
+        //best last state, then follow the backpointers
+        int k = 0;
+        for (int s=1; s<S; s++)
         {
-            if (viterbiMatrix[i][totalObservations-1] > mxValue)
-            {
-                mxValue = viterbiMatrix[i][totalObservations-1];
-                k = i;
-            }
+            if (prev[s] > prev[k]) k = s;
         }
-
-        //find the best state path using the state/pointer matrix built earlier (backtracing)
-        for (int o=totalObservations-1; o>-1; o--)
+        for (int o=n-1; o>=0; o--)
         {
-            bestStatePath[o] = this.states[k].getName();
-            k = stateMatrix[k][o];
+            path[o] = (byte)k;
+            k = backpointers[o * S + k];
         }
-
-        return bestStatePath;
+        return path;
     }
 
-    public String calcBestStatePath(String observedEmissions)
-    {
-        int totalStates = this.totalStates;
-        int totalObservations = observedEmissions.length();
-        String bestStatePath = "";
-        int k = 0;
-
-        //matrix to store the best path probabilities
-        double[][] viterbiMatrix = new double[totalStates][totalObservations];
-
-        //matrix to store the indices of the states associated with the current best path probability (used in backtracing later)
-        int[][] stateMatrix = new int[totalStates][totalObservations];
+    public String getStateName(int state) {return model.getStateName(state);}
 
-        //initialize the first column of the matrix (==start of the state path)
-        for (int s=0; s<totalStates; s++) viterbiMatrix[s][0] = states[s].getInitialP() * states[s].getEmissionProbalities().get(Character.toString(observedEmissions.charAt(0))); 
-
-        //calculate the probability of each state path (refer to the recursive definition of the algorithm for details)
-        for (int o=1; o<totalObservations; o++)
-        {
-            for(int s=0; s<totalStates; s++)
-            {
-                k = argMax(viterbiMatrix, observedEmissions, o-1, s, totalStates); 
-                viterbiMatrix[s][o] = viterbiMatrix[k][o-1] * this.transitionP[k][s] * states[s].getEmissionProbalities().get(Character.toString(observedEmissions.charAt(o)));
-                stateMatrix[s][o] = k;
-            }
-        }
+    public String[] calcBestStatePath(String[] observedEmissions)
+    {
+        byte[] path = decode(encode(observedEmissions));
+        String[] bestStatePath = new String[path.length];
+        for (int o=0; o<path.length; o++) bestStatePath[o] = model.getStateName(path[o]);
 
-        //find the start state for the backtracing (will be the last state of the best state path at the end)
-        double mxValue = 0.0;
-        for (int i=0; i<totalStates; i++)
-        {
-            if (viterbiMatrix[i][totalObservations-1] > mxValue)
-            {
-                mxValue = viterbiMatrix[i][totalObservations-1];
-                k = i;
-            }
-        }
+        return bestStatePath;
+    }
 
-        //find the best state path using the state/pointer matrix built earlier (backtracing)
-        for (int o=totalObservations-1; o>-1; o--)
-        {
-            bestStatePath += this.states[k].getName();
-            k = stateMatrix[k][o];
-        }
+    public String calcBestStatePath(CharSequence observedEmissions)
+    {
+        byte[] path = decode(encode(observedEmissions));
+        StringBuilder bestStatePath = new StringBuilder(path.length);
+        for (byte s: path) bestStatePath.append(model.getStateName(s));
 
-        //reverse the bestStatePath string (since we started the backtrace at the end) and return it
-        return new StringBuffer(bestStatePath).reverse().toString();
+        return bestStatePath.toString();
     }
 
     public void printMatrix(double[][] m)
@@ -0,0 +1,188 @@
+package geneprediction;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the log space decoding of the <code>Viterbi</code> class against the best of all state paths
+ * (short observations) and a straightforward dynamic programming table (long observations) using the JUnit unittesting framework
+ */
+public class ViterbiTest
+{
+    private static final String[] SYMBOLS = {"A", "C", "G", "T"};
+
+    private ArrayList<CompiledHMM> models;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //random models w/ 1 to 4 states, some transitions and emissions are impossible (probability 0)
+        Random random = new Random(41);
+        this.models = new ArrayList<CompiledHMM>();
+
+        for (int m=0; m<200; m++) models.add(randomModel(random, 1 + random.nextInt(4)));
+    }
+
+    private static CompiledHMM randomModel(Random random, int totalStates)
+    {
+        String[] names = new String[totalStates];
+        double[] initial = new double[totalStates];
+        double[][] transition = new double[totalStates][];
+        double[][] emission = new double[totalStates][];
+        for (int s=0; s<totalStates; s++)
+        {
+            names[s] = String.valueOf((char)('a' + s));
+            initial[s] = 1.0 / totalStates;
+            transition[s] = randomDistribution(random, totalStates);
+            emission[s] = randomDistribution(random, SYMBOLS.length);
+        }
+        return new CompiledHMM(names, SYMBOLS, initial, transition, emission);
+    }
+
+    private static double[] randomDistribution(Random random, int size)
+    {
+        //every 5th probability is 0 (but at least one is > 0)
+        double[] p = new double[size];
+        double sum = 0;
+        for (int i=0; i<size; i++)
+        {
+            p[i] = (random.nextInt(5) == 0 && i > 0) ? 0.0 : 0.05 + random.nextDouble();
+            sum += p[i];
+        }
+        for (int i=0; i<size; i++) p[i] /= sum;
+
+        return p;
+    }
+
+    private static double logP(CompiledHMM model, byte[] obs, byte[] path)
+    {
+        //log probability of the observations along a state path
+        double logP = 0;
+        for (int o=0; o<obs.length; o++)
+        {
+            logP += (o == 0) ? Math.log(model.getInitialP(path[0])) : Math.log(model.getTransitionP(path[o-1], path[o]));
+            logP += Math.log(model.getEmissionP(path[o], obs[o]));
+        }
+        return logP;
+    }
+
+    private static double bruteForce(CompiledHMM model, byte[] obs)
+    {
+        //best log probability of all states^n state paths
+        int S = model.getTotalStates();
+        int total = (int)Math.pow(S, obs.length);
+        double best = Double.NEGATIVE_INFINITY;
+        byte[] path = new byte[obs.length];
+        for (int p=0; p<total; p++)
+        {
+            for (int o=0, rest=p; o<obs.length; o++, rest/=S) path[o] = (byte)(rest % S);
+            best = Math.max(best, logP(model, obs, path));
+        }
+        return best;
+    }
+
+    private static double table(CompiledHMM model, byte[] obs)
+    {
+        //best log probability from a full n x states table
+        int S = model.getTotalStates();
+        double[][] v = new double[obs.length][S];
+        for (int s=0; s<S; s++) v[0][s] = Math.log(model.getInitialP(s)) + Math.log(model.getEmissionP(s, obs[0]));
+        for (int o=1; o<obs.length; o++)
+        {
+            for (int s=0; s<S; s++)
+            {
+                v[o][s] = Double.NEGATIVE_INFINITY;
+                for (int k=0; k<S; k++) v[o][s] = Math.max(v[o][s], v[o-1][k] + Math.log(model.getTransitionP(k, s)));
+                v[o][s] += Math.log(model.getEmissionP(s, obs[o]));
+            }
+        }
+
+        double best = Double.NEGATIVE_INFINITY;
+        for (int s=0; s<S; s++) best = Math.max(best, v[obs.length-1][s]);
+        return best;
+    }
+
+    private static void assertLogP(double expected, double actual)
+    {
+        //equal up to rounding (or both impossible)
+        if (expected == Double.NEGATIVE_INFINITY) assertEquals(expected, actual, 0.0);
+        else assertEquals(expected, actual, 1e-9 * Math.max(1.0, Math.abs(expected)));
+    }
+
+    /**
+     * JUnit unittest:
+     * the decoded path of short observations (incl. unknown symbols) must be one of the most likely state paths
+     */
+    @Test
+    public void compareShortObservations()
+    {
+        Random random = new Random(410);
+        for (CompiledHMM model: models)
+        {
+            Viterbi viterbi = new Viterbi(model);
+            for (int q=0; q<5; q++)
+            {
+                byte[] obs = viterbi.encode(RandomSequences.randomSeq(random, 1 + random.nextInt(7), "ACGTacgtN"));
+                byte[] path = viterbi.decode(obs);
+
+                assertEquals(obs.length, path.length);
+                assertLogP(bruteForce(model, obs), logP(model, obs, path));
+            }
+        }
+        assertEquals(0, new Viterbi(models.get(0)).decode(new byte[0]).length);
+    }
+
+    /**
+     * JUnit unittest:
+     * the decoded path of long observations (far below the smallest double as a product) must have the best log probability
+     */
+    @Test
+    public void compareLongObservations()
+    {
+        Random random = new Random(411);
+        for (int m=0; m<20; m++)
+        {
+            CompiledHMM model = models.get(m);
+            byte[] obs = model.encode(RandomSequences.randomSeq(random, 5000 + random.nextInt(5000), "ACGT"));
+            byte[] path = new Viterbi(model).decode(obs);
+
+            assertLogP(table(model, obs), logP(model, obs, path));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the state and symbol based constructors and calcBestStatePath() must give the path of the compiled model
+     */
+    @Test
+    public void compareStatePaths()
+    {
+        char[] emissions = {'A', 'C', 'G', 'T'};
+        State[] states = {new State("C", emissions, new double[]{0.1, 0.4, 0.4, 0.1}, 0.5),
+                          new State("N", emissions, new double[]{0.3, 0.2, 0.2, 0.3}, 0.5)};
+        double[][] transitionP = {{0.9, 0.1}, {0.2, 0.8}};
+
+        String seq = RandomSequences.randomSeq(new Random(412), 1000, "ACGT");
+        Viterbi viterbi = new Viterbi(states, transitionP);
+        byte[] path = viterbi.decode(viterbi.encode(seq));
+
+        StringBuilder expected = new StringBuilder();
+        for (byte s: path) expected.append(viterbi.getStateName(s));
+        assertEquals(expected.toString(), viterbi.calcBestStatePath(seq));
+        assertEquals(expected.toString(), new Viterbi(new HMM(states, transitionP)).calcBestStatePath(seq));
+        assertEquals(expected.toString(), String.join("", viterbi.calcBestStatePath(seq.split(""))));
+    }
+
+    /**
+     * JUnit unittest:
+     * models w/ more states than the byte backpointers can address are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectTooManyStates()
+    {
+        new Viterbi(randomModel(new Random(413), Byte.MAX_VALUE + 1));
+    }
+}
@@ -0,0 +1,185 @@
+package stringsearch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import stringsearch.CompactTrie;
+
+public class AhoCorasick
+{
+    //Aho-Corasick automaton
+    //searches any number of patterns in a single pass over the text
+    //the patterns are first inserted into a CompactTrie (array form of the Node trie that Trie uses for suffixes),
+    //which is then compiled into flat arrays (transition table, failure links and output sets)
+    //enables O(n + z) searching after construction (n: length of text, z: number of hits)
+
+    String[] patterns;
+    int totalStates;
+    int alphabetSize;
+    int[] charClass;     //column of every ASCII character in the transition table (0: character of no pattern)
+    int[] delta;         //complete transition function (trie edges + failure links), totalStates * alphabetSize entries
+    int[] fail;          //failure link of every state
+    int[] dictLink;      //next state on the failure chain w/ a non-empty output set (0: none)
+    int[] outStart;      //output set of state s: outIds[outStart[s]] ... outIds[outStart[s+1]-1]
+    int[] outIds;
+    int[] patternLength;
+    int[] endNodes;      //state at which every pattern ends
+
+    public AhoCorasick(String[] patterns)
+    {
+        this.patterns = patterns;
+        compile(buildTrie(patterns));
+    }
+
+    private CompactTrie buildTrie(String[] patterns)
+    {
+        //insert every pattern into a trie and remember at which node every pattern ends
+
+        StringBuilder alphabet = new StringBuilder();
+        this.charClass = new int[256];
+        this.patternLength = new int[patterns.length];
+
+        for (int p=0; p<patterns.length; p++)
+        {
+            String pattern = patterns[p];
+            if (pattern.isEmpty()) throw new IllegalArgumentException("pattern " + p + " is empty!");
+
+            for (int i=0; i<pattern.length(); i++)
+            {
+                char c = pattern.charAt(i);
+                if (c > 255) throw new IllegalArgumentException("pattern " + p + " contains a non-ASCII character!");
+                if (charClass[c] == 0) charClass[c] = alphabet.append(c).length();
+            }
+            patternLength[p] = pattern.length();
+        }
+
+        //column 0 of the transition table is reserved for characters that are not part of any pattern,
+        //so charClass[c] = slot of c in the trie + 1
+        CompactTrie trie = new CompactTrie(alphabet.toString());
+        this.alphabetSize = alphabet.length() + 1;
+        this.endNodes = new int[patterns.length];
+
+        for (int p=0; p<patterns.length; p++) endNodes[p] = trie.insert(patterns[p]);
+
+        return trie;
+    }
+
+    private void compile(CompactTrie trie)
+    {
+        //copy the trie edges into the transition table (the trie's node ids are used as state ids)
+
+        int n = trie.getTotalNodes();
+        int sigma = this.alphabetSize;
+        this.totalStates = n;
+        this.delta = new int[n * sigma];
+        this.fail = new int[n];
+        this.dictLink = new int[n];
+        this.outStart = new int[n + 1];
+
+        for (int s=0; s<n; s++)
+        {
+            delta[s * sigma] = -1;
+            for (int slot=0; slot<sigma-1; slot++) delta[s * sigma + slot + 1] = trie.child(s, slot);
+        }
+
+        //flatten the output sets (the patterns ending at every state)
+        for (int p=0; p<patterns.length; p++) outStart[endNodes[p] + 1]++;
+        for (int s=0; s<n; s++) outStart[s+1] += outStart[s];
+
+        this.outIds = new int[patterns.length];
+        int[] filled = new int[n];
+        for (int p=0; p<patterns.length; p++) outIds[outStart[endNodes[p]] + filled[endNodes[p]]++] = p;
+
+        /*compute the failure links breadth-first:
+        missing edges of a state are taken from its failure state (whose row is already complete),
+        which turns the trie into a complete automaton w/o any failure transitions during the search*/
+
+        ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+
+        for (int c=0; c<sigma; c++)
+        {
+            int u = delta[c];
+            if (u == -1) delta[c] = 0;
+            else
+            {
+                fail[u] = 0;
+                queue.add(u);
+            }
+        }
+
+        while (!queue.isEmpty())
+        {
+            int s = queue.poll();
+            int f = fail[s];
+            dictLink[s] = (outStart[f+1] > outStart[f]) ? f : dictLink[f];
+
+            for (int c=0; c<sigma; c++)
+            {
+                int u = delta[s * sigma + c];
+                if (u == -1) delta[s * sigma + c] = delta[f * sigma + c];
+                else
+                {
+                    fail[u] = delta[f * sigma + c];
+                    queue.add(u);
+                }
+            }
+        }
+    }
+
+    void foldCase()
+    {
+        //let lower case letters of the text take the transitions of their upper case letters
+        //(for automatons of upper case patterns, e.g. to match soft-masked sequences)
+        for (char c='A'; c<='Z'; c++)
+        {
+            if (charClass[Character.toLowerCase(c)] == 0) charClass[Character.toLowerCase(c)] = charClass[c];
+        }
+    }
+
+    public int getTotalPatterns() {return patterns.length;}
+    public int getTotalStates() {return totalStates;}
+    public String getPattern(int patternId) {return patterns[patternId];}
+
+    public ArrayList<int[]> search(String text)
+    {
+        //search all patterns in the text
+        //every hit is returned as {patternId, position of the 1st character of the pattern in the text}
+
+        ArrayList<int[]> hits = new ArrayList<int[]>();
+        search(text, (patternId, position) -> hits.add(new int[]{patternId, position}));
+
+        return hits;
+    }
+
+    public void search(String text, MultiHitSink sink)
+    {
+        //report every hit to the sink (stops as soon as the sink returns false)
+
+        int sigma = this.alphabetSize;
+        int state = 0;
+
+        for (int i=0; i<text.length(); i++)
+        {
+            char c = text.charAt(i);
+            state = delta[state * sigma + (c < 256 ? charClass[c] : 0)];
+
+            //report the output set of the current state and of every state on its dictionary suffix chain
+            for (int s = (outStart[state+1] > outStart[state]) ? state : dictLink[state]; s != 0; s = dictLink[s])
+            {
+                for (int k=outStart[s]; k<outStart[s+1]; k++)
+                {
+                    int p = outIds[k];
+                    if (!sink.hit(p, i - patternLength[p] + 1)) return;
+                }
+            }
+        }
+    }
+
+    public long count(String text)
+    {
+        HitCounter counter = new HitCounter();
+        search(text, counter);
+
+        return counter.getCount();
+    }
+}
@@ -0,0 +1,98 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the <code>AhoCorasick</code> automaton against a brute force search
+ * (<code>String.indexOf()</code> for every pattern) using the JUnit unittesting framework
+ */
+public class AhoCorasickTest
+{
+    private ArrayList<String> texts;
+    private ArrayList<String[]> patternSets;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //random DNA texts w/ random pattern sets (overlapping patterns, duplicates and characters that are not in the text)
+        Random random = new Random(26);
+        this.texts = new ArrayList<String>();
+        this.patternSets = new ArrayList<String[]>();
+
+        for (int t=0; t<200; t++)
+        {
+            texts.add(RandomSequences.randomSeq(random, random.nextInt(500), "ACGT"));
+
+            String[] patterns = new String[1 + random.nextInt(20)];
+            for (int p=0; p<patterns.length; p++) patterns[p] = RandomSequences.randomSeq(random, 1 + random.nextInt(5), (random.nextInt(10) == 0) ? "ACGTX" : "ACGT");
+            patternSets.add(patterns);
+        }
+    }
+
+    private static HashSet<String> bruteForce(String text, String[] patterns)
+    {
+        //every occurrence of every pattern as "patternId:position"
+        HashSet<String> hits = new HashSet<String>();
+        for (int p=0; p<patterns.length; p++)
+        {
+            for (int i=text.indexOf(patterns[p]); i>=0; i=text.indexOf(patterns[p], i + 1)) hits.add(p + ":" + i);
+        }
+        return hits;
+    }
+
+    /**
+     * JUnit unittest:
+     * every hit of the automaton must be an occurrence of its pattern and every occurrence must be reported
+     */
+    @Test
+    public void compareSearch()
+    {
+        for (int t=0; t<texts.size(); t++)
+        {
+            String text = texts.get(t);
+            String[] patterns = patternSets.get(t);
+            AhoCorasick automaton = new AhoCorasick(patterns);
+
+            HashSet<String> expected = bruteForce(text, patterns);
+            ArrayList<int[]> hits = automaton.search(text);
+            HashSet<String> found = new HashSet<String>();
+            for (int[] hit: hits) found.add(hit[0] + ":" + hit[1]);
+
+            assertEquals(expected, found);
+            assertEquals(expected.size(), hits.size());
+            assertEquals(expected.size(), automaton.count(text));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the search stops as soon as the sink returns false
+     */
+    @Test
+    public void stopEarly()
+    {
+        String text = "ACGTACGTACGT";
+        AhoCorasick automaton = new AhoCorasick(new String[]{"ACG", "CG", "G"});
+        int[] calls = new int[1];
+
+        automaton.search(text, (patternId, position) -> ++calls[0] < 4);
+        assertEquals(4, calls[0]);
+        assertTrue(automaton.search(text).size() > 4);
+    }
+
+    /**
+     * JUnit unittest:
+     * empty patterns are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectEmptyPattern()
+    {
+        new AhoCorasick(new String[]{"ACG", ""});
+    }
+}
@@ -0,0 +1,197 @@
+package stringsearch;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.TreeSet;
+
+import stringsearch.Node;
+
+public class CompactTrie
+{
+    //compact, array based trie (alternative to the LinkedHashMap based Node objects)
+    //the children of all nodes are stored in one flat int[] table w/ one row of alphabetSize slots per node,
+    //e.g. a DNA trie (5 slots: A, C, G, T, N) needs 20 bytes per node instead of >100 bytes per edge,
+    //and following an edge is a single array lookup instead of a hash map lookup
+    //the alphabet is fixed at construction; nodes are numbered in insertion order (0: root)
+
+    public static final String DNA = "ACGTN";
+
+    char[] alphabet;
+    int alphabetSize;
+    int[] slots;        //slot (column) of every character (-1: not part of the alphabet)
+    int[] children;     //children[node * alphabetSize + slot]: child of node (0: none, the root is never a child)
+    BitSet endStates;
+    int totalNodes;
+
+    public CompactTrie(String alphabet)
+    {
+        this.alphabet = alphabet.toCharArray();
+        this.alphabetSize = this.alphabet.length;
+
+        int maxChar = 0;
+        for (char c: this.alphabet) maxChar = Math.max(maxChar, c);
+
+        this.slots = new int[maxChar + 1];
+        Arrays.fill(slots, -1);
+        for (int i=0; i<alphabetSize; i++) slots[this.alphabet[i]] = i;
+
+        this.children = new int[16 * Math.max(alphabetSize, 1)];
+        this.endStates = new BitSet();
+        this.totalNodes = 1;
+    }
+
+    public CompactTrie(Node root)
+    {
+        //convert a trie of Node objects (node ids are assigned in breadth-first order)
+
+        this(alphabetOf(root));
+
+        IdentityHashMap<Node, Integer> ids = new IdentityHashMap<Node, Integer>();
+        ArrayDeque<Node> queue = new ArrayDeque<Node>();
+        ids.put(root, 0);
+        queue.add(root);
+
+        while (!queue.isEmpty())
+        {
+            Node node = queue.poll();
+            int id = ids.get(node);
+            if (node.isEndState) endStates.set(id);
+
+            for (char c: node.next.keySet())
+            {
+                Node child = node.next.get(c);
+                ids.put(child, addChild(id, c));
+                queue.add(child);
+            }
+        }
+    }
+
+    private static String alphabetOf(Node root)
+    {
+        //all edge labels of a Node trie (sorted)
+
+        TreeSet<Character> chars = new TreeSet<Character>();
+        ArrayDeque<Node> queue = new ArrayDeque<Node>();
+        queue.add(root);
+
+        while (!queue.isEmpty())
+        {
+            Node node = queue.poll();
+            chars.addAll(node.next.keySet());
+            queue.addAll(node.next.values());
+        }
+
+        StringBuilder alphabet = new StringBuilder();
+        for (char c: chars) alphabet.append(c);
+
+        return alphabet.toString();
+    }
+
+    public static CompactTrie suffixTrie(String text)
+    {
+        //suffix trie of a text (same structure as Trie.constructTrie(), alphabet: characters of the text)
+
+        TreeSet<Character> chars = new TreeSet<Character>();
+        for (int i=0; i<text.length(); i++) chars.add(text.charAt(i));
+
+        StringBuilder alphabet = new StringBuilder();
+        for (char c: chars) alphabet.append(c);
+
+        CompactTrie trie = new CompactTrie(alphabet.toString());
+        for (int s=0; s<text.length(); s++) trie.insert(text, s, text.length());
+
+        return trie;
+    }
+
+    public int getTotalNodes() {return totalNodes;}
+    public int getAlphabetSize() {return alphabetSize;}
+    public char symbol(int slot) {return alphabet[slot];}
+    public long sizeInBytes() {return 4L * alphabetSize * totalNodes + totalNodes / 8;}
+
+    public int slot(char c) {return (c < slots.length) ? slots[c] : -1;}
+
+    public boolean isEndState(int node) {return endStates.get(node);}
+    public void setEndState(int node) {endStates.set(node);}
+
+    public int child(int node, int slot)
+    {
+        //child of a node along the edge w/ the character of the given slot (-1 if there is none)
+        int child = children[node * alphabetSize + slot];
+        return (child == 0) ? -1 : child;
+    }
+
+    public int child(int node, char c)
+    {
+        int slot = slot(c);
+        return (slot < 0) ? -1 : child(node, slot);
+    }
+
+    public int addChild(int node, char c)
+    {
+        //return the child of a node along the edge c (a new node is created if there is none yet)
+
+        int slot = slot(c);
+        if (slot < 0) throw new IllegalArgumentException("'" + c + "' is not part of the alphabet of the trie!");
+
+        int i = node * alphabetSize + slot;
+        if (children[i] != 0) return children[i];
+
+        if ((totalNodes + 1) * alphabetSize > children.length) children = Arrays.copyOf(children, 2 * children.length);
+
+        children[i] = totalNodes;
+        return totalNodes++;
+    }
+
+    public int insert(String s)
+    {
+        //insert a string, mark its last node as an end state and return that node
+        int node = insert(s, 0, s.length());
+        endStates.set(node);
+
+        return node;
+    }
+
+    private int insert(String s, int from, int to)
+    {
+        int node = 0;
+        for (int i=from; i<to; i++) node = addChild(node, s.charAt(i));
+
+        return node;
+    }
+
+    public int walk(String s)
+    {
+        //node reached after reading all characters of s from the root (-1 if the path does not exist)
+
+        int node = 0;
+        for (int i=0; i<s.length() && node >= 0; i++) node = child(node, s.charAt(i));
+
+        return node;
+    }
+
+    public boolean contains(String s) {return walk(s) >= 0;}
+
+    public Node toNode()
+    {
+        //convert the trie back into Node objects (e.g. to print it w/ Trie.printTrie())
+
+        Node[] nodes = new Node[totalNodes];
+        for (int i=0; i<totalNodes; i++)
+        {
+            nodes[i] = new Node();
+            nodes[i].isEndState = endStates.get(i);
+        }
+
+        for (int node=0; node<totalNodes; node++)
+        {
+            for (int slot=0; slot<alphabetSize; slot++)
+            {
+                int child = children[node * alphabetSize + slot];
+                if (child != 0) nodes[node].next.put(alphabet[slot], nodes[child]);
+            }
+        }
+        return nodes[0];
+    }
+}
@@ -0,0 +1,124 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the array based <code>CompactTrie</code> (pattern tries, suffix tries and the conversion
+ * from and to <code>Node</code> tries) against brute force string comparisons using the JUnit unittesting framework
+ */
+public class CompactTrieTest
+{
+    private ArrayList<String> texts;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        Random random = new Random(34);
+        this.texts = new ArrayList<String>();
+        for (int t=0; t<200; t++) texts.add(RandomSequences.randomSeq(random, 1 + random.nextInt(60), "ACGT"));
+    }
+
+    private static String randomQuery(Random random, String text)
+    {
+        //random strings (incl. the empty string) and substrings of the text
+        if (random.nextBoolean()) return RandomSequences.randomSeq(random, random.nextInt(6), "ACGT");
+
+        int start = random.nextInt(text.length());
+        return text.substring(start, Math.min(text.length(), start + random.nextInt(8)));
+    }
+
+    /**
+     * JUnit unittest:
+     * a suffix trie (compact and Node based) must contain exactly the substrings of its text
+     */
+    @Test
+    public void compareSuffixTries()
+    {
+        Random random = new Random(340);
+        for (String text: texts)
+        {
+            Trie nodeTrie = new Trie(text);
+            Trie compactTrie = new Trie(text, true);
+            CompactTrie converted = new CompactTrie(nodeTrie.trie);
+
+            //one node per distinct substring (the root is the empty string)
+            HashSet<String> substrings = new HashSet<String>();
+            for (int i=0; i<=text.length(); i++)
+            {
+                for (int j=i; j<=text.length(); j++) substrings.add(text.substring(i, j));
+            }
+            assertEquals(substrings.size(), compactTrie.compactTrie.getTotalNodes());
+            assertEquals(substrings.size(), converted.getTotalNodes());
+
+            for (int q=0; q<40; q++)
+            {
+                String query = randomQuery(random, text);
+                boolean expected = !query.isEmpty() && text.contains(query);
+
+                assertEquals(query, expected, nodeTrie.search(query));
+                assertEquals(query, expected, compactTrie.search(query));
+                assertEquals(query, text.contains(query), converted.contains(query));
+            }
+            assertEquals(nodeTrie.reconstructBranches().size(), compactTrie.reconstructBranches().size());
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * a trie of inserted patterns must contain their prefixes and mark exactly the patterns as end states,
+     * the conversion to Node objects and back must keep the structure
+     */
+    @Test
+    public void comparePatternTries()
+    {
+        Random random = new Random(341);
+        for (int t=0; t<200; t++)
+        {
+            CompactTrie trie = new CompactTrie(CompactTrie.DNA);
+            HashSet<String> patterns = new HashSet<String>();
+            HashSet<String> prefixes = new HashSet<String>();
+            int totalPatterns = 1 + random.nextInt(30);
+            for (int p=0; p<totalPatterns; p++)
+            {
+                String pattern = RandomSequences.randomSeq(random, 1 + random.nextInt(8), CompactTrie.DNA);
+                int node = trie.insert(pattern);
+                assertEquals(node, trie.walk(pattern));
+                patterns.add(pattern);
+                for (int i=0; i<=pattern.length(); i++) prefixes.add(pattern.substring(0, i));
+            }
+
+            CompactTrie copy = new CompactTrie(trie.toNode());
+            assertEquals(prefixes.size(), trie.getTotalNodes());
+            assertEquals(prefixes.size(), copy.getTotalNodes());
+            assertTrue(trie.sizeInBytes() >= 4L * CompactTrie.DNA.length() * trie.getTotalNodes());
+
+            for (int q=0; q<50; q++)
+            {
+                String query = RandomSequences.randomSeq(random, random.nextInt(9), CompactTrie.DNA);
+                assertEquals(prefixes.contains(query), trie.contains(query));
+                assertEquals(prefixes.contains(query), copy.contains(query));
+                if (trie.contains(query)) assertEquals(patterns.contains(query), trie.isEndState(trie.walk(query)));
+                if (copy.contains(query)) assertEquals(patterns.contains(query), copy.isEndState(copy.walk(query)));
+            }
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * characters that are not part of the alphabet have no edges and can't be inserted
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectForeignCharacters()
+    {
+        CompactTrie trie = new CompactTrie(CompactTrie.DNA);
+        assertEquals(-1, trie.walk("X"));
+        assertEquals(-1, trie.child(0, 'X'));
+        trie.insert("ACX");
+    }
+}
@@ -0,0 +1,121 @@
+package stringsearch;
+
+import java.util.ArrayList;
+
+import stringsearch.Nucleotides;
+
+public class DegenerateSearch
+{
+    //search of degenerate DNA patterns (IUPAC codes like N, R, Y or W)
+    //every pattern position is compiled into a 4-bit mask over A, C, G and T,
+    //text characters are mapped to masks the same way (so degenerate text bases are supported as well);
+    //a pattern position matches a text character if their masks share at least one base
+    //uses the bit-parallel BNDM algorithm (backward nondeterministic DAWG matching),
+    //which skips over the text like Horspool w/o ever expanding the pattern into its literal variants
+    //patterns longer than 64 characters are searched w/ their first 64 positions and verified afterwards
+
+    String text;
+
+    public DegenerateSearch()
+    {
+        this("");
+    }
+
+    public DegenerateSearch(String text)
+    {
+        this.text = text;
+    }
+
+    public int[] compilePattern(String p)
+    {
+        //mask of every pattern position
+
+        int[] masks = new int[p.length()];
+
+        for (int i=0; i<p.length(); i++)
+        {
+            masks[i] = Nucleotides.mask(p.charAt(i));
+            if (masks[i] == 0) throw new IllegalArgumentException("'" + p.charAt(i) + "' is not an IUPAC code!");
+        }
+        return masks;
+    }
+
+    public long[] makeBitTable(int[] masks, int w)
+    {
+        /*bit vector of every text mask (0..15):
+        bit w-1-i is set if pattern position i (of the first w positions) matches the text mask*/
+
+        long[] table = new long[16];
+
+        for (int textMask=1; textMask<16; textMask++)
+        {
+            for (int i=0; i<w; i++)
+            {
+                if ((masks[i] & textMask) != 0) table[textMask] |= 1L << (w - 1 - i);
+            }
+        }
+        return table;
+    }
+
+    public ArrayList<Integer> search(String p)
+    {
+        return search(this.text, p);
+    }
+
+    public ArrayList<Integer> search(String t, String p)
+    {
+        ArrayList<Integer> hits = new ArrayList<Integer>();
+        search(t, p, hits::add);
+
+        return hits;
+    }
+
+    public void search(String t, String p, HitSink sink)
+    {
+        //report every hit to the sink (stops as soon as the sink returns false)
+
+        int n = t.length();
+        int m = p.length();
+        if (m == 0) return;
+
+        int[] masks = compilePattern(p);
+        int w = Math.min(m, 64);
+        long[] table = makeBitTable(masks, w);
+        long highBit = 1L << (w - 1);
+        int pos = 0;
+
+        while (pos <= n - m)
+        {
+            //read the window of the first w pattern positions from right to left
+            int j = w - 1;
+            int last = w;
+            long d = (w == 64) ? -1L : (1L << w) - 1;
+
+            while (d != 0 && j >= 0)
+            {
+                d &= table[Nucleotides.mask(t.charAt(pos + j))];
+
+                if ((d & highBit) != 0)
+                {
+                    //the text read so far is a prefix of the pattern
+                    if (j > 0) last = j;
+                    else if (verify(t, masks, pos, w) && !sink.hit(pos)) return;
+                }
+                d <<= 1;
+                j--;
+            }
+            pos += last;
+        }
+    }
+
+    private boolean verify(String t, int[] masks, int pos, int from)
+    {
+        //check the pattern positions that are not part of the BNDM window
+
+        for (int i=from; i<masks.length; i++)
+        {
+            if ((masks[i] & Nucleotides.mask(t.charAt(pos + i))) == 0) return false;
+        }
+        return true;
+    }
+}
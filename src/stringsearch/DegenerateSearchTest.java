@@ -0,0 +1,112 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the BNDM search of IUPAC-degenerate patterns of the <code>DegenerateSearch</code> class
+ * against a brute force comparison of every window using the JUnit unittesting framework
+ */
+public class DegenerateSearchTest
+{
+    private static final String IUPAC = "ACGTRYSWKMBDHVN";
+    private HashMap<Character, String> bases;   //bases matched by every IUPAC code (independent of Nucleotides)
+    private ArrayList<String[]> cases;          //{text, pattern}
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        this.bases = new HashMap<>();
+        String[] expansions = {"A", "C", "G", "T", "AG", "CT", "CG", "AT", "GT", "AC", "CGT", "AGT", "ACT", "ACG", "ACGT"};
+        for (int i=0; i<IUPAC.length(); i++)
+        {
+            bases.put(IUPAC.charAt(i), expansions[i]);
+            bases.put(Character.toLowerCase(IUPAC.charAt(i)), expansions[i]);
+        }
+
+        //mostly ACGT texts w/ a few degenerate (and soft-masked) bases, short patterns and patterns longer than 64 positions,
+        //half of them w/ a planted literal variant of the pattern
+        Random random = new Random(30);
+        this.cases = new ArrayList<String[]>();
+
+        for (int c=0; c<500; c++)
+        {
+            int n = random.nextInt(500);
+            int m = 1 + random.nextInt((c % 2 == 0) ? 10 : 120);
+
+            StringBuilder text = new StringBuilder();
+            for (int i=0; i<n; i++)
+            {
+                char base = (random.nextInt(30) == 0) ? IUPAC.charAt(random.nextInt(IUPAC.length())) : "ACGT".charAt(random.nextInt(4));
+                text.append((random.nextInt(20) == 0) ? Character.toLowerCase(base) : base);
+            }
+
+            StringBuilder pattern = new StringBuilder();
+            for (int i=0; i<m; i++) pattern.append((random.nextInt(3) == 0) ? IUPAC.charAt(random.nextInt(IUPAC.length())) : "ACGT".charAt(random.nextInt(4)));
+
+            if (n > m && random.nextBoolean())
+            {
+                int start = random.nextInt(n - m);
+                for (int i=0; i<m; i++)
+                {
+                    String variants = bases.get(pattern.charAt(i));
+                    text.setCharAt(start + i, variants.charAt(random.nextInt(variants.length())));
+                }
+            }
+            cases.add(new String[]{text.toString(), pattern.toString()});
+        }
+    }
+
+    private boolean matches(char p, char t)
+    {
+        //a pattern position matches a text character if both can stand for the same base
+        String pBases = bases.get(p), tBases = bases.get(t);
+        if (pBases == null || tBases == null) return false;
+
+        for (int i=0; i<pBases.length(); i++)
+        {
+            if (tBases.indexOf(pBases.charAt(i)) >= 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * JUnit unittest:
+     * the hits of DegenerateSearch must equal the windows of the text that match the pattern position by position
+     */
+    @Test
+    public void compareSearch()
+    {
+        for (String[] c: cases)
+        {
+            String text = c[0], pattern = c[1];
+
+            ArrayList<Integer> expected = new ArrayList<Integer>();
+            for (int s=0; s+pattern.length()<=text.length(); s++)
+            {
+                boolean match = true;
+                for (int i=0; i<pattern.length() && match; i++) match = matches(pattern.charAt(i), text.charAt(s + i));
+                if (match) expected.add(s);
+            }
+
+            assertEquals(pattern, expected, new DegenerateSearch(text).search(pattern));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the search stops as soon as the sink returns false
+     */
+    @Test
+    public void stopEarly()
+    {
+        ArrayList<Integer> hits = new ArrayList<Integer>();
+        new DegenerateSearch().search("GAATTCGAGTTCGACTTC", "GANTTC", position -> hits.add(position) && hits.size() < 2);
+        assertEquals(2, hits.size());
+        assertEquals(3, new DegenerateSearch("GAATTCGAGTTCGACTTC").search("GANTTC").size());
+    }
+}
@@ -0,0 +1,58 @@
+package stringsearch;
+
+import java.util.ArrayList;
+
+import stringsearch.AhoCorasick;
+import stringsearch.Nucleotides;
+
+public class DualStrandSearch
+{
+    //searches DNA patterns on both strands of a text in a single scan
+    //every pattern and its reverse complement are compiled into one Aho-Corasick automaton,
+    //so the text is read only once and no reverse complement of the text has to be built
+    //positions always refer to the given (forward) strand: a '-' hit at position i means
+    //that the reverse complement of the pattern starts at position i of the text
+    //palindromic patterns (e.g. restriction sites like GAATTC) are reported once per strand
+    //the patterns are upper-cased before both strands are compiled (reverseComplement() returns upper case)
+    //and lower case bases of the text are scanned like upper case bases, so soft-masked regions are matched too
+
+    String[] patterns;
+    AhoCorasick automaton;
+
+    public DualStrandSearch(String... patterns)
+    {
+        this.patterns = patterns;
+
+        //pattern i is stored as automaton pattern 2i (forward) and 2i+1 (reverse complement)
+        String[] both = new String[2 * patterns.length];
+        for (int i=0; i<patterns.length; i++)
+        {
+            String pattern = patterns[i].toUpperCase();
+            both[2*i] = pattern;
+            both[2*i+1] = Nucleotides.reverseComplement(pattern);
+        }
+
+        this.automaton = new AhoCorasick(both);
+        automaton.foldCase();
+    }
+
+    public int getTotalPatterns() {return patterns.length;}
+
+    public void search(String text, StrandHitSink sink)
+    {
+        //report every hit to the sink (stops as soon as the sink returns false)
+        automaton.search(text, (id, position) -> sink.hit(id >> 1, position, ((id & 1) == 0) ? '+' : '-'));
+    }
+
+    public ArrayList<int[]> search(String text)
+    {
+        //every hit is returned as {patternId, position, strand (0: '+', 1: '-')}
+
+        ArrayList<int[]> hits = new ArrayList<int[]>();
+        search(text, (patternId, position, strand) -> hits.add(new int[]{patternId, position, (strand == '+') ? 0 : 1}));
+
+        return hits;
+    }
+
+    public long count(String text) {return automaton.count(text);}
+}
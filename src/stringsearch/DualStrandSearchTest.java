@@ -0,0 +1,127 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the single-pass search on both strands of the <code>DualStrandSearch</code> class
+ * against a brute force search of every pattern and its reverse complement using the JUnit unittesting framework
+ */
+public class DualStrandSearchTest
+{
+    private ArrayList<String> texts;
+    private ArrayList<String[]> patternSets;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //random DNA texts, patterns in upper and lower case, incl. palindromic restriction sites
+        Random random = new Random(33);
+        this.texts = new ArrayList<String>();
+        this.patternSets = new ArrayList<String[]>();
+
+        for (int t=0; t<200; t++)
+        {
+            texts.add(RandomSequences.randomSeq(random, random.nextInt(1000), "ACGT"));
+
+            String[] patterns = new String[1 + random.nextInt(8)];
+            for (int p=0; p<patterns.length; p++)
+            {
+                String pattern = (random.nextInt(4) == 0) ? "GAATTC" : RandomSequences.randomSeq(random, 1 + random.nextInt(6), "ACGT");
+                patterns[p] = random.nextBoolean() ? pattern.toLowerCase() : pattern;
+            }
+            patternSets.add(patterns);
+        }
+    }
+
+    private static String reverseComplement(String seq)
+    {
+        StringBuilder rc = new StringBuilder(seq.length());
+        for (int i=seq.length()-1; i>=0; i--) rc.append("TGCA".charAt("ACGT".indexOf(seq.charAt(i))));
+        return rc.toString();
+    }
+
+    /**
+     * JUnit unittest:
+     * every occurrence of a pattern ('+') and of its reverse complement ('-') must be reported exactly once
+     */
+    @Test
+    public void compareSearch()
+    {
+        for (int t=0; t<texts.size(); t++)
+        {
+            String text = texts.get(t);
+            String[] patterns = patternSets.get(t);
+
+            HashSet<String> expected = new HashSet<String>();
+            for (int p=0; p<patterns.length; p++)
+            {
+                String forward = patterns[p].toUpperCase();
+                String reverse = reverseComplement(forward);
+                for (int i=text.indexOf(forward); i>=0; i=text.indexOf(forward, i + 1)) expected.add(p + ":" + i + ":0");
+                for (int i=text.indexOf(reverse); i>=0; i=text.indexOf(reverse, i + 1)) expected.add(p + ":" + i + ":1");
+            }
+
+            DualStrandSearch search = new DualStrandSearch(patterns);
+            ArrayList<int[]> hits = search.search(text);
+            HashSet<String> found = new HashSet<String>();
+            for (int[] hit: hits) found.add(hit[0] + ":" + hit[1] + ":" + hit[2]);
+
+            assertEquals(patterns.length, search.getTotalPatterns());
+            assertEquals(expected, found);
+            assertEquals(expected.size(), hits.size());
+            assertEquals(expected.size(), search.count(text));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * a palindromic site is reported once per strand, the sink receives the strand as '+' or '-'
+     */
+    @Test
+    public void palindromes()
+    {
+        StringBuilder strands = new StringBuilder();
+        new DualStrandSearch("gaattc", "AAC").search("CCGAATTCGTTGG", (patternId, position, strand) ->
+        {
+            strands.append(patternId).append(strand).append(position).append(' ');
+            return true;
+        });
+
+        assertEquals("0+2 0-2 1-8 ", strands.toString());
+    }
+
+    /**
+     * JUnit unittest:
+     * soft-masked (lower case) bases of the text must be matched like upper case bases on both strands
+     */
+    @Test
+    public void compareSoftMasked()
+    {
+        Random random = new Random(331);
+        for (int t=0; t<texts.size(); t++)
+        {
+            String text = texts.get(t);
+            StringBuilder masked = new StringBuilder(text);
+            for (int i=0; i<masked.length(); i++)
+            {
+                if (random.nextBoolean()) masked.setCharAt(i, Character.toLowerCase(masked.charAt(i)));
+            }
+
+            DualStrandSearch search = new DualStrandSearch(patternSets.get(t));
+            HashSet<String> expected = new HashSet<String>();
+            for (int[] hit: search.search(text)) expected.add(hit[0] + ":" + hit[1] + ":" + hit[2]);
+            HashSet<String> found = new HashSet<String>();
+            for (int[] hit: search.search(masked.toString())) found.add(hit[0] + ":" + hit[1] + ":" + hit[2]);
+
+            assertEquals(expected, found);
+            assertEquals(search.count(text), search.count(masked.toString()));
+        }
+
+        assertEquals(2, new DualStrandSearch("GAATTC").count("ccgaATTcgg"));
+    }
+}
@@ -0,0 +1,430 @@
+package stringsearch;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import stringsearch.IndexFile;
+import stringsearch.Nucleotides;
+import stringsearch.SuffixArray;
+
+public class FMIndex
+{
+    //compressed FM-index of a DNA text
+    //consists of the Burrows-Wheeler transform (BWT) of the text packed into 2 bits per base,
+    //sampled occurrence tables (rank support) and a sampled suffix array (to locate the hits)
+    //uses ~0.7 bytes per base; counting takes O(m) time (m: length of pattern),
+    //locating additionally O(SA_SAMPLE_RATE) time per hit
+    //characters other than A, C, G and T are indexed as A (like bwa does) and recorded in an N-mask (sorted runs),
+    //hits overlapping a masked position are filtered out: count() subtracts the hits around the runs, which are
+    //checked against the FLANK bases stored before and after every run (locating is only needed for longer patterns)
+    //construction: the suffix array is built sequentially (SA-IS), only packing the BWT, counting the occurrences
+    //and sampling the suffix array run in parallel
+    //the tables are kept in flat buffers, so a saved index can be memory-mapped by load() w/o copying
+
+    public static final int OCC_INTERVAL = 128;   //bases per occurrence checkpoint
+    public static final int SA_SAMPLE_RATE = 32;  //every SA_SAMPLE_RATE-th text position is stored in the suffix array sample
+    public static final int FLANK = 32;           //bases stored before and after every run of N's (one packed word each)
+
+    private static final long[] REPEATED = {0x0000000000000000L, 0x5555555555555555L, 0xAAAAAAAAAAAAAAAAL, 0xFFFFFFFFFFFFFFFFL};
+
+    int n;                //length of the text (the BWT has n+1 rows including the sentinel row)
+    int primary;          //row of the sentinel in the BWT (stored as A and corrected in occ())
+    int[] C;              //C[c]: number of rows starting w/ a character smaller than c (+1 for the sentinel row)
+    LongBuffer bwt;       //32 bases per word
+    IntBuffer occ;        //occ[4*b + c]: number of c's in the first b*OCC_INTERVAL rows of the BWT
+    LongBuffer sampled;   //bit vector marking the rows whose suffix array value is sampled
+    IntBuffer sampledRank;//number of marked rows before every word of the bit vector
+    IntBuffer sampledSA;  //sampled suffix array values in row order
+    IntBuffer nRuns;      //nRuns[2r], nRuns[2r+1]: start and end (exclusive) of the r-th run of non-ACGT characters
+    LongBuffer nFlanks;   //nFlanks[2r], nFlanks[2r+1]: FLANK bases before and after the r-th run (N's as A, null for old index files)
+
+    public FMIndex(String text)
+    {
+        this(text, Runtime.getRuntime().availableProcessors());
+    }
+
+    public FMIndex(String text, int nThreads)
+    {
+        this.n = text.length();
+        construct(text, nThreads);
+    }
+
+    private FMIndex() {}
+
+    public int length() {return n;}
+
+    public long sizeInBytes()
+    {
+        return 8L * bwt.limit() + 4L * occ.limit() + 8L * sampled.limit() + 4L * sampledRank.limit() + 4L * sampledSA.limit() + 4L * nRuns.limit()
+               + ((nFlanks != null) ? 8L * nFlanks.limit() : 0);
+    }
+
+    public void save(String path) throws IOException
+    {
+        //write the index to a file (see IndexFile for the format)
+
+        IntBuffer header = IntBuffer.wrap(new int[]{n, primary, C[0], C[1], C[2], C[3], OCC_INTERVAL, SA_SAMPLE_RATE});
+        IndexFile.write(path, IndexFile.FM_INDEX, header, bwt, occ, sampled, sampledRank, sampledSA, nRuns, nFlanks);
+    }
+
+    public static FMIndex load(String path) throws IOException
+    {
+        //memory-map an index that was written by save()
+
+        Buffer[] sections = IndexFile.read(path, IndexFile.FM_INDEX);
+        IntBuffer header = (IntBuffer)sections[0];
+
+        if (header.get(6) != OCC_INTERVAL || header.get(7) != SA_SAMPLE_RATE)
+        {
+            throw new IOException(path + " : index was built w/ different sampling parameters!");
+        }
+
+        FMIndex index = new FMIndex();
+        index.n = header.get(0);
+        index.primary = header.get(1);
+        index.C = new int[]{header.get(2), header.get(3), header.get(4), header.get(5)};
+        index.bwt = (LongBuffer)sections[1];
+        index.occ = (IntBuffer)sections[2];
+        index.sampled = (LongBuffer)sections[3];
+        index.sampledRank = (IntBuffer)sections[4];
+        index.sampledSA = (IntBuffer)sections[5];
+        index.nRuns = (sections.length > 6) ? (IntBuffer)sections[6] : IntBuffer.allocate(0);
+        index.nFlanks = (sections.length > 7) ? (LongBuffer)sections[7] : null;
+
+        return index;
+    }
+
+    private void construct(String text, int nThreads)
+    {
+        //encode the text (A..T -> 1..4, sentinel -> 0) and build its suffix array
+
+        int rows = n + 1;
+        int[] s = new int[rows];
+        int[] runs = new int[16];   //start/end pairs like PackedSequence.nRuns
+        int totalRuns = 0;
+        for (int i=0; i<n; i++)
+        {
+            int code = Nucleotides.code(text.charAt(i));
+            if (code < 0)
+            {
+                if (totalRuns > 0 && runs[2*totalRuns-1] == i) runs[2*totalRuns-1]++;
+                else
+                {
+                    if (2 * totalRuns == runs.length) runs = Arrays.copyOf(runs, 2 * runs.length);
+                    runs[2*totalRuns] = i;
+                    runs[2*totalRuns+1] = i + 1;
+                    totalRuns++;
+                }
+            }
+            s[i] = Math.max(code, 0) + 1;
+        }
+        this.nRuns = IntBuffer.wrap(Arrays.copyOf(runs, 2 * totalRuns));
+
+        //the bases around every run (base k of a flank in the bits 2k and 2k+1, positions outside the text as A)
+        long[] flanks = new long[2 * totalRuns];
+        for (int r=0; r<totalRuns; r++)
+        {
+            for (int k=0; k<FLANK; k++)
+            {
+                int before = runs[2*r] - FLANK + k;
+                int after = runs[2*r+1] + k;
+                if (before >= 0) flanks[2*r] |= (long)(s[before] - 1) << (2 * k);
+                if (after < n) flanks[2*r+1] |= (long)(s[after] - 1) << (2 * k);
+            }
+        }
+        this.nFlanks = LongBuffer.wrap(flanks);
+
+        int[] sa = SuffixArray.buildSuffixArray(s, 5);
+
+        int totalBlocks = rows / OCC_INTERVAL + 1;
+        long[] bwt = new long[totalBlocks * OCC_INTERVAL / 32];
+        int[] occ = new int[4 * (totalBlocks + 1)];
+        long[] sampled = new long[totalBlocks * OCC_INTERVAL / 64];
+        int[] sampledRank = new int[sampled.length + 1];
+        int[] primary = new int[1];
+
+        //pass 1 (parallel): pack the BWT, mark the sampled rows and count the bases in every block
+        runParallel(nThreads, totalBlocks, (fromBlock, toBlock) ->
+        {
+            for (int b=fromBlock; b<toBlock; b++)
+            {
+                int end = Math.min((b + 1) * OCC_INTERVAL, rows);
+
+                for (int i=b*OCC_INTERVAL; i<end; i++)
+                {
+                    int j = sa[i];
+                    int c = (j == 0) ? 0 : s[j-1] - 1;
+                    if (j == 0) primary[0] = i;
+
+                    bwt[i >> 5] |= (long)c << ((i & 31) << 1);
+                    occ[4*(b+1) + c]++;
+                    if (j % SA_SAMPLE_RATE == 0) sampled[i >> 6] |= 1L << (i & 63);
+                }
+            }
+        });
+
+        //prefix sums of the block counts and marked rows (cheap, sequential)
+        for (int b=1; b<=totalBlocks; b++)
+        {
+            for (int c=0; c<4; c++) occ[4*b + c] += occ[4*(b-1) + c];
+        }
+        for (int w=0; w<sampled.length; w++) sampledRank[w+1] = sampledRank[w] + Long.bitCount(sampled[w]);
+
+        this.primary = primary[0];
+        this.bwt = LongBuffer.wrap(bwt);
+        this.occ = IntBuffer.wrap(occ);
+        this.sampled = LongBuffer.wrap(sampled);
+        this.sampledRank = IntBuffer.wrap(sampledRank);
+
+        int[] total = new int[4];
+        for (int c=0; c<4; c++) total[c] = occ(c, rows);
+        this.C = new int[4];
+        C[0] = 1;
+        for (int c=1; c<4; c++) C[c] = C[c-1] + total[c-1];
+
+        //pass 2 (parallel): copy the sampled suffix array values
+        int[] sampledSA = new int[sampledRank[sampled.length]];
+
+        runParallel(nThreads, totalBlocks, (fromBlock, toBlock) ->
+        {
+            int end = Math.min(toBlock * OCC_INTERVAL, rows);
+            for (int i=fromBlock*OCC_INTERVAL; i<end; i++)
+            {
+                if (isSampled(i)) sampledSA[sampledRank(i)] = sa[i];
+            }
+        });
+
+        this.sampledSA = IntBuffer.wrap(sampledSA);
+    }
+
+    private interface BlockTask
+    {
+        void run(int fromBlock, int toBlock);
+    }
+
+    private static void runParallel(int nThreads, int totalBlocks, BlockTask task)
+    {
+        //split the blocks into nThreads ranges and process them in a thread pool
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(nThreads);
+        ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+        int blocksPerThread = (totalBlocks + nThreads - 1) / nThreads;
+
+        for (int t=0; t<nThreads; t++)
+        {
+            int fromBlock = t * blocksPerThread;
+            int toBlock = Math.min(fromBlock + blocksPerThread, totalBlocks);
+            if (fromBlock >= toBlock) break;
+
+            Callable<Void> job = () -> {task.run(fromBlock, toBlock); return null;};
+            futures.add(threadPool.submit(job));
+        }
+
+        try
+        {
+            for (Future<Void> future: futures) future.get();
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            throw new RuntimeException("FM-index construction failed!", e);
+        }
+        finally
+        {
+            threadPool.shutdown();
+        }
+    }
+
+    private static int countInWord(long word, int c, int len)
+    {
+        //count the bases c in the first len bases of a packed word
+
+        long x = ~(word ^ REPEATED[c]);
+        long matches = x & (x >>> 1) & 0x5555555555555555L;
+        if (len < 32) matches &= (1L << (len << 1)) - 1;
+
+        return Long.bitCount(matches);
+    }
+
+    int occ(int c, int i)
+    {
+        //number of c's in the first i rows of the BWT
+
+        int b = i / OCC_INTERVAL;
+        int r = occ.get(4*b + c);
+        int end = i >> 5;
+
+        for (int w=b*(OCC_INTERVAL/32); w<end; w++) r += countInWord(bwt.get(w), c, 32);
+        if ((i & 31) > 0) r += countInWord(bwt.get(end), c, i & 31);
+        if (c == 0 && primary < i) r--;
+
+        return r;
+    }
+
+    private int bwtChar(int i) {return (int)(bwt.get(i >> 5) >>> ((i & 31) << 1)) & 3;}
+
+    private boolean isSampled(int i) {return ((sampled.get(i >> 6) >>> (i & 63)) & 1L) != 0;}
+
+    private int sampledRank(int i)
+    {
+        return sampledRank.get(i >> 6) + Long.bitCount(sampled.get(i >> 6) & ((1L << (i & 63)) - 1));
+    }
+
+    public int[] findInterval(String pattern)
+    {
+        //backward search: rows lo ... hi-1 of the BWT matrix start w/ the pattern
+
+        int lo = 0;
+        int hi = n + 1;
+
+        for (int k=pattern.length()-1; k>=0 && lo<hi; k--)
+        {
+            int c = Nucleotides.code(pattern.charAt(k));
+            if (c < 0) return new int[]{0, 0};
+
+            lo = C[c] + occ(c, lo);
+            hi = C[c] + occ(c, hi);
+        }
+        return (lo < hi) ? new int[]{lo, hi} : new int[]{0, 0};
+    }
+
+    public int count(String pattern)
+    {
+        //count the occurrences of the pattern in the text
+
+        int[] interval = findInterval(pattern);
+        int total = interval[1] - interval[0];
+
+        //masked positions are indexed as A, so only hits of patterns w/ an A can overlap them
+        if (total == 0 || nRuns.limit() == 0 || pattern.chars().noneMatch(c -> Nucleotides.code((char)c) == 0)) return total;
+
+        //subtract the hits around the runs (~2m windows per run) unless locating the hits is cheaper
+        int m = pattern.length();
+        if (nFlanks != null && m <= FLANK + 1 && (long)nRuns.limit() * m < (long)total * SA_SAMPLE_RATE) return total - countMasked(pattern);
+
+        int count = 0;
+        for (int row=interval[0]; row<interval[1]; row++)
+        {
+            if (!hasN(locate(row), m)) count++;
+        }
+        return count;
+    }
+
+    private int countMasked(String pattern)
+    {
+        //number of hits (w/ N's as A) overlapping a masked position: every window p ... p+m-1 overlapping a run
+        //lies within the run and its flanks (m <= FLANK + 1), a window overlapping several runs is only counted at the first one
+
+        int m = pattern.length();
+        int[] codes = new int[m];
+        boolean allA = true;
+        for (int j=0; j<m; j++)
+        {
+            codes[j] = Nucleotides.code(pattern.charAt(j));
+            allA &= (codes[j] == 0);
+        }
+
+        int masked = 0;
+        int prevEnd = 0;
+        for (int r=0; r<nRuns.limit()/2; r++)
+        {
+            int start = nRuns.get(2*r);
+            int end = nRuns.get(2*r+1);
+            int last = Math.min(end - 1, n - m);
+
+            for (int p=Math.max(start - m + 1, prevEnd); p<=last; p++)
+            {
+                if (p >= start && p + m <= end)
+                {
+                    //windows inside the run only match a pattern of A's
+                    int inside = Math.min(end - m, last) - p + 1;
+                    if (allA) masked += inside;
+                    p += inside - 1;
+                }
+                else if (matchesAroundRun(r, start, end, p, codes)) masked++;
+            }
+            prevEnd = end;
+        }
+        return masked;
+    }
+
+    private boolean matchesAroundRun(int r, int start, int end, int p, int[] codes)
+    {
+        //compare the pattern w/ the window p ... p+m-1 of the run start ... end-1 and its flanks
+
+        long before = nFlanks.get(2*r);
+        long after = nFlanks.get(2*r+1);
+
+        for (int j=0; j<codes.length; j++)
+        {
+            int pos = p + j;
+            long c = (pos < start) ? before >>> (2 * (pos - start + FLANK)) : (pos < end) ? 0 : after >>> (2 * (pos - end));
+            if ((c & 3) != codes[j]) return false;
+        }
+        return true;
+    }
+
+    private boolean hasN(int pos, int length)
+    {
+        //check if any of the positions pos ... pos+length-1 is masked (binary search for the last run starting before pos+length)
+
+        int lo = 0, hi = nRuns.limit() / 2 - 1;
+        while (lo <= hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (nRuns.get(2*mid) < pos + length) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return hi >= 0 && nRuns.get(2*hi+1) > pos;
+    }
+
+    public int locate(int row)
+    {
+        //text position of a row: walk backwards through the text (LF-mapping) until a sampled row is reached
+
+        int steps = 0;
+        while (!isSampled(row))
+        {
+            int c = bwtChar(row);
+            row = C[c] + occ(c, row);
+            steps++;
+        }
+        return sampledSA.get(sampledRank(row)) + steps;
+    }
+
+    public int[] locate(String pattern)
+    {
+        //start positions of all occurrences of the pattern in the text (in BWT row order)
+
+        int[] interval = findInterval(pattern);
+        return IntStream.range(interval[0], interval[1]).map(this::locate).filter(pos -> !hasN(pos, pattern.length())).toArray();
+    }
+
+    public void locate(String pattern, HitSink sink)
+    {
+        //report the start position of every occurrence to the sink (stops as soon as the sink returns false)
+
+        int[] interval = findInterval(pattern);
+        for (int row=interval[0]; row<interval[1]; row++)
+        {
+            int pos = locate(row);
+            if (!hasN(pos, pattern.length()) && !sink.hit(pos)) return;
+        }
+    }
+
+    public IntStream stream(String pattern)
+    {
+        //lazy stream of the start positions of all occurrences (every hit is only located when it is pulled)
+        int[] interval = findInterval(pattern);
+        return IntStream.range(interval[0], interval[1]).map(this::locate).filter(pos -> !hasN(pos, pattern.length()));
+    }
+}
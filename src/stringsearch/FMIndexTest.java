@@ -0,0 +1,150 @@
+package stringsearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the backward search, locating and the N-mask of the <code>FMIndex</code> class
+ * against a brute force search using the JUnit unittesting framework
+ */
+public class FMIndexTest
+{
+    private ArrayList<String> texts;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //random DNA texts, some w/ N's and N runs (also at both ends) and texts longer than an occurrence / sample interval
+        Random random = new Random(28);
+        this.texts = new ArrayList<String>(Arrays.asList("", "A", "ACGT", "NNNN", "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"));
+
+        for (int t=0; t<100; t++)
+        {
+            StringBuilder text = new StringBuilder(RandomSequences.randomSeq(random, random.nextInt(3000), "ACGT"));
+            if (t % 2 == 0)
+            {
+                for (int r=0; r<10 && text.length()>0; r++)
+                {
+                    int start = random.nextInt(text.length());
+                    for (int i=start; i<Math.min(start + 1 + random.nextInt(40), text.length()); i++) text.setCharAt(i, 'N');
+                }
+            }
+            texts.add(text.toString());
+        }
+    }
+
+    private static int[] bruteForceLocate(String text, String pattern)
+    {
+        //N's (and other non-ACGT characters) never match
+        ArrayList<Integer> hits = new ArrayList<Integer>();
+        if (!pattern.matches("[ACGT]*")) return new int[0];
+
+        for (int i=text.indexOf(pattern); i>=0; i=text.indexOf(pattern, i + 1)) hits.add(i);
+        return hits.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void compareQuery(FMIndex index, String text, String pattern)
+    {
+        int[] expected = bruteForceLocate(text, pattern);
+
+        int[] hits = index.locate(pattern);
+        Arrays.sort(hits);
+        assertArrayEquals(pattern, expected, hits);
+        assertEquals(expected.length, index.count(pattern));
+        assertArrayEquals(expected, index.stream(pattern).sorted().toArray());
+
+        ArrayList<Integer> sunk = new ArrayList<Integer>();
+        index.locate(pattern, position -> sunk.add(position));
+        assertArrayEquals(expected, sunk.stream().mapToInt(Integer::intValue).sorted().toArray());
+    }
+
+    private static String randomPattern(Random random, String text)
+    {
+        //random patterns (mostly absent for long patterns) and substrings of the text (may contain N's, which never match)
+        if (random.nextBoolean() || text.isEmpty()) return RandomSequences.randomSeq(random, 1 + random.nextInt(8), "ACGT");
+
+        int start = random.nextInt(text.length());
+        return text.substring(start, Math.min(text.length(), start + 1 + random.nextInt(12)));
+    }
+
+    /**
+     * JUnit unittest:
+     * count(), locate() (array, sink and stream) must find exactly the occurrences of String.indexOf(),
+     * patterns overlapping an N must not be reported (N's are indexed as A)
+     */
+    @Test
+    public void compareQueries()
+    {
+        Random random = new Random(280);
+        for (String text: texts)
+        {
+            FMIndex index = new FMIndex(text, 1 + random.nextInt(4));
+            assertEquals(text.length(), index.length());
+
+            for (int q=0; q<30; q++) compareQuery(index, text, randomPattern(random, text));
+            compareQuery(index, text, "AAAA");
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * count() must subtract exactly the hits overlapping N runs (adjacent runs, runs at both ends, long runs,
+     * patterns of A's and patterns longer than the flanks), the text is A-rich, so the hits aren't located
+     */
+    @Test
+    public void compareCountAroundRuns()
+    {
+        Random random = new Random(282);
+        for (int t=0; t<50; t++)
+        {
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 2000)
+            {
+                text.append(RandomSequences.randomSeq(random, random.nextInt(random.nextBoolean() ? 3 : 100), "AAAAAAAC"));
+                text.append("N".repeat(1 + random.nextInt(random.nextBoolean() ? 3 : 80)));
+            }
+            if (t % 2 == 0) text.append(RandomSequences.randomSeq(random, random.nextInt(50), "AAAC"));
+            FMIndex index = new FMIndex(text.toString(), 1);
+
+            for (int q=0; q<40; q++)
+            {
+                String pattern = (q % 4 == 0) ? "A".repeat(1 + random.nextInt(40)) : RandomSequences.randomSeq(random, 1 + random.nextInt(40), "AAAAAAAC");
+                assertEquals(pattern, bruteForceLocate(text.toString(), pattern).length, index.count(pattern));
+            }
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * a saved and memory-mapped index (incl. the N-mask) must answer the same queries as the original index
+     */
+    @Test
+    public void saveAndLoad() throws IOException
+    {
+        File file = File.createTempFile("fmindex", ".idx");
+        file.deleteOnExit();
+        Random random = new Random(281);
+
+        try
+        {
+            for (int t=0; t<texts.size(); t+=10)
+            {
+                String text = texts.get(t);
+                new FMIndex(text, 2).save(file.getPath());
+                FMIndex index = FMIndex.load(file.getPath());
+
+                assertEquals(text.length(), index.length());
+                for (int q=0; q<30; q++) compareQuery(index, text, randomPattern(random, text));
+                compareQuery(index, text, "AAAA");
+            }
+        }
+        finally {file.delete();}
+    }
+}
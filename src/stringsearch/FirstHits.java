@@ -0,0 +1,27 @@
+package stringsearch;
+
+import java.util.Arrays;
+
+public class FirstHits implements HitSink
+{
+    //hit sink that keeps the first n hits and stops the search as soon as it is full
+
+    private int[] hits;
+    private int size = 0;
+
+    public FirstHits(int n)
+    {
+        this.hits = new int[n];
+    }
+
+    @Override
+    public boolean hit(int position)
+    {
+        if (size < hits.length) hits[size++] = position;
+        return size < hits.length;
+    }
+
+    public int size() {return size;}
+    public boolean isFull() {return size == hits.length;}
+    public int[] getHits() {return Arrays.copyOf(hits, size);}
+}
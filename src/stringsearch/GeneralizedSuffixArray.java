@@ -0,0 +1,373 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import fastagen.Sequence;
+import fastagen.SequenceCollection;
+
+import stringsearch.SuffixArray;
+
+public class GeneralizedSuffixArray
+{
+    //suffix array + LCP array of multiple sequences (e.g. genomes) for comparing them
+    //the sequences are concatenated w/ unique separators, so no common prefix extends over the end of a sequence
+    //(construction w/ SA-IS and Kasai's algorithm in O(N) time, N: total length of the sequences)
+    //finds in O(N + output) time (MEMs: + pairs of repeats within the same sequence):
+    //- maximal exact matches (MEMs): matches between two sequences that can't be extended to the left or right
+    //- maximal unique matches (MUMs): MEMs that occur exactly once in every sequence
+    //- the longest common substring of all sequences
+    //every match is reported w/ the ids of the sequences (order of the constructor arguments) and 0-based positions
+
+    String[] names;
+    int[] starts;      //start of every sequence in the concatenation (+ total length as last element)
+    int[] s;           //concatenation (character ranks 1..sigma, separators > sigma)
+    int sigma;
+    int n;             //number of suffixes (separator suffixes excluded)
+    int[] sa;
+    int[] lcp;         //lcp[i]: lcp of the suffixes sa[i-1] and sa[i] (lcp[0] = 0)
+
+    public static class Match
+    {
+        public final int length;
+        public final int[] seqIds;
+        public final int[] positions;
+
+        Match(int length, int[] seqIds, int[] positions)
+        {
+            this.length = length;
+            this.seqIds = seqIds;
+            this.positions = positions;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder s = new StringBuilder("length " + length + ":");
+            for (int i=0; i<seqIds.length; i++) s.append(" ").append(seqIds[i]).append("@").append(positions[i]);
+
+            return s.toString();
+        }
+    }
+
+    public GeneralizedSuffixArray(SequenceCollection<String, Sequence> entries)
+    {
+        this(entries.keySet().toArray(new String[0]), entries);
+    }
+
+    private GeneralizedSuffixArray(String[] names, SequenceCollection<String, Sequence> entries)
+    {
+        this(Arrays.stream(names).map(name -> entries.get(name).getSequence()).toArray(String[]::new));
+        this.names = names;
+    }
+
+    public GeneralizedSuffixArray(String... sequences)
+    {
+        int k = sequences.length;
+        this.starts = new int[k + 1];
+        for (int i=0; i<k; i++) starts[i+1] = starts[i] + sequences[i].length() + 1;
+
+        //rank the characters of all sequences (1..sigma)
+        int[] rank = new int[Character.MAX_VALUE + 1];
+        for (String seq: sequences)
+        {
+            for (int i=0; i<seq.length(); i++) rank[seq.charAt(i)] = 1;
+        }
+        for (int c=0; c<rank.length; c++)
+        {
+            if (rank[c] != 0) rank[c] = ++sigma;
+        }
+
+        //concatenation: seq0 sep0 seq1 sep1 ... seq(k-1) sentinel(0) w/ separators sigma+1 ... sigma+k-1
+        //the separators are larger than all characters, so their suffixes end up at the end of the suffix array
+        int total = starts[k];
+        this.s = new int[Math.max(total, 1)];
+        for (int i=0; i<k; i++)
+        {
+            String seq = sequences[i];
+            for (int j=0; j<seq.length(); j++) s[starts[i] + j] = rank[seq.charAt(j)];
+            if (i < k-1) s[starts[i+1] - 1] = sigma + 1 + i;
+        }
+
+        int[] fullSA = SuffixArray.buildSuffixArray(s, sigma + k + 1);
+        int[] fullLCP = constructLCP(s, fullSA);
+
+        //drop the sentinel suffix (first) and the separator suffixes (last k-1)
+        this.n = Math.max(total - k, 0);
+        this.sa = Arrays.copyOfRange(fullSA, 1, n + 1);
+        this.lcp = Arrays.copyOfRange(fullLCP, 1, n + 1);
+        if (n > 0) lcp[0] = 0;
+    }
+
+    private static int[] constructLCP(int[] s, int[] sa)
+    {
+        //Kasai's algorithm (see SuffixArray), the unique separators stop every comparison
+
+        int n = sa.length;
+        int[] lcp = new int[n];
+        int[] rank = new int[n];
+        for (int i=0; i<n; i++) rank[sa[i]] = i;
+
+        int h = 0;
+        for (int i=0; i<n; i++)
+        {
+            if (rank[i] == 0)
+            {
+                h = 0;
+                continue;
+            }
+
+            int j = sa[rank[i] - 1];
+            while (i + h < n && j + h < n && s[i+h] == s[j+h]) h++;
+            lcp[rank[i]] = h;
+            if (h > 0) h--;
+        }
+        return lcp;
+    }
+
+    public int getTotalSequences() {return starts.length - 1;}
+    public String getName(int seqId) {return (names == null) ? String.valueOf(seqId) : names[seqId];}
+
+    public int seqId(int pos)
+    {
+        //sequence that contains a position of the concatenation
+        int i = Arrays.binarySearch(starts, pos);
+        return (i >= 0) ? i : -i - 2;
+    }
+
+    private int leftChar(int pos)
+    {
+        //character left of a suffix (0 at the start of a sequence, which is left-maximal w/ every other suffix)
+        return (pos == starts[seqId(pos)]) ? 0 : s[pos-1];
+    }
+
+    public ArrayList<Match> maximalExactMatches(int minLength)
+    {
+        //all MEMs of length >= minLength between two different sequences
+        //bottom-up traversal of the lcp intervals: the suffixes of an interval are kept in linked lists
+        //grouped by their left character; when a child interval is merged into its parent (lcp l),
+        //all pairs of suffixes from the child and the parent w/ different left characters are MEMs of length l
+        //(different children: the match can't be extended to the right, different left characters: nor to the left)
+
+        ArrayList<Match> matches = new ArrayList<Match>();
+        minLength = Math.max(minLength, 1);
+
+        int[] next = new int[n];        //linked lists of suffix positions (index: rank in the suffix array)
+        Arrays.fill(next, -1);
+
+        int[] stackLcp = new int[n + 1];
+        int[][] stackHeads = new int[n + 1][];  //per left character: first and last element of the list (null: empty)
+        int top = 0;
+        stackLcp[0] = 0;
+
+        for (int i=1; i<=n; i++)
+        {
+            int h = (i < n) ? lcp[i] : 0;
+
+            //the leaf of suffix i-1 is complete
+            int[] cur = null;
+            if (h >= minLength || lcp[i-1] >= minLength)
+            {
+                cur = emptyLists();
+                append(cur, next, leftChar(sa[i-1]), i-1);
+            }
+
+            while (h < stackLcp[top])
+            {
+                cur = merge(stackLcp[top], stackHeads[top], cur, next, minLength, matches);
+                stackHeads[top] = null;
+                top--;
+            }
+
+            if (h == stackLcp[top]) stackHeads[top] = merge(h, stackHeads[top], cur, next, minLength, matches);
+            else
+            {
+                stackLcp[++top] = h;
+                stackHeads[top] = cur;
+            }
+        }
+        return matches;
+    }
+
+    private int[] emptyLists()
+    {
+        int[] lists = new int[2 * (sigma + 1)];
+        Arrays.fill(lists, -1);
+
+        return lists;
+    }
+
+    private void append(int[] lists, int[] next, int c, int rank)
+    {
+        if (lists[2*c] < 0) lists[2*c] = rank;
+        else next[lists[2*c+1]] = rank;
+        lists[2*c+1] = rank;
+    }
+
+    private int[] merge(int l, int[] parent, int[] child, int[] next, int minLength, ArrayList<Match> matches)
+    {
+        //report the MEMs between the suffixes of parent and child and concatenate the lists
+        //(intervals w/ lcp < minLength can't produce any matches, their lists are dropped)
+
+        if (l < minLength || child == null) return (l < minLength) ? null : parent;
+        if (parent == null) return child;
+
+        for (int a=0; a<=sigma; a++)
+        {
+            for (int x=parent[2*a]; x>=0; x=next[x])
+            {
+                for (int b=0; b<=sigma; b++)
+                {
+                    if (a == b && a != 0) continue;
+
+                    for (int y=child[2*b]; y>=0; y=next[y]) addMatch(l, sa[x], sa[y], matches);
+                }
+            }
+        }
+
+        for (int c=0; c<=sigma; c++)
+        {
+            if (child[2*c] < 0) continue;
+            if (parent[2*c] < 0) parent[2*c] = child[2*c];
+            else next[parent[2*c+1]] = child[2*c];
+            parent[2*c+1] = child[2*c+1];
+        }
+        return parent;
+    }
+
+    private void addMatch(int length, int x, int y, ArrayList<Match> matches)
+    {
+        int seqX = seqId(x);
+        int seqY = seqId(y);
+        if (seqX == seqY) return;
+
+        if (seqX > seqY)
+        {
+            int tmp = x; x = y; y = tmp;
+            tmp = seqX; seqX = seqY; seqY = tmp;
+        }
+        matches.add(new Match(length, new int[]{seqX, seqY}, new int[]{x - starts[seqX], y - starts[seqY]}));
+    }
+
+    public ArrayList<Match> maximalUniqueMatches(int minLength)
+    {
+        //all MUMs of length >= minLength: matches that occur exactly once in every sequence and are left and right maximal
+        //such a match is an lcp interval of exactly k suffixes (k: number of sequences) from k different sequences,
+        //the minimum lcp inside the window is found w/ a monotone queue (O(N) in total)
+
+        ArrayList<Match> matches = new ArrayList<Match>();
+        int k = getTotalSequences();
+        if (k < 2 || n < k) return matches;
+        minLength = Math.max(minLength, 1);
+
+        int[] queue = new int[n];   //indices of the window's lcp values in increasing order of value
+        int head = 0, tail = 0;
+        int[] seen = new int[k];
+        Arrays.fill(seen, -1);
+
+        for (int lb=0; lb+k<=n; lb++)
+        {
+            int rb = lb + k - 1;
+
+            //window lcp values: lcp[lb+1] ... lcp[rb]
+            if (lb == 0)
+            {
+                for (int i=1; i<=rb; i++)
+                {
+                    while (tail > head && lcp[queue[tail-1]] >= lcp[i]) tail--;
+                    queue[tail++] = i;
+                }
+            }
+            else
+            {
+                while (tail > head && lcp[queue[tail-1]] >= lcp[rb]) tail--;
+                queue[tail++] = rb;
+            }
+            while (head < tail && queue[head] <= lb) head++;
+
+            int l = lcp[queue[head]];
+            int outside = Math.max(lcp[lb], (rb + 1 < n) ? lcp[rb+1] : 0);
+            if (l < minLength || l <= outside) continue;
+
+            //one suffix from every sequence, not all w/ the same left character
+            boolean unique = true, leftMaximal = false;
+            int[] seqIds = new int[k];
+            int[] positions = new int[k];
+            int first = leftChar(sa[lb]);
+
+            for (int i=lb; i<=rb && unique; i++)
+            {
+                int id = seqId(sa[i]);
+                if (seen[id] == lb) unique = false;
+                seen[id] = lb;
+
+                int c = leftChar(sa[i]);
+                if (c == 0 || c != first) leftMaximal = true;
+                seqIds[id] = id;
+                positions[id] = sa[i] - starts[id];
+            }
+            if (unique && leftMaximal) matches.add(new Match(l, seqIds, positions));
+        }
+        return matches;
+    }
+
+    public Match longestCommonSubstring()
+    {
+        //longest substring that occurs in all sequences (null if there is none)
+        //sliding window over the suffix array that contains suffixes of all sequences,
+        //its common prefix is the minimum lcp inside the window (monotone queue)
+
+        int k = getTotalSequences();
+        if (n == 0) return null;
+        if (k == 1) return new Match(n, new int[]{0}, new int[]{0});
+
+        int[] counts = new int[k];
+        int covered = 0;
+        int[] queue = new int[n];
+        int head = 0, tail = 0;
+
+        int bestLength = 0, bestLb = -1, bestRb = -1;
+
+        for (int lb=0, rb=0; rb<n; rb++)
+        {
+            if (counts[seqId(sa[rb])]++ == 0) covered++;
+
+            if (rb > lb)
+            {
+                while (tail > head && lcp[queue[tail-1]] >= lcp[rb]) tail--;
+                queue[tail++] = rb;
+            }
+
+            //shrink the window from the left as long as it still covers all sequences
+            while (covered == k)
+            {
+                while (head < tail && queue[head] <= lb) head++;
+                int l = lcp[queue[head]];
+
+                if (l > bestLength)
+                {
+                    bestLength = l;
+                    bestLb = lb;
+                    bestRb = rb;
+                }
+
+                if (--counts[seqId(sa[lb])] == 0) covered--;
+                lb++;
+            }
+        }
+        if (bestLength == 0) return null;
+
+        int[] seqIds = new int[k];
+        int[] positions = new int[k];
+        Arrays.fill(seqIds, -1);
+
+        for (int i=bestLb; i<=bestRb; i++)
+        {
+            int id = seqId(sa[i]);
+            if (seqIds[id] >= 0) continue;
+            seqIds[id] = id;
+            positions[id] = sa[i] - starts[id];
+        }
+        return new Match(bestLength, seqIds, positions);
+    }
+}
@@ -0,0 +1,172 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the MEMs, MUMs and the longest common substring of the <code>GeneralizedSuffixArray</code> class
+ * against brute force comparisons of all positions / substrings using the JUnit unittesting framework
+ */
+public class GeneralizedSuffixArrayTest
+{
+    private ArrayList<String[]> sets;
+    private int[] minLengths;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //2 to 4 short sequences over a binary (many repeats) or the DNA alphabet, incl. empty sequences
+        Random random = new Random(38);
+        this.sets = new ArrayList<String[]>();
+        this.minLengths = new int[300];
+
+        for (int s=0; s<minLengths.length; s++)
+        {
+            String alphabet = random.nextBoolean() ? "AC" : "ACGT";
+            String[] seqs = new String[2 + random.nextInt(3)];
+            for (int i=0; i<seqs.length; i++) seqs[i] = RandomSequences.randomSeq(random, random.nextInt(40), alphabet);
+
+            sets.add(seqs);
+            minLengths[s] = 1 + random.nextInt(4);
+        }
+    }
+
+    private static HashSet<String> substrings(String seq, int minLength)
+    {
+        HashSet<String> substrings = new HashSet<String>();
+        for (int i=0; i<seq.length(); i++)
+        {
+            for (int j=i+minLength; j<=seq.length(); j++) substrings.add(seq.substring(i, j));
+        }
+        return substrings;
+    }
+
+    private static char charAt(String seq, int i)
+    {
+        //character of a sequence, '#' before the start and after the end (never matches)
+        return (i < 0 || i >= seq.length()) ? '#' : seq.charAt(i);
+    }
+
+    /**
+     * JUnit unittest:
+     * the MEMs must be exactly the matches between two positions of different sequences
+     * that can't be extended to the left (and are extended to the right as far as possible)
+     */
+    @Test
+    public void compareMEMs()
+    {
+        for (int s=0; s<sets.size(); s++)
+        {
+            String[] seqs = sets.get(s);
+            int minLength = minLengths[s];
+
+            TreeSet<String> expected = new TreeSet<String>();
+            for (int x=0; x<seqs.length; x++)
+            {
+                for (int y=x+1; y<seqs.length; y++)
+                {
+                    for (int i=0; i<seqs[x].length(); i++)
+                    {
+                        for (int j=0; j<seqs[y].length(); j++)
+                        {
+                            if (i > 0 && j > 0 && seqs[x].charAt(i - 1) == seqs[y].charAt(j - 1)) continue;
+
+                            int length = 0;
+                            while (charAt(seqs[x], i + length) == charAt(seqs[y], j + length) && charAt(seqs[x], i + length) != '#') length++;
+                            if (length >= minLength) expected.add(x + " " + i + " " + y + " " + j + " " + length);
+                        }
+                    }
+                }
+            }
+
+            ArrayList<GeneralizedSuffixArray.Match> matches = new GeneralizedSuffixArray(seqs).maximalExactMatches(minLength);
+            TreeSet<String> found = new TreeSet<String>();
+            for (GeneralizedSuffixArray.Match m: matches) found.add(m.seqIds[0] + " " + m.positions[0] + " " + m.seqIds[1] + " " + m.positions[1] + " " + m.length);
+
+            assertEquals(Arrays.toString(seqs), expected, found);
+            assertEquals(expected.size(), matches.size());
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the MUMs must be exactly the substrings that occur once in every sequence
+     * and can't be extended to the left or right in all sequences
+     */
+    @Test
+    public void compareMUMs()
+    {
+        for (int s=0; s<sets.size(); s++)
+        {
+            String[] seqs = sets.get(s);
+            int minLength = minLengths[s];
+
+            TreeSet<String> expected = new TreeSet<String>();
+            for (String u: substrings(seqs[0], minLength))
+            {
+                int[] positions = new int[seqs.length];
+                boolean unique = true;
+                for (int x=0; x<seqs.length && unique; x++)
+                {
+                    positions[x] = seqs[x].indexOf(u);
+                    unique = positions[x] >= 0 && seqs[x].indexOf(u, positions[x] + 1) < 0;
+                }
+                if (!unique) continue;
+
+                boolean leftMaximal = false, rightMaximal = false;
+                for (int x=0; x<seqs.length; x++)
+                {
+                    char left = charAt(seqs[x], positions[x] - 1);
+                    char right = charAt(seqs[x], positions[x] + u.length());
+                    leftMaximal |= left == '#' || left != charAt(seqs[0], positions[0] - 1);
+                    rightMaximal |= right == '#' || right != charAt(seqs[0], positions[0] + u.length());
+                }
+                if (leftMaximal && rightMaximal) expected.add(Arrays.toString(positions) + " " + u.length());
+            }
+
+            TreeSet<String> found = new TreeSet<String>();
+            for (GeneralizedSuffixArray.Match m: new GeneralizedSuffixArray(seqs).maximalUniqueMatches(minLength)) found.add(Arrays.toString(m.positions) + " " + m.length);
+
+            assertEquals(Arrays.toString(seqs), expected, found);
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the longest common substring must have the length of the longest substring contained in all sequences
+     * and must start at the reported positions
+     */
+    @Test
+    public void compareLongestCommonSubstring()
+    {
+        for (String[] seqs: sets)
+        {
+            int longest = 0;
+            for (String u: substrings(seqs[0], 1))
+            {
+                boolean common = true;
+                for (String seq: seqs) common &= seq.contains(u);
+                if (common) longest = Math.max(longest, u.length());
+            }
+
+            GeneralizedSuffixArray.Match lcs = new GeneralizedSuffixArray(seqs).longestCommonSubstring();
+            if (longest == 0)
+            {
+                assertNull(lcs);
+                continue;
+            }
+
+            assertEquals(Arrays.toString(seqs), longest, lcs.length);
+            String u = seqs[0].substring(lcs.positions[0], lcs.positions[0] + longest);
+            for (int x=0; x<seqs.length; x++) assertTrue(seqs[x].startsWith(u, lcs.positions[x]));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package stringsearch;
+
+public class HitCounter implements HitSink, MultiHitSink
+{
+    //count-only hit sink (the hits themselves are not stored)
+
+    private long count = 0;
+
+    @Override
+    public boolean hit(int position)
+    {
+        count++;
+        return true;
+    }
+
+    @Override
+    public boolean hit(int patternId, int position)
+    {
+        count++;
+        return true;
+    }
+
+    public long getCount() {return count;}
+}
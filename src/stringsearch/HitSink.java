@@ -0,0 +1,9 @@
+package stringsearch;
+
+public interface HitSink
+{
+    //receives the hits of a search one at a time as primitive ints (w/o boxing or collecting them)
+    //returning false stops the search early
+
+    boolean hit(int position);
+}
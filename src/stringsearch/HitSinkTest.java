@@ -0,0 +1,128 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the streaming, count-only and first-N hit reporting (<code>HitSink</code>, <code>HitCounter</code>,
+ * <code>FirstHits</code> and the lazy streams) of the search engines against a brute force search
+ * using the JUnit unittesting framework
+ */
+public class HitSinkTest
+{
+    private ArrayList<String[]> cases; //{text, pattern}
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //binary texts and patterns (many overlapping hits) and DNA texts
+        Random random = new Random(32);
+        this.cases = new ArrayList<String[]>();
+
+        for (int c=0; c<300; c++)
+        {
+            String text = RandomSequences.randomSeq(random, random.nextInt(400), (c % 2 == 0) ? "AC" : "ACGT");
+            cases.add(new String[]{text, RandomSequences.randomSeq(random, 1 + random.nextInt(6), "AC")});
+        }
+    }
+
+    private static int[] bruteForce(String text, String pattern)
+    {
+        ArrayList<Integer> hits = new ArrayList<Integer>();
+        for (int i=text.indexOf(pattern); i>=0; i=text.indexOf(pattern, i + 1)) hits.add(i);
+        return hits.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] collect(ArrayList<Integer> hits)
+    {
+        return hits.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * JUnit unittest:
+     * lists, sinks, counts, streams and the first n hits of every engine must agree w/ the brute force search
+     */
+    @Test
+    public void compareEngines()
+    {
+        for (String[] c: cases)
+        {
+            String text = c[0], pattern = c[1];
+            int[] expected = bruteForce(text, pattern);
+            int[] firstThree = Arrays.copyOf(expected, Math.min(3, expected.length));
+
+            Horspool horspool = new Horspool(text);
+            assertArrayEquals(expected, collect(horspool.search(pattern)));
+            assertArrayEquals(expected, horspool.stream(text, pattern).toArray());
+            assertEquals(expected.length, horspool.count(text, pattern));
+            assertArrayEquals(firstThree, horspool.first(text, pattern, 3));
+
+            PatternFSM fsm = new PatternFSM();
+            assertArrayEquals(expected, collect(fsm.search(text, pattern)));
+            assertArrayEquals(expected, fsm.stream(text, pattern).toArray());
+            assertEquals(expected.length, fsm.count(text, pattern));
+
+            ArrayList<Integer> hits = new ArrayList<Integer>();
+            new ShiftAnd().search(text, pattern, hits::add);
+            assertArrayEquals(expected, collect(hits));
+
+            HitCounter counter = new HitCounter();
+            new ShiftAnd().search(text, pattern, counter);
+            assertEquals(expected.length, counter.getCount());
+
+            assertArrayEquals(expected, collect(new DegenerateSearch(text).search(pattern)));
+            assertArrayEquals(expected, new SuffixArray(text).stream(pattern).sorted().toArray());
+            assertArrayEquals(expected, new FMIndex(text, 2).stream(pattern).sorted().toArray());
+            assertEquals(expected.length, new AhoCorasick(new String[]{pattern}).count(text));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * FirstHits stores at most n hits and stops the search when it is full
+     */
+    @Test
+    public void firstHits()
+    {
+        String text = "ACACACACAC";
+        FirstHits first = new FirstHits(2);
+        new Horspool().search(text, "ACA", first);
+
+        assertTrue(first.isFull());
+        assertArrayEquals(new int[]{0, 2}, first.getHits());
+
+        first = new FirstHits(10);
+        new PatternFSM().search(text, "ACA", first);
+        assertFalse(first.isFull());
+        assertEquals(4, first.size());
+    }
+
+    /**
+     * JUnit unittest:
+     * the streams are lazy: short-circuiting operations only pull the hits they need from the search
+     */
+    @Test
+    public void lazyStreams()
+    {
+        int[] pulled = new int[1];
+        HitStream.Cursor cursor = () -> (pulled[0] < 1000) ? pulled[0]++ : -1;
+
+        assertEquals(0, HitStream.of(cursor).findFirst().getAsInt());
+        assertEquals(1, pulled[0]);
+        assertArrayEquals(new int[]{1, 2, 3}, HitStream.of(cursor).limit(3).toArray());
+        assertEquals(4, pulled[0]);
+
+        //the streams of the search engines return the hits in text order
+        String text = "GATTACA" + "C".repeat(1000);
+        assertEquals(2, new Horspool().stream(text, "TTA").findFirst().getAsInt());
+        assertEquals(2, new PatternFSM().stream(text, "TTA").findFirst().getAsInt());
+        assertEquals(3, new Horspool().stream(text, "C").limit(3).count());
+    }
+}
@@ -0,0 +1,36 @@
+package stringsearch;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+class HitStream
+{
+    //IntStream view of a search
+    //the hits are computed lazily when the stream pulls them, so short-circuiting operations
+    //like findFirst() or limit() stop the search w/o scanning the rest of the text
+
+    interface Cursor
+    {
+        int next(); //next hit of the search (-1: no more hits)
+    }
+
+    static IntStream of(Cursor cursor)
+    {
+        Spliterator.OfInt spliterator = new Spliterators.AbstractIntSpliterator(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL)
+        {
+            @Override
+            public boolean tryAdvance(IntConsumer action)
+            {
+                int hit = cursor.next();
+                if (hit < 0) return false;
+
+                action.accept(hit);
+                return true;
+            }
+        };
+        return StreamSupport.intStream(spliterator, false);
+    }
+}
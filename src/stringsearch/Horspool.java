@@ -1,6 +1,7 @@
 package stringsearch;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 public class Horspool
 {
@@ -35,27 +36,112 @@ public class Horspool
         return skip;
     }
 
-    public ArrayList<Integer> search(String p)
+    public int[] makeSkipArray(String p)
     {
-        return search(this.text, p);
+        //same skip table as makeSkipTable() as a primitive array (no boxing in the search loop)
+
+        int m = p.length();
+        int[] skip = new int[256];
+        Arrays.fill(skip, m);
+
+        for (int i=0; i<m-1; i++)
+        {
+            char c = p.charAt(i);
+            if (c < 256) skip[c] = m-i-1;
+        }
+
+        return skip;
     }
 
-    public ArrayList<Integer> search(String t, String p)
+    private int shift(int[] skip, String t, int m, int pos)
     {
-        int pos = 0;
+        char c = t.charAt(pos+m-1);
+        return (c < 256) ? skip[c] : m;
+    }
+
+    private int next(String t, String p, int[] skip, int pos)
+    {
+        //first hit at or after pos (-1 if there is none)
+
         int n = t.length();
         int m = p.length();
-        ArrayList<Integer> hits = new ArrayList<Integer>();
-        HashMap<Character, Integer> skip = makeSkipTable(t, p);
 
         while (pos < n - m + 1)
         {
-            String sub = t.substring(pos, pos+m);
-            if (sub.equals(p)) hits.add(pos);
-            pos += skip.get(t.charAt(pos+m-1));
+            if (t.startsWith(p, pos)) return pos;
+            pos += shift(skip, t, m, pos);
         }
 
+        return -1;
+    }
+
+    public ArrayList<Integer> search(String p)
+    {
+        return search(this.text, p);
+    }
+
+    public ArrayList<Integer> search(String t, String p)
+    {
+        ArrayList<Integer> hits = new ArrayList<Integer>();
+        search(t, p, hits::add);
+
         return hits;
     }
 
+    public void search(String t, String p, HitSink sink)
+    {
+        //report every hit to the sink (stops as soon as the sink returns false)
+
+        if (p.isEmpty()) return;
+
+        int[] skip = makeSkipArray(p);
+        int pos = 0;
+
+        while ((pos = next(t, p, skip, pos)) != -1)
+        {
+            if (!sink.hit(pos)) return;
+            pos += shift(skip, t, p.length(), pos);
+        }
+    }
+
+    public long count(String t, String p)
+    {
+        HitCounter counter = new HitCounter();
+        search(t, p, counter);
+
+        return counter.getCount();
+    }
+
+    public int[] first(String t, String p, int n)
+    {
+        FirstHits first = new FirstHits(n);
+        search(t, p, first);
+
+        return first.getHits();
+    }
+
+    public IntStream stream(String t, String p)
+    {
+        //lazy stream of the hits (the text is only scanned as far as the stream is consumed)
+
+        if (p.isEmpty()) return IntStream.empty();
+
+        int[] skip = makeSkipArray(p);
+
+        return HitStream.of(new HitStream.Cursor()
+        {
+            int pos = 0;
+
+            @Override
+            public int next()
+            {
+                if (pos == -1) return -1;
+
+                int hit = Horspool.this.next(t, p, skip, pos);
+                pos = (hit == -1) ? -1 : hit + shift(skip, t, p.length(), hit);
+                return hit;
+            }
+        });
+    }
+
 }
\ No newline at end of file
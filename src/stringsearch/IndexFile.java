@@ -0,0 +1,180 @@
+package stringsearch;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+public class IndexFile
+{
+    //versioned binary file format for the stringsearch indexes (SuffixArray, FMIndex)
+    //an index is stored as a list of flat arrays (sections) instead of an object graph:
+    //
+    //  file header:    magic (int), format version (int), index type (int), number of sections (int)
+    //  section header: element type (int), element size in bytes (int), number of elements (long)
+    //  section data:   the elements (little endian), padded to a multiple of 8 bytes
+    //
+    //reading memory-maps every section, so opening an index takes milliseconds
+    //and the pages are shared between all processes that use the same index file
+    //every section is mapped as a single buffer, so it is limited to MAX_SECTION_BYTES (2 GB);
+    //write() rejects larger sections before anything is written (e.g. the int suffix array of a text > 512 Mbp)
+
+    public static final int MAGIC = 0x58495353; //"SSIX"
+    public static final int VERSION = 1;
+
+    public static final int SUFFIX_ARRAY = 1;
+    public static final int FM_INDEX = 2;
+
+    private static final int BYTES = 1, CHARS = 2, INTS = 3, LONGS = 4;
+    private static final int CHUNK = 1 << 20;
+
+    public static final long MAX_SECTION_BYTES = Integer.MAX_VALUE;
+
+    public static void write(String path, int indexType, Buffer... sections) throws IOException
+    {
+        for (int s=0; s<sections.length; s++)
+        {
+            long bytes = (long)sections[s].limit() * sizeOf(typeOf(sections[s]));
+            if (bytes > MAX_SECTION_BYTES)
+            {
+                throw new IOException(String.format("%s : section %d has %d bytes, sections larger than %d bytes can't be memory-mapped!", path, s, bytes, MAX_SECTION_BYTES));
+            }
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(path, "rw"); FileChannel channel = file.getChannel())
+        {
+            channel.truncate(0);
+
+            ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(indexType).putInt(sections.length).flip();
+            writeFully(channel, header);
+
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+
+            for (Buffer section: sections)
+            {
+                int type = typeOf(section);
+                int size = sizeOf(type);
+                long length = section.limit();
+
+                ByteBuffer sectionHeader = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+                sectionHeader.putInt(type).putInt(size).putLong(length).flip();
+                writeFully(channel, sectionHeader);
+
+                //copy the elements through a direct buffer (the section itself is not modified)
+                long i = 0;
+                while (i < length)
+                {
+                    int count = (int)Math.min(length - i, CHUNK / size);
+                    Buffer part = section.duplicate().limit((int)(i + count)).position((int)i);
+                    chunk.clear();
+
+                    switch (type)
+                    {
+                        case BYTES -> chunk.put((ByteBuffer)part);
+                        case CHARS -> chunk.asCharBuffer().put((CharBuffer)part);
+                        case INTS -> chunk.asIntBuffer().put((IntBuffer)part);
+                        default -> chunk.asLongBuffer().put((LongBuffer)part);
+                    }
+                    chunk.position(0).limit(count * size);
+                    writeFully(channel, chunk);
+                    i += count;
+                }
+
+                //pad the section to a multiple of 8 bytes (keeps the mapped sections aligned)
+                int padding = (int)((8 - (length * size) % 8) % 8);
+                if (padding > 0) writeFully(channel, ByteBuffer.allocate(padding));
+            }
+        }
+    }
+
+    public static Buffer[] read(String path, int indexType) throws IOException
+    {
+        //memory-map all sections of an index file
+
+        try (RandomAccessFile file = new RandomAccessFile(path, "r"); FileChannel channel = file.getChannel())
+        {
+            ByteBuffer header = readFully(channel, 0, 16);
+
+            if (header.getInt() != MAGIC) throw new IOException(path + " is not a stringsearch index file!");
+
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException(String.format("%s : unsupported index file version %d (expected %d)!", path, version, VERSION));
+
+            int type = header.getInt();
+            if (type != indexType) throw new IOException(String.format("%s : index type %d (expected %d)!", path, type, indexType));
+
+            Buffer[] sections = new Buffer[header.getInt()];
+            long offset = 16;
+
+            for (int s=0; s<sections.length; s++)
+            {
+                ByteBuffer sectionHeader = readFully(channel, offset, 16);
+                int elementType = sectionHeader.getInt();
+                int size = sectionHeader.getInt();
+                long length = sectionHeader.getLong();
+                long bytes = length * size;
+                offset += 16;
+
+                if (bytes > MAX_SECTION_BYTES) throw new IOException(path + " : section " + s + " is too large to be mapped!");
+                if (offset + bytes > channel.size()) throw new IOException(path + " : file is truncated!");
+
+                ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, offset, bytes).order(ByteOrder.LITTLE_ENDIAN);
+
+                sections[s] = switch (elementType)
+                {
+                    case BYTES -> data;
+                    case CHARS -> data.asCharBuffer();
+                    case INTS -> data.asIntBuffer();
+                    case LONGS -> data.asLongBuffer();
+                    default -> throw new IOException(path + " : unknown section type " + elementType + "!");
+                };
+
+                offset += bytes + (8 - bytes % 8) % 8;
+            }
+            return sections;
+        }
+    }
+
+    private static int typeOf(Buffer section)
+    {
+        if (section instanceof ByteBuffer) return BYTES;
+        if (section instanceof CharBuffer) return CHARS;
+        if (section instanceof IntBuffer) return INTS;
+        if (section instanceof LongBuffer) return LONGS;
+
+        throw new IllegalArgumentException("unsupported section type " + section.getClass().getSimpleName() + "!");
+    }
+
+    private static int sizeOf(int type)
+    {
+        return switch (type)
+        {
+            case BYTES -> 1;
+            case CHARS -> 2;
+            case INTS -> 4;
+            default -> 8;
+        };
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long offset, int bytes) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, offset + buffer.position()) < 0) throw new IOException("unexpected end of index file!");
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,116 @@
+package stringsearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests the binary format of the <code>IndexFile</code> class (round trip of every section type,
+ * padding and the header checks) using the JUnit unittesting framework
+ */
+public class IndexFileTest
+{
+    private File file;
+    private Buffer[] sections;
+
+    @Before //execute this before the actual test
+    public void setUp() throws IOException
+    {
+        this.file = File.createTempFile("indexfile", ".idx");
+        file.deleteOnExit();
+
+        //sections of every element type w/ lengths that need padding, an empty section
+        //and a section larger than the copy chunk of write()
+        Random random = new Random(31);
+        byte[] bytes = new byte[13];
+        random.nextBytes(bytes);
+        char[] chars = new char[7];
+        for (int i=0; i<chars.length; i++) chars[i] = (char)random.nextInt(Character.MAX_VALUE);
+        int[] ints = new int[(1 << 19) + 3];
+        for (int i=0; i<ints.length; i++) ints[i] = random.nextInt();
+        long[] longs = new long[5];
+        for (int i=0; i<longs.length; i++) longs[i] = random.nextLong();
+
+        this.sections = new Buffer[]{ByteBuffer.wrap(bytes), CharBuffer.wrap(chars), IntBuffer.wrap(ints), IntBuffer.allocate(0), LongBuffer.wrap(longs)};
+    }
+
+    /**
+     * JUnit unittest:
+     * the memory-mapped sections must have the same type and content as the written sections
+     */
+    @Test
+    public void roundTrip() throws IOException
+    {
+        try
+        {
+            IndexFile.write(file.getPath(), IndexFile.FM_INDEX, sections);
+            Buffer[] read = IndexFile.read(file.getPath(), IndexFile.FM_INDEX);
+
+            assertEquals(sections.length, read.length);
+            for (int s=0; s<sections.length; s++)
+            {
+                assertEquals(sectionType(sections[s]), sectionType(read[s]));
+                assertEquals(sections[s].limit(), read[s].limit());
+                assertEquals(sections[s], read[s]);
+            }
+
+            //writing again must replace the old content
+            IndexFile.write(file.getPath(), IndexFile.SUFFIX_ARRAY, sections[1]);
+            assertEquals(1, IndexFile.read(file.getPath(), IndexFile.SUFFIX_ARRAY).length);
+        }
+        finally {file.delete();}
+    }
+
+    private static Class<?> sectionType(Buffer buffer)
+    {
+        if (buffer instanceof ByteBuffer) return ByteBuffer.class;
+        if (buffer instanceof CharBuffer) return CharBuffer.class;
+        if (buffer instanceof IntBuffer) return IntBuffer.class;
+        return LongBuffer.class;
+    }
+
+    /**
+     * JUnit unittest:
+     * files w/ a wrong magic number, index type or a truncated section must be rejected
+     */
+    @Test
+    public void rejectInvalidFiles() throws IOException
+    {
+        try
+        {
+            IndexFile.write(file.getPath(), IndexFile.SUFFIX_ARRAY, sections);
+            expectIOException(IndexFile.FM_INDEX);
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {raf.setLength(raf.length() - 16);}
+            expectIOException(IndexFile.SUFFIX_ARRAY);
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {raf.writeInt(0);}
+            expectIOException(IndexFile.SUFFIX_ARRAY);
+        }
+        finally {file.delete();}
+    }
+
+    private void expectIOException(int indexType)
+    {
+        try
+        {
+            IndexFile.read(file.getPath(), indexType);
+            fail("invalid index file was accepted");
+        }
+        catch (IOException e)
+        {
+            assertTrue(e.getMessage().startsWith(file.getPath()));
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package stringsearch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fastagen.Fasta;
+import fastagen.FastaMalformattedException;
+import fastagen.FastaProcessor;
+import fastagen.Sequence;
+import fastagen.SequenceCollection;
+
+import stringsearch.KmerTable;
+import stringsearch.Nucleotides;
+
+public class KmerCounter
+{
+    //parallel k-mer counter for DNA sequences (k <= 31)
+    //k-mers are packed into a long (2 bits per base, see Nucleotides) and updated in O(1) per base
+    //for both strands, so canonical k-mers (the smaller of a k-mer and its reverse complement) cost nothing extra;
+    //k-mers containing characters other than A, C, G and T are skipped
+    //the sequences are split into chunks that are processed by a thread pool; every thread counts into
+    //its own set of hash tables (one shard per hash prefix), the shards are merged in parallel at the end
+    //repeated calls of count() add to the existing counts
+
+    public static final int MAX_K = 31;
+    private static final int CHUNK_SIZE = 1 << 20; //k-mers per chunk (work unit of a thread)
+    private static final int SHARD_BITS = 6;       //2^SHARD_BITS hash table shards
+
+    int k;
+    boolean canonical;
+    int nThreads;
+    long kmerMask;
+    KmerTable[] shards;
+    long totalKmers = 0;
+
+    public KmerCounter(int k)
+    {
+        this(k, true, Runtime.getRuntime().availableProcessors());
+    }
+
+    public KmerCounter(int k, boolean canonical, int nThreads)
+    {
+        if (k < 1 || k > MAX_K) throw new IllegalArgumentException("k has to be between 1 and " + MAX_K + "!");
+
+        this.k = k;
+        this.canonical = canonical;
+        this.nThreads = Math.max(nThreads, 1);
+        this.kmerMask = (1L << (2 * k)) - 1;
+        this.shards = new KmerTable[1 << SHARD_BITS];
+        for (int s=0; s<shards.length; s++) shards[s] = new KmerTable();
+    }
+
+    public int getK() {return k;}
+    public long getTotalKmers() {return totalKmers;}
+
+    public long getDistinctKmers()
+    {
+        long distinct = 0;
+        for (KmerTable shard: shards) distinct += shard.size();
+
+        return distinct;
+    }
+
+    private static int shardOf(long kmer) {return (int)(KmerTable.hash(kmer) >>> (64 - SHARD_BITS));}
+
+    public long encode(String kmer)
+    {
+        //2-bit packed value of a k-mer (canonical if the counter counts canonical k-mers, -1 if it contains non-ACGT characters)
+
+        if (kmer.length() != k) throw new IllegalArgumentException("k-mer has to be of length " + k + "!");
+
+        long fwd = 0, rev = 0;
+        for (int i=0; i<k; i++)
+        {
+            int c = Nucleotides.code(kmer.charAt(i));
+            if (c < 0) return -1;
+
+            fwd = (fwd << 2) | c;
+            rev = (rev >>> 2) | ((long)(3 - c) << (2 * (k - 1)));
+        }
+        return canonical ? Math.min(fwd, rev) : fwd;
+    }
+
+    public String decode(long kmer)
+    {
+        char[] s = new char[k];
+        for (int i=k-1; i>=0; i--, kmer>>>=2) s[i] = Nucleotides.base((int)(kmer & 3));
+
+        return new String(s);
+    }
+
+    public int get(String kmer)
+    {
+        long key = encode(kmer);
+        return (key < 0) ? 0 : get(key);
+    }
+
+    public int get(long kmer) {return shards[shardOf(kmer)].get(kmer);}
+
+    public void forEach(KmerTable.Visitor visitor)
+    {
+        for (KmerTable shard: shards) shard.forEach(visitor);
+    }
+
+    public long[] spectrum(int maxCount)
+    {
+        //k-mer spectrum: spectrum[c] = number of distinct k-mers that occur c times
+        //(k-mers occurring more than maxCount times are added to spectrum[maxCount])
+
+        long[] spectrum = new long[maxCount + 1];
+        forEach((kmer, count) -> spectrum[Math.min(count, maxCount)]++);
+
+        return spectrum;
+    }
+
+    public void countFile(String fastaPath) throws FastaMalformattedException, IOException
+    {
+        count(new FastaProcessor().readFasta(fastaPath));
+    }
+
+    public void count(Fasta fasta) {count(fasta.getEntries());}
+
+    public void count(SequenceCollection<String, Sequence> entries)
+    {
+        String[] seqs = new String[entries.size()];
+        int i = 0;
+        for (Sequence seq: entries.values()) seqs[i++] = seq.getSequence();
+
+        count(seqs);
+    }
+
+    public void count(String... seqs)
+    {
+        //split the sequences into chunks of CHUNK_SIZE k-mer start positions
+        //(consecutive chunks overlap by k-1 bases, so every k-mer is counted exactly once)
+
+        ArrayList<int[]> chunks = new ArrayList<int[]>();
+        for (int s=0; s<seqs.length; s++)
+        {
+            for (int start=0; start<=seqs[s].length()-k; start+=CHUNK_SIZE)
+            {
+                chunks.add(new int[]{s, start, Math.min(start + CHUNK_SIZE + k - 1, seqs[s].length())});
+            }
+        }
+
+        //every thread pulls chunks until none are left and counts them into its own shards
+        AtomicInteger nextChunk = new AtomicInteger();
+        KmerTable[][] threadShards = new KmerTable[nThreads][];
+        long[] threadKmers = new long[nThreads];
+
+        runParallel(nThreads, t ->
+        {
+            KmerTable[] local = new KmerTable[shards.length];
+            for (int s=0; s<local.length; s++) local[s] = new KmerTable();
+
+            int c;
+            while ((c = nextChunk.getAndIncrement()) < chunks.size())
+            {
+                int[] chunk = chunks.get(c);
+                threadKmers[t] += countChunk(seqs[chunk[0]], chunk[1], chunk[2], local);
+            }
+            threadShards[t] = local;
+        });
+
+        //merge the thread tables shard by shard (shards are independent, so this runs in parallel as well)
+        AtomicInteger nextShard = new AtomicInteger();
+
+        runParallel(nThreads, t ->
+        {
+            int s;
+            while ((s = nextShard.getAndIncrement()) < shards.length)
+            {
+                for (int i=0; i<nThreads; i++)
+                {
+                    KmerTable table = threadShards[i][s];
+                    if (table.size() > shards[s].size())
+                    {
+                        //merge the smaller table into the larger one
+                        KmerTable tmp = shards[s];
+                        shards[s] = table;
+                        table = tmp;
+                    }
+                    shards[s].merge(table);
+                }
+            }
+        });
+
+        for (long kmers: threadKmers) totalKmers += kmers;
+    }
+
+    private long countChunk(String seq, int from, int to, KmerTable[] local)
+    {
+        //rolling 2-bit encoding of the forward k-mer and its reverse complement
+
+        int shift = 2 * (k - 1);
+        long fwd = 0, rev = 0, kmers = 0;
+        int valid = 0; //number of consecutive ACGT bases up to the current position
+
+        for (int i=from; i<to; i++)
+        {
+            int c = Nucleotides.code(seq.charAt(i));
+            if (c < 0)
+            {
+                valid = 0;
+                continue;
+            }
+
+            fwd = ((fwd << 2) | c) & kmerMask;
+            rev = (rev >>> 2) | ((long)(3 - c) << shift);
+
+            if (++valid >= k)
+            {
+                long kmer = (canonical && rev < fwd) ? rev : fwd;
+                local[shardOf(kmer)].add(kmer);
+                kmers++;
+            }
+        }
+        return kmers;
+    }
+
+    private interface ThreadTask
+    {
+        void run(int thread);
+    }
+
+    private static void runParallel(int nThreads, ThreadTask task)
+    {
+        ExecutorService threadPool = Executors.newFixedThreadPool(nThreads);
+        ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+        for (int t=0; t<nThreads; t++)
+        {
+            int thread = t;
+            Callable<Void> job = () -> {task.run(thread); return null;};
+            futures.add(threadPool.submit(job));
+        }
+
+        try
+        {
+            for (Future<Void> future: futures) future.get();
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            throw new RuntimeException("k-mer counting failed!", e);
+        }
+        finally
+        {
+            threadPool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package stringsearch;
+
+import java.util.HashMap;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the parallel 2-bit packed k-mer counting of the <code>KmerCounter</code> class
+ * against counting the substrings in a hash map using the JUnit unittesting framework
+ */
+public class KmerCounterTest
+{
+    private String[] seqs;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //sequences w/ N's and low complexity regions (binary alphabet), one sequence longer than a chunk of the counter
+        Random random = new Random(35);
+        this.seqs = new String[20];
+        for (int s=0; s<seqs.length; s++)
+        {
+            int length = (s == 0) ? (1 << 20) + 12345 : random.nextInt(3000);
+            StringBuilder seq = new StringBuilder(length);
+            for (int i=0; i<length; i++) seq.append((random.nextInt(40) == 0) ? 'N' : "ACGT".charAt(random.nextInt(random.nextBoolean() ? 2 : 4)));
+            seqs[s] = seq.toString();
+        }
+    }
+
+    private static String reverseComplement(String seq)
+    {
+        StringBuilder rc = new StringBuilder(seq.length());
+        for (int i=seq.length()-1; i>=0; i--) rc.append("TGCA".charAt("ACGT".indexOf(seq.charAt(i))));
+        return rc.toString();
+    }
+
+    private static HashMap<String, Integer> bruteForce(int k, boolean canonical, String... seqs)
+    {
+        //count every k-mer w/o N's (canonical: the smaller of the k-mer and its reverse complement)
+
+        HashMap<String, Integer> counts = new HashMap<String, Integer>();
+        for (String seq: seqs)
+        {
+            for (int i=0; i+k<=seq.length(); i++)
+            {
+                String kmer = seq.substring(i, i + k);
+                if (kmer.indexOf('N') >= 0) continue;
+
+                if (canonical && reverseComplement(kmer).compareTo(kmer) < 0) kmer = reverseComplement(kmer);
+                counts.merge(kmer, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static void compare(KmerCounter counter, HashMap<String, Integer> expected)
+    {
+        long total = 0;
+        for (int count: expected.values()) total += count;
+
+        assertEquals(total, counter.getTotalKmers());
+        assertEquals(expected.size(), counter.getDistinctKmers());
+        for (String kmer: expected.keySet()) assertEquals(kmer, (int)expected.get(kmer), counter.get(kmer));
+
+        HashMap<String, Integer> visited = new HashMap<String, Integer>();
+        counter.forEach((kmer, count) -> visited.put(counter.decode(kmer), count));
+        assertEquals(expected, visited);
+
+        long[] spectrum = new long[11];
+        for (int count: expected.values()) spectrum[Math.min(count, 10)]++;
+        assertArrayEquals(spectrum, counter.spectrum(10));
+    }
+
+    /**
+     * JUnit unittest:
+     * counts, totals, the visited k-mers and the spectrum must equal the brute force counts
+     * for every k, forward and canonical k-mers and any number of threads
+     */
+    @Test
+    public void compareCounts()
+    {
+        Random random = new Random(350);
+        for (int t=0; t<40; t++)
+        {
+            int k = 1 + random.nextInt(KmerCounter.MAX_K);
+            boolean canonical = random.nextBoolean();
+            String[] some = {seqs[1 + random.nextInt(seqs.length - 1)], seqs[1 + random.nextInt(seqs.length - 1)]};
+
+            KmerCounter counter = new KmerCounter(k, canonical, 1 + random.nextInt(4));
+            counter.count(some[0]);
+            counter.count(some[1]); //repeated calls add to the counts
+            compare(counter, bruteForce(k, canonical, some));
+
+            //both strands of a canonical k-mer are looked up the same way
+            if (canonical && some[0].length() >= k && some[0].substring(0, k).indexOf('N') < 0)
+            {
+                String kmer = some[0].substring(0, k);
+                assertEquals(counter.get(kmer), counter.get(reverseComplement(kmer)));
+            }
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * k-mers spanning the border of two chunks are counted exactly once
+     */
+    @Test
+    public void compareChunks()
+    {
+        KmerCounter counter = new KmerCounter(13, true, 4);
+        counter.count(seqs[0]);
+        compare(counter, bruteForce(13, true, seqs[0]));
+    }
+
+    /**
+     * JUnit unittest:
+     * k has to fit into a long (2 bits per base)
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectLargeK()
+    {
+        new KmerCounter(KmerCounter.MAX_K + 1);
+    }
+}
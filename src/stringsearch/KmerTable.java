@@ -0,0 +1,122 @@
+package stringsearch;
+
+import java.util.Arrays;
+
+public class KmerTable
+{
+    //open addressing hash table w/ primitive keys (2-bit packed k-mers) and counts
+    //linear probing in a power-of-2 sized table that is doubled at a load factor of 0.7;
+    //empty slots are marked w/ the key -1 (never a valid k-mer for k <= 31)
+
+    private static final long EMPTY = -1L;
+
+    long[] keys;
+    int[] counts;
+    int size = 0;
+    int mask;
+
+    public KmerTable()
+    {
+        this(1024);
+    }
+
+    public KmerTable(int expectedSize)
+    {
+        int capacity = Integer.highestOneBit(Math.max(16, (int)(expectedSize / 0.7)) - 1) << 1;
+        this.keys = new long[capacity];
+        this.counts = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    public interface Visitor
+    {
+        void visit(long kmer, int count);
+    }
+
+    static long hash(long key)
+    {
+        //64 bit finalizer of MurmurHash3 (spreads the k-mer bits over all hash bits)
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    public int size() {return size;}
+
+    public void add(long kmer) {add(kmer, 1);}
+
+    public void add(long kmer, int count)
+    {
+        int i = (int)hash(kmer) & mask;
+
+        while (keys[i] != EMPTY)
+        {
+            if (keys[i] == kmer)
+            {
+                counts[i] += count;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = kmer;
+        counts[i] = count;
+        if (++size > 0.7 * keys.length) resize();
+    }
+
+    public int get(long kmer)
+    {
+        //count of a k-mer (0 if it was never added)
+        int i = slot(kmer);
+        return (i < 0) ? 0 : counts[i];
+    }
+
+    int slot(long kmer)
+    {
+        //slot of a k-mer in the table (-1 if it was never added)
+
+        int i = (int)hash(kmer) & mask;
+
+        while (keys[i] != EMPTY)
+        {
+            if (keys[i] == kmer) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize()
+    {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+
+        this.keys = new long[2 * oldKeys.length];
+        this.counts = new int[2 * oldKeys.length];
+        this.mask = keys.length - 1;
+        this.size = 0;
+        Arrays.fill(keys, EMPTY);
+
+        for (int i=0; i<oldKeys.length; i++)
+        {
+            if (oldKeys[i] != EMPTY) add(oldKeys[i], oldCounts[i]);
+        }
+    }
+
+    public void merge(KmerTable other)
+    {
+        //add all counts of another table to this table
+        other.forEach(this::add);
+    }
+
+    public void forEach(Visitor visitor)
+    {
+        for (int i=0; i<keys.length; i++)
+        {
+            if (keys[i] != EMPTY) visitor.visit(keys[i], counts[i]);
+        }
+    }
+}
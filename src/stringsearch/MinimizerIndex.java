@@ -0,0 +1,135 @@
+package stringsearch;
+
+import stringsearch.HitSink;
+import stringsearch.KmerTable;
+import stringsearch.Nucleotides;
+
+public class MinimizerIndex
+{
+    //(w,k)-minimizer index of a DNA reference (seed index for read mapping)
+    //of every w consecutive k-mers only the one w/ the smallest hash value (the minimizer) is stored,
+    //so two sequences sharing a stretch of w+k-1 bases are guaranteed to share a minimizer
+    //while only ~2/(w+1) of all positions are indexed
+    //k-mers are 2-bit packed (forward strand only, reverse complements have to be looked up separately);
+    //k-mers containing characters other than A, C, G and T are skipped
+    //the positions are stored in one flat int[] grouped by minimizer (CSR layout),
+    //the start of every group is found via the slot of the minimizer in a KmerTable
+
+    int k, w;
+    int n;
+    KmerTable table;    //minimizer -> number of occurrences (the slot indexes start[])
+    int[] start;        //positions of the minimizer in slot i: positions[start[i]] ... positions[start[i+1]-1]
+    int[] positions;
+
+    public interface MinimizerSink
+    {
+        void minimizer(long kmer, int position);
+    }
+
+    public MinimizerIndex(String reference, int k, int w)
+    {
+        if (k < 1 || k > KmerCounter.MAX_K) throw new IllegalArgumentException("k has to be between 1 and " + KmerCounter.MAX_K + "!");
+        if (w < 1) throw new IllegalArgumentException("w has to be positive!");
+
+        this.k = k;
+        this.w = w;
+        this.n = reference.length();
+
+        //pass 1: count the occurrences of every minimizer
+        //(initial table size: expected number of minimizers, clamped, the table grows if needed)
+        this.table = new KmerTable((int)Math.min(2L * n / (w + 1) + 16, 1 << 26));
+        minimizers(reference, k, w, (kmer, position) -> table.add(kmer));
+
+        //prefix sums over the table slots (empty slots have a count of 0)
+        this.start = new int[table.keys.length + 1];
+        for (int i=0; i<table.keys.length; i++) start[i+1] = start[i] + ((table.keys[i] == -1) ? 0 : table.counts[i]);
+
+        //pass 2: fill in the positions (in increasing order per minimizer)
+        this.positions = new int[start[table.keys.length]];
+        int[] fill = new int[table.keys.length];
+        minimizers(reference, k, w, (kmer, position) ->
+        {
+            int slot = table.slot(kmer);
+            positions[start[slot] + fill[slot]++] = position;
+        });
+    }
+
+    public int getK() {return k;}
+    public int getW() {return w;}
+    public int length() {return n;}
+    public int size() {return positions.length;}
+
+    public int occurrences(long kmer)
+    {
+        int slot = table.slot(kmer);
+        return (slot < 0) ? 0 : start[slot+1] - start[slot];
+    }
+
+    public void lookup(long kmer, HitSink sink)
+    {
+        //report all reference positions of a minimizer to the sink (stops as soon as the sink returns false)
+
+        int slot = table.slot(kmer);
+        if (slot < 0) return;
+
+        for (int i=start[slot]; i<start[slot+1]; i++)
+        {
+            if (!sink.hit(positions[i])) return;
+        }
+    }
+
+    public static void minimizers(String seq, int k, int w, MinimizerSink sink)
+    {
+        //report the (w,k)-minimizers of a sequence from left to right (every position at most once)
+        //sliding window minimum over the k-mer hashes w/ a monotone queue (O(1) amortized per base);
+        //ties are broken in favor of the leftmost k-mer
+
+        long mask = (1L << (2 * k)) - 1;
+        long[] queueKmer = new long[w];
+        long[] queueHash = new long[w];
+        int[] queuePos = new int[w];
+        int head = 0, size = 0;
+
+        long kmer = 0;
+        int valid = 0;       //number of consecutive ACGT bases
+        int lastPos = -1;    //position of the last reported minimizer
+
+        for (int i=0; i<seq.length(); i++)
+        {
+            int c = Nucleotides.code(seq.charAt(i));
+            if (c < 0)
+            {
+                valid = 0;
+                size = 0;
+                continue;
+            }
+
+            kmer = ((kmer << 2) | c) & mask;
+            if (++valid < k) continue;
+
+            int pos = i - k + 1;
+            long hash = KmerTable.hash(kmer);
+
+            //drop the k-mers that left the window and all k-mers w/ a larger hash than the new one
+            if (size > 0 && queuePos[head] <= pos - w)
+            {
+                head = (head + 1) % w;
+                size--;
+            }
+            while (size > 0 && Long.compareUnsigned(queueHash[(head + size - 1) % w], hash) > 0) size--;
+
+            int tail = (head + size) % w;
+            queueKmer[tail] = kmer;
+            queueHash[tail] = hash;
+            queuePos[tail] = pos;
+            size++;
+
+            //report the minimum of every complete window
+            if (valid - k + 1 >= w && queuePos[head] != lastPos)
+            {
+                lastPos = queuePos[head];
+                sink.minimizer(queueKmer[head], lastPos);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the (w,k)-minimizers and the seed index of the <code>MinimizerIndex</code> class
+ * against the minimum of every window computed w/o a queue using the JUnit unittesting framework
+ */
+public class MinimizerIndexTest
+{
+    private ArrayList<String> seqs;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //random DNA w/ N's, repeats (binary alphabet) and sequences shorter than a window
+        Random random = new Random(36);
+        this.seqs = new ArrayList<String>();
+
+        for (int s=0; s<200; s++)
+        {
+            int length = random.nextInt(300);
+            StringBuilder seq = new StringBuilder(length);
+            for (int i=0; i<length; i++)
+            {
+                seq.append((random.nextInt(50) == 0) ? 'N' : "ACGT".charAt(random.nextInt((s % 3 == 0) ? 2 : 4)));
+            }
+            seqs.add(seq.toString());
+        }
+    }
+
+    private static long hash(long key)
+    {
+        //64 bit finalizer of MurmurHash3 (the k-mer order of the index)
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static long encode(String kmer)
+    {
+        long value = 0;
+        for (int i=0; i<kmer.length(); i++) value = 4 * value + "ACGT".indexOf(kmer.charAt(i));
+        return value;
+    }
+
+    private static TreeSet<Integer> bruteForce(String seq, int k, int w)
+    {
+        //position of the k-mer w/ the smallest (unsigned) hash of every window of w k-mers w/o N's (leftmost on ties)
+
+        TreeSet<Integer> minimizers = new TreeSet<Integer>();
+        for (int start=0; start+w+k-1<=seq.length(); start++)
+        {
+            if (seq.substring(start, start + w + k - 1).indexOf('N') >= 0) continue;
+
+            int best = start;
+            for (int p=start+1; p<start+w; p++)
+            {
+                if (Long.compareUnsigned(hash(encode(seq.substring(p, p + k))), hash(encode(seq.substring(best, best + k)))) < 0) best = p;
+            }
+            minimizers.add(best);
+        }
+        return minimizers;
+    }
+
+    /**
+     * JUnit unittest:
+     * the reported minimizers must be the window minima in increasing order of their positions (every position once)
+     */
+    @Test
+    public void compareMinimizers()
+    {
+        Random random = new Random(360);
+        for (String seq: seqs)
+        {
+            int k = 1 + random.nextInt(12);
+            int w = 1 + random.nextInt(10);
+
+            ArrayList<Integer> positions = new ArrayList<Integer>();
+            MinimizerIndex.minimizers(seq, k, w, (kmer, position) ->
+            {
+                assertEquals(encode(seq.substring(position, position + k)), kmer);
+                positions.add(position);
+            });
+
+            assertEquals(new ArrayList<Integer>(bruteForce(seq, k, w)), positions);
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the index must return every position of a minimizer in increasing order
+     */
+    @Test
+    public void compareLookup()
+    {
+        Random random = new Random(361);
+        for (String seq: seqs)
+        {
+            int k = 1 + random.nextInt(8);
+            int w = 1 + random.nextInt(6);
+            MinimizerIndex index = new MinimizerIndex(seq, k, w);
+            TreeSet<Integer> minimizers = bruteForce(seq, k, w);
+
+            assertEquals(minimizers.size(), index.size());
+            assertEquals(seq.length(), index.length());
+
+            for (int position: minimizers)
+            {
+                String kmer = seq.substring(position, position + k);
+                ArrayList<Integer> expected = new ArrayList<Integer>();
+                for (int p: minimizers)
+                {
+                    if (seq.startsWith(kmer, p)) expected.add(p);
+                }
+
+                ArrayList<Integer> found = new ArrayList<Integer>();
+                index.lookup(encode(kmer), found::add);
+                assertEquals(expected, found);
+                assertEquals(expected.size(), index.occurrences(encode(kmer)));
+            }
+        }
+    }
+}
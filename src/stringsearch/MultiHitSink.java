@@ -0,0 +1,9 @@
+package stringsearch;
+
+public interface MultiHitSink
+{
+    //receives the hits of a multi-pattern search (AhoCorasick) one at a time
+    //returning false stops the search early
+
+    boolean hit(int patternId, int position);
+}
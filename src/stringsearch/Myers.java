@@ -0,0 +1,101 @@
+package stringsearch;
+
+import java.util.ArrayList;
+
+public class Myers
+{
+    //Myers' bit-vector algorithm for approximate pattern matching (edit distance)
+    //finds all end positions of occurrences of a pattern w/ at most k errors (mismatches, insertions, deletions)
+    //the columns of the dynamic programming matrix are encoded as vertical delta bit vectors,
+    //so every text character costs O(m/64) word operations (m: length of pattern);
+    //patterns longer than 64 characters are split into blocks of 64 (Hyyro 2003)
+
+    String text;
+
+    public Myers()
+    {
+        this("");
+    }
+
+    public Myers(String text)
+    {
+        this.text = text;
+    }
+
+    public long[][] makePeq(String p, int blocks)
+    {
+        //bit vector of the positions of every (ASCII) character in the pattern
+
+        long[][] peq = new long[256][blocks];
+
+        for (int i=0; i<p.length(); i++)
+        {
+            char c = p.charAt(i);
+            if (c < 256) peq[c][i >>> 6] |= 1L << (i & 63);
+        }
+        return peq;
+    }
+
+    public ArrayList<int[]> search(String p, int k)
+    {
+        return search(this.text, p, k);
+    }
+
+    public ArrayList<int[]> search(String t, String p, int k)
+    {
+        //every hit is returned as {end position of the occurrence in the text, edit distance}
+
+        int n = t.length();
+        int m = p.length();
+        ArrayList<int[]> hits = new ArrayList<int[]>();
+        if (m == 0) return hits;
+
+        int blocks = (m + 63) >>> 6;
+        long[][] peq = makePeq(p, blocks);
+        long[] none = new long[blocks];
+        long[] pv = new long[blocks]; //vertical positive delta
+        long[] mv = new long[blocks]; //vertical negative delta
+        long lastBit = 1L << ((m - 1) & 63);
+        int score = m;
+
+        for (int b=0; b<blocks; b++) pv[b] = -1L;
+
+        for (int i=0; i<n; i++)
+        {
+            char c = t.charAt(i);
+            long[] eq = (c < 256) ? peq[c] : none;
+
+            //horizontal delta entering the current block (0 for the first block: the occurrence may start anywhere)
+            int carry = 0;
+
+            for (int b=0; b<blocks; b++)
+            {
+                long pvb = pv[b];
+                long mvb = mv[b];
+                long eqb = eq[b];
+
+                long xv = eqb | mvb;
+                if (carry < 0) eqb |= 1L;
+                long xh = (((eqb & pvb) + pvb) ^ pvb) | eqb;
+                long ph = mvb | ~(xh | pvb);
+                long mh = pvb & xh;
+
+                long high = (b == blocks - 1) ? lastBit : 1L << 63;
+                int hout = ((ph & high) != 0) ? 1 : ((mh & high) != 0) ? -1 : 0;
+
+                ph <<= 1;
+                mh <<= 1;
+                if (carry < 0) mh |= 1L;
+                else if (carry > 0) ph |= 1L;
+
+                pv[b] = mh | ~(xv | ph);
+                mv[b] = ph & xv;
+                carry = hout;
+            }
+
+            score += carry; //carry of the last block: change of the score in the last row
+            if (score <= k) hits.add(new int[]{i, score});
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,125 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the bit-parallel approximate matching of the <code>Myers</code> (edit distance, blocks of 64)
+ * and <code>ShiftAnd</code> (mismatches) classes against dynamic programming using the JUnit unittesting framework
+ */
+public class MyersTest
+{
+    private ArrayList<String[]> cases; //{text, pattern, k}
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //short patterns (single word) and long patterns (several 64 bit blocks), half of them planted in the text
+        Random random = new Random(29);
+        this.cases = new ArrayList<String[]>();
+
+        for (int c=0; c<400; c++)
+        {
+            int n = random.nextInt(400);
+            int m = 1 + random.nextInt((c % 2 == 0) ? 20 : 150);
+            int k = random.nextInt(Math.min(m, 8) + 1);
+            String text = RandomSequences.randomSeq(random, n, "ACGT");
+            String pattern = RandomSequences.randomSeq(random, m, "ACGT");
+
+            if (n > m && random.nextBoolean())
+            {
+                int start = random.nextInt(n - m);
+                text = text.substring(0, start) + pattern + text.substring(start + m);
+            }
+            cases.add(new String[]{text, pattern, String.valueOf(k)});
+        }
+    }
+
+    private static int[] semiGlobalDistances(String t, String p)
+    {
+        //best[j]: smallest edit distance of the pattern to a substring of the text ending at position j (Sellers)
+
+        int m = p.length();
+        int[] prev = new int[m + 1];
+        int[] curr = new int[m + 1];
+        int[] best = new int[t.length()];
+        for (int i=0; i<=m; i++) prev[i] = i;
+
+        for (int j=0; j<t.length(); j++)
+        {
+            curr[0] = 0;
+            for (int i=1; i<=m; i++)
+            {
+                int diagonal = prev[i-1] + ((p.charAt(i-1) == t.charAt(j)) ? 0 : 1);
+                curr[i] = Math.min(diagonal, Math.min(curr[i-1], prev[i]) + 1);
+            }
+            best[j] = curr[m];
+
+            int[] temp = prev;
+            prev = curr;
+            curr = temp;
+        }
+        return best;
+    }
+
+    private static ArrayList<String> format(ArrayList<int[]> hits)
+    {
+        ArrayList<String> formatted = new ArrayList<String>();
+        for (int[] hit: hits) formatted.add(hit[0] + ":" + hit[1]);
+        return formatted;
+    }
+
+    /**
+     * JUnit unittest:
+     * Myers must report every end position w/ an edit distance <= k together w/ that distance
+     */
+    @Test
+    public void compareMyers()
+    {
+        for (String[] c: cases)
+        {
+            String text = c[0], pattern = c[1];
+            int k = Integer.parseInt(c[2]);
+
+            int[] best = semiGlobalDistances(text, pattern);
+            ArrayList<String> expected = new ArrayList<String>();
+            for (int j=0; j<text.length(); j++)
+            {
+                if (best[j] <= k) expected.add(j + ":" + best[j]);
+            }
+
+            assertEquals(pattern + " k=" + k, expected, format(new Myers(text).search(pattern, k)));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * Shift-And must report every end position w/ at most k mismatches together w/ the number of mismatches
+     */
+    @Test
+    public void compareShiftAnd()
+    {
+        for (String[] c: cases)
+        {
+            String text = c[0], pattern = c[1];
+            int k = Integer.parseInt(c[2]);
+            int m = pattern.length();
+
+            ArrayList<String> expected = new ArrayList<String>();
+            for (int j=m-1; j<text.length(); j++)
+            {
+                int mismatches = 0;
+                for (int i=0; i<m; i++)
+                {
+                    if (text.charAt(j - m + 1 + i) != pattern.charAt(i)) mismatches++;
+                }
+                if (mismatches <= k) expected.add(j + ":" + mismatches);
+            }
+
+            assertEquals(pattern + " k=" + k, expected, format(new ShiftAnd(text).search(pattern, k)));
+        }
+    }
+}
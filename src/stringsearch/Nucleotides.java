@@ -0,0 +1,73 @@
+package stringsearch;
+
+public class Nucleotides
+{
+    //helper functions for nucleotide (DNA) sequences
+    //2-bit encoding of the bases: A = 0, C = 1, G = 2, T = 3 (the complement of a base b is 3 - b)
+    //IUPAC codes are represented as 4-bit masks over A, C, G and T (A = 1, C = 2, G = 4, T = 8)
+    //lower case (soft-masked) bases are treated like upper case bases
+
+    private static final byte[] CODES = new byte[256];
+    private static final char[] COMPLEMENTS = new char[256];
+    private static final byte[] MASKS = new byte[256];
+    public static final char[] BASES = {'A', 'C', 'G', 'T'};
+
+    static
+    {
+        for (int c=0; c<256; c++)
+        {
+            CODES[c] = -1;
+            COMPLEMENTS[c] = 'N';
+        }
+
+        for (int i=0; i<BASES.length; i++)
+        {
+            CODES[BASES[i]] = (byte)i;
+            CODES[Character.toLowerCase(BASES[i])] = (byte)i;
+        }
+
+        //complements of all IUPAC codes (S, W and N are their own complement)
+        String iupac =     "ACGTUNRYKMSWBVDH";
+        String iupacComp = "TGCAANYRMKSWVBHD";
+
+        for (int i=0; i<iupac.length(); i++)
+        {
+            COMPLEMENTS[iupac.charAt(i)] = iupacComp.charAt(i);
+            COMPLEMENTS[Character.toLowerCase(iupac.charAt(i))] = iupacComp.charAt(i);
+        }
+
+        String codes = "ACGTURYSWKMBDHVN";
+        int[] masks = {1, 2, 4, 8, 8, 5, 10, 6, 9, 12, 3, 14, 13, 11, 7, 15};
+
+        for (int i=0; i<codes.length(); i++)
+        {
+            MASKS[codes.charAt(i)] = (byte)masks[i];
+            MASKS[Character.toLowerCase(codes.charAt(i))] = (byte)masks[i];
+        }
+    }
+
+    public static int code(char c)
+    {
+        //2-bit code of a base (-1 if c is not A, C, G or T)
+        return (c < 256) ? CODES[c] : -1;
+    }
+
+    public static int mask(char c)
+    {
+        //bases matched by an IUPAC code as a 4-bit mask (0 if c is not an IUPAC code)
+        return (c < 256) ? MASKS[c] : 0;
+    }
+
+    public static char base(int code) {return BASES[code];}
+
+    public static char complement(char c) {return (c < 256) ? COMPLEMENTS[c] : 'N';}
+
+    public static String reverseComplement(String seq)
+    {
+        int n = seq.length();
+        char[] rc = new char[n];
+        for (int i=0; i<n; i++) rc[n-1-i] = complement(seq.charAt(i));
+
+        return new String(rc);
+    }
+}
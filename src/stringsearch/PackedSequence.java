@@ -0,0 +1,187 @@
+package stringsearch;
+
+import java.util.Arrays;
+
+import stringsearch.Nucleotides;
+
+public class PackedSequence implements CharSequence
+{
+    //DNA sequence packed into 2 bits per base (32 bases per long, base i in the bits 2*(i%32) and 2*(i%32)+1
+    //of word i/32, coding see Nucleotides)
+    //characters other than A, C, G and T are stored as A and marked in an N-mask, which is kept as sorted runs
+    //(start/end pairs), since they usually occur in long stretches (assembly gaps)
+    //lower case bases are stored as upper case bases; charAt() returns 'N' for every masked position
+    //sequences are built by appending, e.g. while reading a file, w/o a String copy of the whole sequence
+
+    long[] words;
+    int length = 0;
+    int[] nRuns = new int[16];   //nRuns[2r], nRuns[2r+1]: start and end (exclusive) of the r-th run of N's
+    int totalRuns = 0;
+
+    public PackedSequence()
+    {
+        this(1024);
+    }
+
+    public PackedSequence(int capacity)
+    {
+        this.words = new long[Math.max((capacity + 31) >>> 5, 1)];
+    }
+
+    public PackedSequence(CharSequence seq)
+    {
+        this(seq.length());
+        append(seq);
+    }
+
+    @Override
+    public int length() {return length;}
+
+    public long sizeInBytes() {return 8L * words.length + 4L * nRuns.length;}
+
+    public int getTotalNRuns() {return totalRuns;}
+    public long capacity() {return (long)words.length << 5;}
+
+    public void ensureCapacity(long bases)
+    {
+        //make room for the given number of bases at once (e.g. from a known file size), so appending never copies
+        bases = Math.min(bases, Integer.MAX_VALUE);
+        if (bases > capacity()) words = Arrays.copyOf(words, (int)((bases + 31) >>> 5));
+    }
+
+    public void append(char c)
+    {
+        if (length == words.length << 5) words = Arrays.copyOf(words, 2 * words.length);
+
+        int code = Nucleotides.code(c);
+        if (code < 0)
+        {
+            markN(length);
+            code = 0;
+        }
+        words[length >>> 5] |= (long)code << ((length & 31) << 1);
+        length++;
+    }
+
+    public void append(CharSequence seq)
+    {
+        for (int i=0; i<seq.length(); i++) append(seq.charAt(i));
+    }
+
+    public void append(byte[] buffer, int from, int to)
+    {
+        //append ASCII characters (e.g. straight from an input stream buffer)
+        for (int i=from; i<to; i++) append((char)(buffer[i] & 0xFF));
+    }
+
+    private void markN(int pos)
+    {
+        //extend the last run or start a new one (positions are masked in increasing order)
+
+        if (totalRuns > 0 && nRuns[2*totalRuns-1] == pos)
+        {
+            nRuns[2*totalRuns-1]++;
+            return;
+        }
+        if (2 * totalRuns == nRuns.length) nRuns = Arrays.copyOf(nRuns, Math.max(2 * nRuns.length, 16));  //empty after trimToSize()
+
+        nRuns[2*totalRuns] = pos;
+        nRuns[2*totalRuns+1] = pos + 1;
+        totalRuns++;
+    }
+
+    public void trimToSize()
+    {
+        //release the unused capacity (the words are only copied if more than 1/16 of them are unused,
+        //so trimming a sequence that was sized in advance doesn't double the peak memory)
+        int used = Math.max((length + 31) >>> 5, 1);
+        if (words.length - used > words.length / 16) words = Arrays.copyOf(words, used);
+        nRuns = Arrays.copyOf(nRuns, 2 * totalRuns);
+    }
+
+    public int code(int i)
+    {
+        //2-bit code of the base at position i (0 for masked positions)
+        return (int)(words[i >>> 5] >>> ((i & 31) << 1)) & 3;
+    }
+
+    public long bits(int i, int k)
+    {
+        //2-bit codes of the k <= 32 bases i ... i+k-1 packed into a long (base i in the lowest bits)
+
+        int offset = (i & 31) << 1;
+        long bits = words[i >>> 5] >>> offset;
+        if (offset + 2 * k > 64) bits |= words[(i >>> 5) + 1] << (64 - offset);
+
+        return (k == 32) ? bits : bits & ((1L << (2 * k)) - 1);
+    }
+
+    private int runIndex(int pos)
+    {
+        //index of the last run starting at or before pos (-1 if there is none)
+
+        int lo = 0, hi = totalRuns - 1;
+        while (lo <= hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (nRuns[2*mid] <= pos) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return hi;
+    }
+
+    public boolean isN(int i)
+    {
+        int r = runIndex(i);
+        return r >= 0 && i < nRuns[2*r+1];
+    }
+
+    public boolean hasN(int from, int to)
+    {
+        //check if any of the positions from ... to-1 is masked
+
+        if (from >= to) return false;
+
+        int r = runIndex(to - 1);
+        return r >= 0 && nRuns[2*r+1] > from;
+    }
+
+    public int nextN(int from)
+    {
+        //first masked position >= from (length() if there is none)
+
+        int r = runIndex(from);
+        if (r >= 0 && from < nRuns[2*r+1]) return from;
+
+        return (r + 1 < totalRuns) ? nRuns[2*(r+1)] : length;
+    }
+
+    @Override
+    public char charAt(int i)
+    {
+        if (i < 0 || i >= length) throw new IndexOutOfBoundsException(i);
+        return isN(i) ? 'N' : Nucleotides.base(code(i));
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to)
+    {
+        return substring(from, to);
+    }
+
+    public String substring(int from, int to)
+    {
+        char[] s = new char[to - from];
+        for (int i=from; i<to; i++) s[i-from] = Nucleotides.base(code(i));
+
+        //N runs overlapping the range
+        for (int r=Math.max(runIndex(from), 0); r<totalRuns && nRuns[2*r]<to; r++)
+        {
+            for (int i=Math.max(nRuns[2*r], from); i<Math.min(nRuns[2*r+1], to); i++) s[i-from] = 'N';
+        }
+        return new String(s);
+    }
+
+    @Override
+    public String toString() {return substring(0, length);}
+}
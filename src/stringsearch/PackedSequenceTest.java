@@ -0,0 +1,159 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the 2-bit packing and the N-mask of the <code>PackedSequence</code> class
+ * against the unpacked sequence using the JUnit unittesting framework
+ */
+public class PackedSequenceTest
+{
+    private ArrayList<String> seqs;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //soft-masked sequences, sequences w/ single N's and N runs (incl. at both ends and across word borders)
+        Random random = new Random(40);
+        this.seqs = new ArrayList<String>();
+
+        for (int s=0; s<300; s++)
+        {
+            StringBuilder seq = new StringBuilder(RandomSequences.randomSeq(random, random.nextInt(2000), random.nextBoolean() ? "ACGTN" : "acgtACGT"));
+            if (s % 3 == 0 && seq.length() > 0) seq.insert(random.nextInt(seq.length()), "N".repeat(1 + random.nextInt(100)));
+            seqs.add(seq.toString());
+        }
+    }
+
+    private static int code(char c) {return "ACGT".indexOf(Character.toUpperCase(c));}
+
+    /**
+     * JUnit unittest:
+     * charAt(), substrings, the 2-bit codes and the N queries must agree w/ the unpacked (upper-cased) sequence
+     */
+    @Test
+    public void compareSequences()
+    {
+        Random random = new Random(400);
+        for (String seq: seqs)
+        {
+            String upper = seq.toUpperCase();
+            PackedSequence packed = new PackedSequence(seq);
+
+            assertEquals(seq.length(), packed.length());
+            assertEquals(upper, packed.toString());
+
+            for (int i=0; i<seq.length(); i++)
+            {
+                assertEquals(upper.charAt(i), packed.charAt(i));
+                assertEquals(upper.charAt(i) == 'N', packed.isN(i));
+                assertEquals(Math.max(code(seq.charAt(i)), 0), packed.code(i));
+            }
+
+            for (int q=0; q<50 && seq.length()>0; q++)
+            {
+                int from = random.nextInt(seq.length());
+                int to = from + random.nextInt(seq.length() - from + 1);
+                assertEquals(upper.substring(from, to), packed.substring(from, to));
+                assertEquals(upper.substring(from, to).contains("N"), packed.hasN(from, to));
+
+                int nextN = upper.indexOf('N', from);
+                assertEquals((nextN < 0) ? seq.length() : nextN, packed.nextN(from));
+
+                //k bases packed into a long, base i in the lowest bits (N's as A)
+                int k = 1 + random.nextInt(Math.min(32, seq.length() - from));
+                long bits = 0;
+                for (int i=from+k-1; i>=from; i--) bits = (bits << 2) | Math.max(code(seq.charAt(i)), 0);
+                assertEquals(bits, packed.bits(from, k));
+            }
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * appending characters, strings and bytes must give the same sequence as packing it at once,
+     * adjacent N's are merged into a single run
+     */
+    @Test
+    public void compareAppend()
+    {
+        Random random = new Random(401);
+        for (String seq: seqs)
+        {
+            PackedSequence packed = new PackedSequence();
+            int i = 0;
+            while (i < seq.length())
+            {
+                int to = Math.min(seq.length(), i + random.nextInt(100));
+                switch (random.nextInt(3))
+                {
+                    case 0 -> {for (int j=i; j<to; j++) packed.append(seq.charAt(j));}
+                    case 1 -> packed.append(seq.substring(i, to));
+                    default -> packed.append(seq.getBytes(), i, to);
+                }
+                i = to;
+            }
+
+            PackedSequence atOnce = new PackedSequence(seq);
+            assertEquals(atOnce.toString(), packed.toString());
+            assertEquals(atOnce.getTotalNRuns(), packed.getTotalNRuns());
+            assertEquals(runs(seq), packed.getTotalNRuns());
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * a sequence sized in advance doesn't grow while appending, trimToSize() releases unused words
+     * (only if more than 1/16 of them are unused) and the sequence can still be appended to afterwards
+     */
+    @Test
+    public void compareCapacity()
+    {
+        for (String seq: seqs)
+        {
+            PackedSequence packed = new PackedSequence(1);
+            packed.ensureCapacity(seq.length());
+            long capacity = packed.capacity();
+            assertEquals(Math.max((seq.length() + 31) / 32, 1) * 32L, capacity);
+
+            packed.append(seq);
+            assertEquals(capacity, packed.capacity());
+            packed.ensureCapacity(seq.length() / 2);
+            assertEquals(capacity, packed.capacity());
+
+            packed.trimToSize();
+            assertEquals(capacity, packed.capacity());
+            assertEquals(seq.toUpperCase(), packed.toString());
+
+            //appending after trimming (incl. new N runs)
+            packed.append("ACGTNNA");
+            packed.trimToSize();
+            assertEquals(seq.toUpperCase() + "ACGTNNA", packed.toString());
+            assertEquals(runs(seq + "ACGTNNA"), packed.getTotalNRuns());
+        }
+
+        PackedSequence packed = new PackedSequence(10000);
+        packed.append("ACGTN");
+        packed.trimToSize();
+        assertEquals(32, packed.capacity());
+
+        packed.ensureCapacity(32 * 17);
+        packed.append("A".repeat(32 * 16 - 5));
+        packed.trimToSize();
+        assertEquals(32 * 17, packed.capacity());
+    }
+
+    private static int runs(String seq)
+    {
+        int runs = 0;
+        for (int i=0; i<seq.length(); i++)
+        {
+            if (Character.toUpperCase(seq.charAt(i)) == 'N' && (i == 0 || Character.toUpperCase(seq.charAt(i-1)) != 'N')) runs++;
+        }
+        return runs;
+    }
+}
@@ -1,6 +1,7 @@
 package stringsearch;
 
 import java.util.ArrayList;
+import java.util.stream.IntStream;
 
 import stringsearch.Node;
 
@@ -52,12 +53,12 @@ public class PatternFSM
                 /*if the current character of the alphabet
                 equals the character of the pattern at the current node
                 create a new edge labeled with c to the next node;
-                if not, calculate the border of the pattern concatenated with the current character
+                if not, calculate the border of the prefix matched so far (first i characters) concatenated with the current character
                 and create a new edge back to the node at position "border"*/
 
                 char c = (char)j;
                 if (i < pLength && c == p.charAt(i)) fsm[i].next.put(c, fsm[i+1]);
-                else fsm[i].next.put(c, fsm[border(p+c)]);  
+                else fsm[i].next.put(c, fsm[border(p.substring(0, i) + c)]);
             }
         }
         return fsm;
@@ -85,25 +86,73 @@ public class PatternFSM
     public ArrayList<Integer> search(String text) {return search(text, this.pattern);}
 
     public ArrayList<Integer> search(String text, String pattern)
+    {
+        ArrayList<Integer> hits = new ArrayList<Integer>();
+        search(text, pattern, hits::add);
+
+        return hits;
+    }
+
+    public void search(String text, String pattern, HitSink sink)
     {
         //search the pattern in the text using the pattern FSM
+        //and report every hit to the sink (stops as soon as the sink returns false)
         this.pattern = pattern;
         this.patternFSM = buildPatternFSM(pattern);
 
         int pLength = pattern.length();
-        ArrayList<Integer> hits = new ArrayList<Integer>();
         Node currNode = this.patternFSM[0];
 
         for (int i=0; i<text.length(); i++)
         {
             /*Start at the start node and input all the characters of the text one after another.
             If we reach the only accepting end state, the pattern was part of the text.
-            If so, add the position of the 1st character of the pattern in the text to the output array.*/
+            If so, report the position of the 1st character of the pattern in the text.*/
 
-            Node nxtNode = currNode.next.get(text.charAt(i));
-            if (nxtNode.isEndState) hits.add(i - pLength + 1);
-            currNode = nxtNode;       
+            currNode = step(this.patternFSM, currNode, text.charAt(i));
+            if (currNode.isEndState && !sink.hit(i - pLength + 1)) return;
         }
-        return hits;
+    }
+
+    private Node step(Node[] fsm, Node currNode, char c)
+    {
+        //characters outside of the FSM's alphabet (non-ASCII) lead back to the start node
+        Node nxtNode = currNode.next.get(c);
+        return (nxtNode == null) ? fsm[0] : nxtNode;
+    }
+
+    public long count(String text, String pattern)
+    {
+        HitCounter counter = new HitCounter();
+        search(text, pattern, counter);
+
+        return counter.getCount();
+    }
+
+    public IntStream stream(String text, String pattern)
+    {
+        //lazy stream of the hits (the text is only scanned as far as the stream is consumed)
+        this.pattern = pattern;
+        this.patternFSM = buildPatternFSM(pattern);
+
+        int pLength = pattern.length();
+        Node[] fsm = this.patternFSM;
+
+        return HitStream.of(new HitStream.Cursor()
+        {
+            Node currNode = fsm[0];
+            int i = 0;
+
+            @Override
+            public int next()
+            {
+                while (i < text.length())
+                {
+                    currNode = step(fsm, currNode, text.charAt(i++));
+                    if (currNode.isEndState) return i - pLength;
+                }
+                return -1;
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import stringsearch.GeneralizedSuffixArray;
+import stringsearch.Nucleotides;
+
+public class RepeatFinder
+{
+    //finds tandem repeats and reverse-complement palindromes (restriction sites, hairpins) in DNA sequences
+    //both are answered w/ longest common extension (LCE) queries on a generalized suffix array
+    //of the sequence and its reverse complement:
+    //- forward LCE (seq vs. seq) and backward LCE (rc vs. rc) for the runs of every period p:
+    //  checking the positions 0, p, 2p, ... finds every run of length >= 2p (O(n log maxPeriod) queries)
+    //- palindrome arms (seq vs. rc) around every center (O(n * loops) queries)
+    //an LCE query compares a few characters directly and otherwise takes the minimum of the LCP array
+    //between the ranks of both suffixes (range minimum query over block minima, O(1) sparse table lookups)
+    //long sequences are processed in windows of windowSize bases (+ overlap on both sides), the hits are reported
+    //window by window in order of their start position, so the memory use is bounded
+    //(repeats and palindromes longer than the overlap are truncated)
+    //lower case bases are treated like upper case bases, extensions stop at N (and other non-ACGT characters),
+    //so N runs are neither reported as repeats nor as palindromes
+
+    private static final int BLOCK = 32;
+    private static final int DIRECT = 16; //characters compared directly before the RMQ is used
+
+    int windowSize;
+    int overlap;
+
+    //index of the current window
+    GeneralizedSuffixArray gsa;
+    int[] rank;
+    int[] nextN;     //nextN[i]: first position >= i of the concatenation that is not A, C, G or T
+    int[][] sparse;  //sparse[j][b]: minimum lcp of the blocks b ... b+2^j-1
+    int n;           //length of the current window
+
+    public interface RepeatSink
+    {
+        //unit: period (tandem repeats) or arm length (palindromes); return false to stop
+        boolean hit(int start, int length, int unit);
+    }
+
+    public RepeatFinder()
+    {
+        this(1 << 20, 10000);
+    }
+
+    public RepeatFinder(int windowSize, int overlap)
+    {
+        this.windowSize = windowSize;
+        this.overlap = overlap;
+    }
+
+    private void index(String window)
+    {
+        window = window.toUpperCase();
+        this.n = window.length();
+        String rc = Nucleotides.reverseComplement(window);
+        this.gsa = new GeneralizedSuffixArray(window, rc);
+
+        int total = gsa.starts[2];
+        this.nextN = new int[total + 1];
+        nextN[total] = total;
+        for (int i=total-1; i>=0; i--)
+        {
+            char c = (i < n) ? window.charAt(i) : (i > n && i <= 2 * n) ? rc.charAt(i - n - 1) : '#';
+            nextN[i] = (Nucleotides.code(c) < 0) ? i : nextN[i+1];
+        }
+
+        int[] sa = gsa.sa;
+        int[] lcp = gsa.lcp;
+        this.rank = new int[gsa.starts[2]];
+        for (int i=0; i<sa.length; i++) rank[sa[i]] = i;
+
+        int blocks = (lcp.length + BLOCK - 1) / BLOCK;
+        int levels = 1;
+        while ((1 << levels) <= blocks) levels++;
+
+        this.sparse = new int[levels][];
+        sparse[0] = new int[blocks];
+        for (int b=0; b<blocks; b++)
+        {
+            int min = Integer.MAX_VALUE;
+            for (int i=b*BLOCK; i<Math.min((b + 1) * BLOCK, lcp.length); i++) min = Math.min(min, lcp[i]);
+            sparse[0][b] = min;
+        }
+        for (int j=1; j<levels; j++)
+        {
+            int half = 1 << (j - 1);
+            sparse[j] = new int[blocks - (1 << j) + 1];
+            for (int b=0; b<sparse[j].length; b++) sparse[j][b] = Math.min(sparse[j-1][b], sparse[j-1][b+half]);
+        }
+    }
+
+    private int rangeMin(int lo, int hi)
+    {
+        //minimum of lcp[lo ... hi]
+
+        int[] lcp = gsa.lcp;
+        int min = Integer.MAX_VALUE;
+        int bLo = lo / BLOCK, bHi = hi / BLOCK;
+
+        if (bHi - bLo < 2)
+        {
+            for (int i=lo; i<=hi; i++) min = Math.min(min, lcp[i]);
+            return min;
+        }
+
+        for (int i=lo; i<(bLo + 1) * BLOCK; i++) min = Math.min(min, lcp[i]);
+        for (int i=bHi*BLOCK; i<=hi; i++) min = Math.min(min, lcp[i]);
+
+        int from = bLo + 1, to = bHi - 1;
+        int j = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+        return Math.min(min, Math.min(sparse[j][from], sparse[j][to - (1 << j) + 1]));
+    }
+
+    private int lce(int x, int y)
+    {
+        //longest common extension of the suffixes at the positions x and y of the concatenation (seq # rc),
+        //limited to the ACGT bases before the next N of both suffixes
+
+        int[] s = gsa.s;
+        int limit = Math.min(nextN[x] - x, nextN[y] - y);
+        int h = 0;
+        while (h < DIRECT && h < limit && s[x+h] == s[y+h]) h++;
+        if (h < DIRECT || h == limit) return h;
+        if (x == y) return limit;
+
+        int rx = rank[x], ry = rank[y];
+        return Math.min(rangeMin(Math.min(rx, ry) + 1, Math.max(rx, ry)), limit);
+    }
+
+    private int forward(int i, int j) {return lce(i, j);}
+
+    private int backward(int i, int j)
+    {
+        //number of equal characters left of the positions i and j of the sequence (= forward LCE in the reverse complement)
+        return (i == 0 || j == 0) ? 0 : lce(n + 1 + n - i, n + 1 + n - j);
+    }
+
+    private int arm(int center, int loop)
+    {
+        //arm length of the reverse-complement palindrome w/ the loop center ... center+loop-1
+        return (center == 0 || center + loop >= n) ? 0 : lce(center + loop, n + 1 + n - center);
+    }
+
+    public ArrayList<int[]> findTandemRepeats(String seq, int maxPeriod, int minCopies, int minLength)
+    {
+        //every repeat is returned as {start, length, period}
+        ArrayList<int[]> hits = new ArrayList<int[]>();
+        findTandemRepeats(seq, maxPeriod, minCopies, minLength, (start, length, period) -> hits.add(new int[]{start, length, period}));
+
+        return hits;
+    }
+
+    public void findTandemRepeats(String seq, int maxPeriod, int minCopies, int minLength, RepeatSink sink)
+    {
+        //maximal tandem repeats (runs) w/ a primitive period <= maxPeriod, at least minCopies (>= 2) copies
+        //of the repeat unit and a length of at least minLength (incomplete trailing copies are included)
+
+        int copies = Math.max(minCopies, 2);
+
+        scanWindows(seq, (windowStart, from, to, hits) ->
+        {
+            for (int p=1; p<=Math.min(maxPeriod, n/2); p++)
+            {
+                int lastStart = -1;
+                for (int i=0; i+p<n; i+=p)
+                {
+                    int f = forward(i, i + p);
+                    int b = backward(i, i + p);
+                    if (b + f < p) continue;
+
+                    int start = i - b;
+                    int length = b + f + p;
+                    if (start == lastStart) continue;
+                    lastStart = start;
+
+                    if (start < from || start >= to || length < minLength || length < copies * p || !isPrimitive(start, p)) continue;
+                    hits.add(new int[]{windowStart + start, length, p});
+                }
+            }
+        }, sink);
+    }
+
+    private boolean isPrimitive(int start, int p)
+    {
+        //the repeat unit is not a power of a shorter string (its periods q that divide p are checked w/ LCE queries)
+
+        for (int q=1; q<=p/2; q++)
+        {
+            if (p % q == 0 && forward(start, start + q) >= p - q) return false;
+        }
+        return true;
+    }
+
+    public ArrayList<int[]> findPalindromes(String seq, int minArm, int maxLoop)
+    {
+        //every palindrome is returned as {start, length, arm length}
+        ArrayList<int[]> hits = new ArrayList<int[]>();
+        findPalindromes(seq, minArm, maxLoop, (start, length, arm) -> hits.add(new int[]{start, length, arm}));
+
+        return hits;
+    }
+
+    public void findPalindromes(String seq, int minArm, int maxLoop, RepeatSink sink)
+    {
+        //maximal reverse-complement palindromes w/ arms of at least minArm bases around a loop of 0 ... maxLoop bases
+        //(maxLoop = 0: restriction site like palindromes, e.g. GAATTC; maxLoop > 0: hairpins)
+        //a hairpin is only reported w/ its smallest loop (the bases next to the loop don't pair)
+
+        int arms = Math.max(minArm, 1);
+
+        scanWindows(seq, (windowStart, from, to, hits) ->
+        {
+            for (int i=1; i<n; i++)
+            {
+                for (int loop=0; loop<=maxLoop && i+loop<n; loop++)
+                {
+                    if (loop >= 2 && pairs(seq.charAt(windowStart + i), seq.charAt(windowStart + i + loop - 1))) continue;
+
+                    int arm = arm(i, loop);
+                    int start = i - arm;
+                    if (arm < arms || start < from || start >= to) continue;
+
+                    hits.add(new int[]{windowStart + start, 2 * arm + loop, arm});
+                }
+            }
+        }, sink);
+    }
+
+    private static boolean pairs(char a, char b)
+    {
+        //a and b are complementary bases (N and other non-ACGT characters never pair)
+        return Nucleotides.code(a) >= 0 && Nucleotides.complement(a) == Character.toUpperCase(b);
+    }
+
+    private interface WindowScan
+    {
+        //collect the hits that start in from ... to-1 (window coordinates)
+        void scan(int windowStart, int from, int to, ArrayList<int[]> hits);
+    }
+
+    private void scanWindows(String seq, WindowScan scan, RepeatSink sink)
+    {
+        //index the windows one after another and report their hits sorted by start position
+
+        for (int core=0; core<seq.length(); core+=windowSize)
+        {
+            int windowStart = Math.max(core - overlap, 0);
+            int windowEnd = (int)Math.min((long)core + windowSize + overlap, seq.length());
+
+            index(seq.substring(windowStart, windowEnd));
+
+            ArrayList<int[]> hits = new ArrayList<int[]>();
+            scan.scan(windowStart, core - windowStart, Math.min(core + windowSize, seq.length()) - windowStart, hits);
+            hits.sort(Comparator.<int[]>comparingInt(h -> h[0]).thenComparingInt(h -> h[2]));
+
+            for (int[] hit: hits)
+            {
+                if (!sink.hit(hit[0], hit[1], hit[2])) return;
+            }
+        }
+
+        this.gsa = null;
+        this.rank = null;
+        this.nextN = null;
+        this.sparse = null;
+    }
+}
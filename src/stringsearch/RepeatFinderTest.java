@@ -0,0 +1,153 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the tandem repeats and reverse-complement palindromes of the <code>RepeatFinder</code> class
+ * against a brute force scan of every period / center using the JUnit unittesting framework
+ */
+public class RepeatFinderTest
+{
+    private ArrayList<String> seqs;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //random sequences (binary alphabet: many repeats), half of them w/ a planted tandem repeat, some w/ N runs
+        Random random = new Random(39);
+        this.seqs = new ArrayList<String>();
+
+        for (int s=0; s<300; s++)
+        {
+            StringBuilder seq = new StringBuilder(RandomSequences.randomSeq(random, 1 + random.nextInt(300), random.nextBoolean() ? "AC" : "ACGT"));
+            if (random.nextBoolean()) seq.insert(random.nextInt(seq.length()), RandomSequences.randomSeq(random, 1 + random.nextInt(6), "ACGT").repeat(2 + random.nextInt(5)));
+            if (s % 3 == 0) seq.insert(random.nextInt(seq.length()), "N".repeat(1 + random.nextInt(10)));
+            seqs.add(seq.toString());
+        }
+    }
+
+    private static boolean equal(char a, char b) {return a == b && "ACGT".indexOf(a) >= 0;}
+    private static boolean pair(char a, char b) {return "ACGT".indexOf(a) >= 0 && "TGCA".indexOf(b) == "ACGT".indexOf(a);}
+
+    private static boolean isPrimitive(String unit)
+    {
+        for (int q=1; q<=unit.length()/2; q++)
+        {
+            if (unit.length() % q == 0 && unit.substring(0, q).repeat(unit.length() / q).equals(unit)) return false;
+        }
+        return true;
+    }
+
+    private static TreeSet<String> bruteForceRepeats(String seq, int maxPeriod, int minCopies, int minLength)
+    {
+        //maximal runs s[i] == s[i+p] (N's never match) of length >= 2p w/ a primitive unit, as "start length period"
+
+        TreeSet<String> repeats = new TreeSet<String>();
+        int n = seq.length();
+        for (int p=1; p<=Math.min(maxPeriod, n/2); p++)
+        {
+            int k = 0;
+            while (k + p < n)
+            {
+                if (!equal(seq.charAt(k), seq.charAt(k + p)))
+                {
+                    k++;
+                    continue;
+                }
+
+                int start = k;
+                while (k + p < n && equal(seq.charAt(k), seq.charAt(k + p))) k++;
+                int length = k - start + p;
+
+                if (length >= minLength && length >= Math.max(minCopies, 2) * p && isPrimitive(seq.substring(start, start + p))) repeats.add(start + " " + length + " " + p);
+            }
+        }
+        return repeats;
+    }
+
+    private static TreeSet<String> bruteForcePalindromes(String seq, int minArm, int maxLoop)
+    {
+        //arms around every loop (only the smallest loop of a hairpin), as "start length arm"
+
+        TreeSet<String> palindromes = new TreeSet<String>();
+        int n = seq.length();
+        for (int i=1; i<n; i++)
+        {
+            for (int loop=0; loop<=maxLoop && i+loop<n; loop++)
+            {
+                if (loop >= 2 && pair(seq.charAt(i), seq.charAt(i + loop - 1))) continue;
+
+                int arm = 0;
+                while (i - 1 - arm >= 0 && i + loop + arm < n && pair(seq.charAt(i - 1 - arm), seq.charAt(i + loop + arm))) arm++;
+                if (arm >= Math.max(minArm, 1)) palindromes.add((i - arm) + " " + (2 * arm + loop) + " " + arm);
+            }
+        }
+        return palindromes;
+    }
+
+    private static TreeSet<String> format(ArrayList<int[]> hits)
+    {
+        TreeSet<String> formatted = new TreeSet<String>();
+        for (int[] hit: hits) formatted.add(hit[0] + " " + hit[1] + " " + hit[2]);
+        return formatted;
+    }
+
+    /**
+     * JUnit unittest:
+     * the tandem repeats must equal the brute force runs, w/ a single window and w/ small overlapping windows
+     */
+    @Test
+    public void compareTandemRepeats()
+    {
+        Random random = new Random(390);
+        for (String seq: seqs)
+        {
+            int maxPeriod = 1 + random.nextInt(20);
+            int minCopies = 2 + random.nextInt(2);
+            int minLength = random.nextInt(10);
+            RepeatFinder finder = random.nextBoolean() ? new RepeatFinder() : new RepeatFinder(50 + random.nextInt(50), 200);
+
+            assertEquals(seq, bruteForceRepeats(seq, maxPeriod, minCopies, minLength), format(finder.findTandemRepeats(seq, maxPeriod, minCopies, minLength)));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * the palindromes must equal the brute force arms around every center, w/ a single window and w/ small overlapping windows
+     */
+    @Test
+    public void comparePalindromes()
+    {
+        Random random = new Random(391);
+        for (String seq: seqs)
+        {
+            int minArm = 1 + random.nextInt(4);
+            int maxLoop = random.nextInt(6);
+            RepeatFinder finder = random.nextBoolean() ? new RepeatFinder() : new RepeatFinder(50 + random.nextInt(50), 200);
+
+            assertEquals(seq, bruteForcePalindromes(seq, minArm, maxLoop), format(finder.findPalindromes(seq, minArm, maxLoop)));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * N runs are neither repeats nor palindromes, the hits are reported sorted by start position
+     */
+    @Test
+    public void ignoreNRuns()
+    {
+        RepeatFinder finder = new RepeatFinder();
+        assertEquals(0, finder.findTandemRepeats("NNNNNNNNNNNN", 4, 2, 2).size());
+        assertEquals(0, finder.findPalindromes("NNNNNNNN", 1, 3).size());
+
+        ArrayList<int[]> hits = finder.findTandemRepeats("CAGCAGCAGNNNNNNCAGCAG", 3, 2, 6);
+        assertEquals(2, hits.size());
+        assertEquals(0, hits.get(0)[0]);
+        assertEquals(15, hits.get(1)[0]);
+    }
+}
@@ -0,0 +1,135 @@
+package stringsearch;
+
+import java.util.ArrayList;
+
+public class ShiftAnd
+{
+    //Shift-And algorithm for pattern matching w/ at most k mismatches (Hamming distance)
+    //keeps one bit vector per number of mismatches (bit j set: the last j+1 text characters
+    //match the first j+1 pattern characters w/ at most that many mismatches)
+    //every text character costs O(k * m/64) word operations (m: length of pattern),
+    //patterns longer than 64 characters use multi-word bit vectors
+
+    String text;
+
+    public ShiftAnd()
+    {
+        this("");
+    }
+
+    public ShiftAnd(String text)
+    {
+        this.text = text;
+    }
+
+    public long[][] makeMasks(String p, int words)
+    {
+        //bit vector of the positions of every (ASCII) character in the pattern
+
+        long[][] masks = new long[256][words];
+
+        for (int i=0; i<p.length(); i++)
+        {
+            char c = p.charAt(i);
+            if (c < 256) masks[c][i >>> 6] |= 1L << (i & 63);
+        }
+        return masks;
+    }
+
+    public ArrayList<int[]> search(String p, int k)
+    {
+        return search(this.text, p, k);
+    }
+
+    public void search(String t, String p, HitSink sink)
+    {
+        //exact matching: report the start position of every occurrence to the sink while scanning
+        //(stops as soon as the sink returns false), patterns of up to 64 characters use a single word
+
+        int n = t.length();
+        int m = p.length();
+        if (m == 0) return;
+
+        int words = (m + 63) >>> 6;
+        long[][] masks = makeMasks(p, words);
+        int lastWord = (m - 1) >>> 6;
+        long lastBit = 1L << ((m - 1) & 63);
+
+        if (words == 1)
+        {
+            long[] eq = new long[256];
+            for (int c=0; c<256; c++) eq[c] = masks[c][0];
+
+            long r = 0;
+            for (int i=0; i<n; i++)
+            {
+                char c = t.charAt(i);
+                r = ((r << 1) | 1L) & ((c < 256) ? eq[c] : 0L);
+                if ((r & lastBit) != 0 && !sink.hit(i - m + 1)) return;
+            }
+            return;
+        }
+
+        long[] none = new long[words];
+        long[] r = new long[words];
+        for (int i=0; i<n; i++)
+        {
+            char c = t.charAt(i);
+            long[] eq = (c < 256) ? masks[c] : none;
+
+            for (int w=words-1; w>=0; w--) r[w] = ((r[w] << 1) | ((w > 0) ? r[w-1] >>> 63 : 1L)) & eq[w];
+            if ((r[lastWord] & lastBit) != 0 && !sink.hit(i - m + 1)) return;
+        }
+    }
+
+    public ArrayList<int[]> search(String t, String p, int k)
+    {
+        //every hit is returned as {end position of the occurrence in the text, number of mismatches}
+
+        int n = t.length();
+        int m = p.length();
+        ArrayList<int[]> hits = new ArrayList<int[]>();
+        if (m == 0) return hits;
+
+        k = Math.min(k, m);
+        int words = (m + 63) >>> 6;
+        long[][] masks = makeMasks(p, words);
+        long[] none = new long[words];
+        long[][] r = new long[k+1][words];
+        int lastWord = (m - 1) >>> 6;
+        long lastBit = 1L << ((m - 1) & 63);
+
+        for (int i=0; i<n; i++)
+        {
+            char c = t.charAt(i);
+            long[] eq = (c < 256) ? masks[c] : none;
+
+            /*r[j] = ((r[j] << 1) | 1) & eq  |  ((r[j-1] << 1) | 1)
+            update w/ descending j and w, so r[j-1] and the lower words still hold their previous values*/
+            for (int j=k; j>=0; j--)
+            {
+                long[] rj = r[j];
+                long[] rPrev = (j > 0) ? r[j-1] : null;
+
+                for (int w=words-1; w>=0; w--)
+                {
+                    long shifted = (rj[w] << 1) | ((w > 0) ? rj[w-1] >>> 63 : 1L);
+                    long next = shifted & eq[w];
+
+                    if (rPrev != null) next |= (rPrev[w] << 1) | ((w > 0) ? rPrev[w-1] >>> 63 : 1L);
+                    rj[w] = next;
+                }
+            }
+
+            for (int j=0; j<=k; j++)
+            {
+                if ((r[j][lastWord] & lastBit) != 0)
+                {
+                    hits.add(new int[]{i, j});
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+}
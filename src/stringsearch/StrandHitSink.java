@@ -0,0 +1,10 @@
+package stringsearch;
+
+public interface StrandHitSink
+{
+    //receives the hits of a dual-strand search (DualStrandSearch) one at a time
+    //strand: '+' (pattern found on the given strand) or '-' (reverse complement of the pattern found)
+    //returning false stops the search early
+
+    boolean hit(int patternId, int position, char strand);
+}
@@ -0,0 +1,295 @@
+package stringsearch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+
+import stringsearch.AhoCorasick;
+import stringsearch.FMIndex;
+import stringsearch.Horspool;
+import stringsearch.Nucleotides;
+import stringsearch.PatternFSM;
+import stringsearch.ShiftAnd;
+import stringsearch.SuffixArray;
+
+public class StringSearcher
+{
+    //search facade that picks the (estimated) fastest engine for every query
+    //the choice is based on simple cost models (estimated ns per query) of every engine, which depend on
+    //the length n and alphabet size of the text, the length m of the pattern and the number of queries
+    //(the construction of an index is amortized over the expected number of queries, an existing index is free);
+    //the per-operation constants are rough estimates for random texts of a few Mbp (alphabet sizes 4 and 26, patterns of 1 to 200
+    //characters), not the results of a benchmark, so only their ratios matter:
+    //single-word Shift-And scans ~1 ns per character regardless of m, Horspool pays ~4.5 ns per window and
+    //shifts by at most the alphabet size, so on DNA Shift-And wins up to m = 64 and on large alphabets Horspool from m ~ 8
+    //searches are case-insensitive: the text is upper-cased once, every pattern per query
+    //(the engines themselves are case-sensitive, except for the FM-index)
+    //the last MAX_DECISIONS decisions are logged w/ the costs of all engines, see getDecisions()
+    //Trie is not an engine here, it can't report hit positions and needs O(n^2) space
+
+    public enum Engine {HORSPOOL, SHIFT_AND, PATTERN_FSM, SUFFIX_ARRAY, FM_INDEX, AHO_CORASICK}
+
+    //estimated costs in ns
+    static final double HORSPOOL_WINDOW = 4.5;          //per window (+ HORSPOOL_COMPARE / alphabet size for verification)
+    static final double HORSPOOL_COMPARE = 12.0;
+    static final double SHIFT_AND_CHAR = 1.0;           //per text character (patterns of up to 64 characters)
+    static final double SHIFT_AND_WORD = 2.3;           //per text character and 64 pattern characters (longer patterns)
+    static final double FSM_CHAR = 18.0;                //per text character
+    static final double FSM_BUILD = 2.0;                //per state, character and border comparison (256 * (m+1) * m^2 / 2)
+    static final double SA_BUILD = 200.0;               //per text character
+    static final double SA_STEP = 40.0;                 //per pattern character and binary search step
+    static final double SA_HIT = 20.0;                  //per reported hit
+    static final double FM_BUILD = 200.0;               //per text character
+    static final double FM_STEP = 55.0;                 //per pattern character (backward search)
+    static final double FM_HIT = 700.0;                 //per reported hit (LF-walk to a sampled row)
+    static final double AC_BUILD = 5000.0;              //per pattern character
+    static final double AC_CHAR = 10.0;                 //per text character
+
+    static final int MAX_DECISIONS = 1024;
+
+    String text;
+    int n;
+    int alphabetSize;
+    boolean isDNA;          //text consists of A, C, G and T only (required by the FM-index)
+    int expectedQueries;
+    int queries = 0;
+
+    SuffixArray suffixArray;
+    FMIndex fmIndex;
+    ArrayDeque<Decision> decisions = new ArrayDeque<Decision>(MAX_DECISIONS);  //oldest decision first
+
+    public static class Decision
+    {
+        public final String query;     //pattern (or number of patterns of a batch)
+        public final Engine engine;
+        public final double[] costs;   //estimated cost of every engine (index: Engine.ordinal(), infinity: not applicable)
+
+        Decision(String query, Engine engine, double[] costs)
+        {
+            this.query = query;
+            this.engine = engine;
+            this.costs = costs;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder s = new StringBuilder(query + " -> " + engine + " (");
+            for (Engine e: Engine.values())
+            {
+                if (Double.isInfinite(costs[e.ordinal()])) continue;
+                s.append(String.format("%s%s: %.0f ns", (s.charAt(s.length()-1) == '(') ? "" : ", ", e, costs[e.ordinal()]));
+            }
+            return s.append(")").toString();
+        }
+    }
+
+    public StringSearcher(String text)
+    {
+        this(text, 1);
+    }
+
+    public StringSearcher(String text, int expectedQueries)
+    {
+        this.text = text.toUpperCase();
+        this.n = this.text.length();
+        this.expectedQueries = Math.max(expectedQueries, 1);
+
+        BitSet chars = new BitSet();
+        for (int i=0; i<n; i++) chars.set(this.text.charAt(i));
+
+        this.alphabetSize = Math.max(chars.cardinality(), 1);
+        this.isDNA = !chars.isEmpty();
+        for (char c: Nucleotides.BASES) chars.clear(c);
+        this.isDNA &= chars.isEmpty();
+    }
+
+    public int getAlphabetSize() {return alphabetSize;}
+    public ArrayList<Decision> getDecisions() {return new ArrayList<Decision>(decisions);}
+    public Decision getLastDecision() {return decisions.peekLast();}
+
+    private double expectedHits(int m)
+    {
+        //expected number of occurrences of a pattern in a random text
+        return Math.min(n, n * Math.pow(1.0 / alphabetSize, m));
+    }
+
+    private double remainingQueries() {return Math.max(expectedQueries - queries, 1);}
+
+    double[] costs(int m)
+    {
+        //estimated cost of a single query w/ a pattern of length m for every engine
+
+        double[] costs = new double[Engine.values().length];
+        double sigma = alphabetSize;
+        double log = Math.log(n + 1) / Math.log(2);
+
+        //Horspool: expected shift ~ number of distinct characters in the pattern window
+        double shift = Math.max(Math.min(sigma * (1 - Math.pow(1 - 1 / sigma, m)), m), 1);
+        costs[Engine.HORSPOOL.ordinal()] = n / shift * (HORSPOOL_WINDOW + HORSPOOL_COMPARE / sigma);
+
+        costs[Engine.SHIFT_AND.ordinal()] = n * ((m <= 64) ? SHIFT_AND_CHAR : SHIFT_AND_WORD * ((m + 63) / 64));
+        costs[Engine.PATTERN_FSM.ordinal()] = n * FSM_CHAR + FSM_BUILD * 256.0 * (m + 1) * m * m / 2;
+
+        double hits = expectedHits(m);
+        double saBuild = (suffixArray == null) ? SA_BUILD * n / remainingQueries() : 0;
+        costs[Engine.SUFFIX_ARRAY.ordinal()] = saBuild + SA_STEP * (m + log) + SA_HIT * hits;
+
+        double fmBuild = (fmIndex == null) ? FM_BUILD * n / remainingQueries() : 0;
+        costs[Engine.FM_INDEX.ordinal()] = isDNA ? fmBuild + FM_STEP * m + FM_HIT * hits : Double.POSITIVE_INFINITY;
+
+        costs[Engine.AHO_CORASICK.ordinal()] = Double.POSITIVE_INFINITY; //only used for batches
+
+        return costs;
+    }
+
+    private static Engine cheapest(double[] costs)
+    {
+        Engine best = Engine.HORSPOOL;
+        for (Engine e: Engine.values())
+        {
+            if (costs[e.ordinal()] < costs[best.ordinal()]) best = e;
+        }
+        return best;
+    }
+
+    public Decision choose(String pattern)
+    {
+        //pick the engine for a pattern (w/o running the search)
+        double[] costs = costs(pattern.length());
+        return new Decision(pattern, cheapest(costs), costs);
+    }
+
+    public Decision choose(String[] patterns)
+    {
+        //pick the engine for a batch of patterns: one Aho-Corasick scan vs. the best engine per pattern
+        //(the costs of the other engines are the sums over all patterns)
+
+        double[] costs = new double[Engine.values().length];
+        int totalLength = 0;
+        int queriesBefore = queries;
+
+        for (String p: patterns)
+        {
+            double[] single = costs(p.length());
+            for (int e=0; e<costs.length; e++) costs[e] += single[e];
+            totalLength += p.length();
+            queries++;
+        }
+        queries = queriesBefore;
+
+        costs[Engine.AHO_CORASICK.ordinal()] = AC_BUILD * totalLength + AC_CHAR * n;
+
+        return new Decision(patterns.length + " patterns", cheapest(costs), costs);
+    }
+
+    private Engine decide(Decision decision)
+    {
+        if (decisions.size() == MAX_DECISIONS) decisions.pollFirst();
+        decisions.addLast(decision);
+        return decision.engine;
+    }
+
+    public void search(String pattern, HitSink sink)
+    {
+        //report every hit to the sink (stops as soon as the sink returns false)
+        //hits are reported in text order by the scanning engines and in index order by the index engines
+
+        Engine engine = decide(choose(pattern));
+        queries++;
+        if (!pattern.isEmpty()) run(engine, pattern.toUpperCase(), sink);
+    }
+
+    public ArrayList<Integer> search(String pattern)
+    {
+        //start positions of all occurrences of the pattern (sorted)
+
+        ArrayList<Integer> hits = new ArrayList<Integer>();
+        search(pattern, hits::add);
+        Collections.sort(hits);
+
+        return hits;
+    }
+
+    public long count(String pattern)
+    {
+        //the indexes count w/o locating the hits
+
+        Engine engine = decide(choose(pattern));
+        queries++;
+        if (pattern.isEmpty()) return 0;
+
+        pattern = pattern.toUpperCase();
+        switch (engine)
+        {
+            case SUFFIX_ARRAY -> {return suffixArray().count(pattern);}
+            case FM_INDEX -> {return fmIndex().count(pattern);}
+            default ->
+            {
+                HitCounter counter = new HitCounter();
+                run(engine, pattern, counter);
+                return counter.getCount();
+            }
+        }
+    }
+
+    private SuffixArray suffixArray()
+    {
+        if (suffixArray == null) suffixArray = new SuffixArray(text);
+        return suffixArray;
+    }
+
+    private FMIndex fmIndex()
+    {
+        if (fmIndex == null) fmIndex = new FMIndex(text);
+        return fmIndex;
+    }
+
+    private void run(Engine engine, String pattern, HitSink sink)
+    {
+        switch (engine)
+        {
+            case HORSPOOL -> new Horspool().search(text, pattern, sink);
+            case PATTERN_FSM -> new PatternFSM().search(text, pattern, sink);
+            case SHIFT_AND -> new ShiftAnd().search(text, pattern, sink);
+            case SUFFIX_ARRAY -> suffixArray().locate(pattern, sink);
+            case FM_INDEX -> fmIndex().locate(pattern, sink);
+            default -> throw new IllegalStateException(engine + " can't search single patterns!");
+        }
+    }
+
+    public ArrayList<int[]> search(String[] patterns)
+    {
+        //search a batch of patterns, every hit is returned as {pattern id, start position}
+
+        ArrayList<int[]> hits = new ArrayList<int[]>();
+        Engine engine = decide(choose(patterns));
+
+        if (engine == Engine.AHO_CORASICK)
+        {
+            //empty patterns have no hits (like in search(String)) and are left out of the automaton
+            queries += patterns.length;
+            String[] upper = new String[patterns.length];
+            int[] ids = new int[patterns.length];
+            int total = 0;
+            for (int id=0; id<patterns.length; id++)
+            {
+                if (patterns[id].isEmpty()) continue;
+                upper[total] = patterns[id].toUpperCase();
+                ids[total++] = id;
+            }
+            if (total > 0) new AhoCorasick(Arrays.copyOf(upper, total)).search(text, (k, pos) -> hits.add(new int[]{ids[k], pos}));
+        }
+        else
+        {
+            for (int id=0; id<patterns.length; id++)
+            {
+                int patternId = id;
+                search(patterns[id], pos -> hits.add(new int[]{patternId, pos}));
+            }
+        }
+        return hits;
+    }
+}
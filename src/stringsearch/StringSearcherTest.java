@@ -0,0 +1,157 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests that the <code>StringSearcher</code> facade finds the same hits as a brute force search
+ * whichever engine it picks, using the JUnit unittesting framework
+ */
+public class StringSearcherTest
+{
+    private String dna;   //soft-masked DNA (mixed case)
+    private String words; //large alphabet
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        Random random = new Random(37);
+        StringBuilder text = new StringBuilder();
+        for (int i=0; i<20000; i++)
+        {
+            char base = "ACGT".charAt(random.nextInt(4));
+            text.append((random.nextInt(3) == 0) ? Character.toLowerCase(base) : base);
+        }
+        this.dna = text.toString();
+
+        text = new StringBuilder();
+        for (int i=0; i<20000; i++) text.append((char)('A' + random.nextInt(26)));
+        this.words = text.toString();
+    }
+
+    private static ArrayList<Integer> bruteForce(String text, String pattern)
+    {
+        //case-insensitive occurrences
+        String t = text.toUpperCase(), p = pattern.toUpperCase();
+        ArrayList<Integer> hits = new ArrayList<Integer>();
+        for (int i=t.indexOf(p); i>=0 && !p.isEmpty(); i=t.indexOf(p, i + 1)) hits.add(i);
+        return hits;
+    }
+
+    private static String randomQuery(Random random, String text, int maxLength)
+    {
+        //substrings of the text (lower-cased for every 2nd query) and random patterns over the alphabet of the text
+        int m = 1 + random.nextInt(maxLength);
+        StringBuilder query = new StringBuilder(m);
+
+        if (random.nextInt(4) == 0)
+        {
+            for (int i=0; i<m; i++) query.append(Character.toUpperCase(text.charAt(random.nextInt(text.length()))));
+        }
+        else
+        {
+            int start = random.nextInt(text.length() - m);
+            query.append(text, start, start + m);
+        }
+        return random.nextBoolean() ? query.toString().toLowerCase() : query.toString();
+    }
+
+    private static void compareQueries(StringSearcher searcher, String text, long seed)
+    {
+        Random random = new Random(seed);
+        EnumSet<StringSearcher.Engine> used = EnumSet.noneOf(StringSearcher.Engine.class);
+
+        for (int q=0; q<300; q++)
+        {
+            String query = randomQuery(random, text, (q % 2 == 0) ? 8 : 150);
+            ArrayList<Integer> expected = bruteForce(text, query);
+
+            assertEquals(query, expected, searcher.search(query));
+            used.add(searcher.getLastDecision().engine);
+            assertEquals(query, expected.size(), searcher.count(query));
+            used.add(searcher.getLastDecision().engine);
+        }
+        assertTrue(used.toString(), used.size() >= 2);
+    }
+
+    /**
+     * JUnit unittest:
+     * case-insensitive single pattern queries on DNA (scanning engines for few queries,
+     * the indexes for many queries) and on a large alphabet
+     */
+    @Test
+    public void compareSingleQueries()
+    {
+        compareQueries(new StringSearcher(dna, 1), dna, 370);
+        compareQueries(new StringSearcher(dna, 100000), dna, 371);
+        compareQueries(new StringSearcher(words, 1), words, 372);
+    }
+
+    /**
+     * JUnit unittest:
+     * batches of patterns (one Aho-Corasick scan or one query per pattern) must report every occurrence of every pattern
+     */
+    @Test
+    public void compareBatches()
+    {
+        Random random = new Random(373);
+        StringSearcher searcher = new StringSearcher(dna, 10);
+
+        for (int size: new int[]{1, 2, 50, 500})
+        {
+            String[] patterns = new String[size];
+            HashSet<String> expected = new HashSet<String>();
+            for (int p=0; p<size; p++)
+            {
+                patterns[p] = randomQuery(random, dna, 10);
+                for (int hit: bruteForce(dna, patterns[p])) expected.add(p + ":" + hit);
+            }
+
+            HashSet<String> found = new HashSet<String>();
+            for (int[] hit: searcher.search(patterns)) found.add(hit[0] + ":" + hit[1]);
+            assertEquals(expected, found);
+        }
+
+        //empty patterns have no hits in a batch either (also if the batch is scanned w/ Aho-Corasick)
+        for (int size: new int[]{1, 2, 500})
+        {
+            String[] patterns = new String[size];
+            HashSet<String> expected = new HashSet<String>();
+            for (int p=0; p<size; p++)
+            {
+                patterns[p] = (p % 3 == 0) ? "" : randomQuery(random, dna, 10);
+                for (int hit: bruteForce(dna, patterns[p])) expected.add(p + ":" + hit);
+            }
+
+            HashSet<String> found = new HashSet<String>();
+            for (int[] hit: searcher.search(patterns)) found.add(hit[0] + ":" + hit[1]);
+            assertEquals(expected, found);
+        }
+        assertEquals(0, searcher.search(new String[]{"", ""}).size());
+    }
+
+    /**
+     * JUnit unittest:
+     * searches stop as soon as the sink returns false and only the last MAX_DECISIONS decisions are kept
+     */
+    @Test
+    public void stopEarlyAndCapLog()
+    {
+        StringSearcher searcher = new StringSearcher(dna);
+        int[] calls = new int[1];
+        searcher.search("a", position -> ++calls[0] < 3);
+        assertEquals(3, calls[0]);
+
+        for (int q=0; q<StringSearcher.MAX_DECISIONS + 10; q++) searcher.count((q == StringSearcher.MAX_DECISIONS + 9) ? "TTTT" : "ACGT");
+        assertEquals(StringSearcher.MAX_DECISIONS, searcher.getDecisions().size());
+        assertEquals("ACGT", searcher.getDecisions().get(0).query);
+        assertEquals("TTTT", searcher.getDecisions().get(StringSearcher.MAX_DECISIONS - 1).query);
+        assertEquals("TTTT", searcher.getLastDecision().query);
+    }
+}
@@ -0,0 +1,397 @@
+package stringsearch;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import stringsearch.IndexFile;
+
+public class SuffixArray
+{
+    //suffix array of a text w/ LCP array
+    //linear time construction using the SA-IS algorithm (induced sorting of the suffixes)
+    //and Kasai's algorithm for the LCP array
+    //replaces the suffix trie (Trie) for texts that are longer than a few kb:
+    //it uses ~16 bytes per character (instead of one Node per suffix character)
+    //and can also count and locate the occurrences of a pattern
+    //pattern queries take O(m + log n + occ) time (m: length of pattern, n: length of text, occ: number of hits)
+    //the arrays are kept in flat buffers, so a saved index can be memory-mapped by load() w/o copying
+
+    public String text;
+    IntBuffer sa;    //start positions of the suffixes in lexicographical order
+    IntBuffer lcp;   //lcp[i]: length of the longest common prefix of the suffixes sa[i-1] and sa[i] (lcp[0] = 0)
+    IntBuffer llcp;  //llcp[M]/rlcp[M]: lcp of the middle suffix M of a binary search interval w/ its left/right border
+    IntBuffer rlcp;
+
+    public SuffixArray(String text)
+    {
+        int[] sa = constructSuffixArray(text);
+        int[] lcp = constructLCP(text, sa);
+        int[] llcp = new int[text.length()];
+        int[] rlcp = new int[text.length()];
+        if (text.length() > 0) constructLCPLR(lcp, llcp, rlcp, -1, text.length());
+
+        this.text = text;
+        this.sa = IntBuffer.wrap(sa);
+        this.lcp = IntBuffer.wrap(lcp);
+        this.llcp = IntBuffer.wrap(llcp);
+        this.rlcp = IntBuffer.wrap(rlcp);
+    }
+
+    private SuffixArray() {}
+
+    public IntBuffer getSuffixArray() {return sa;}
+    public IntBuffer getLCP() {return lcp;}
+
+    public void save(String path) throws IOException
+    {
+        //write the index (incl. the text) to a file (see IndexFile for the format)
+        IndexFile.write(path, IndexFile.SUFFIX_ARRAY, CharBuffer.wrap(text), sa, lcp, llcp, rlcp);
+    }
+
+    public static SuffixArray load(String path) throws IOException
+    {
+        //memory-map an index that was written by save() (only the text is copied into a String)
+
+        Buffer[] sections = IndexFile.read(path, IndexFile.SUFFIX_ARRAY);
+
+        SuffixArray index = new SuffixArray();
+        index.text = sections[0].toString();
+        index.sa = (IntBuffer)sections[1];
+        index.lcp = (IntBuffer)sections[2];
+        index.llcp = (IntBuffer)sections[3];
+        index.rlcp = (IntBuffer)sections[4];
+
+        return index;
+    }
+
+    private int[] constructSuffixArray(String text)
+    {
+        //map the characters of the text to their ranks (1..sigma) and append the sentinel (0)
+
+        int n = text.length();
+        int[] rank = new int[Character.MAX_VALUE + 1];
+        for (int i=0; i<n; i++) rank[text.charAt(i)] = 1;
+
+        int sigma = 0;
+        for (int c=0; c<rank.length; c++)
+        {
+            if (rank[c] != 0) rank[c] = ++sigma;
+        }
+
+        int[] s = new int[n + 1];
+        for (int i=0; i<n; i++) s[i] = rank[text.charAt(i)];
+
+        //the suffix array of s starts w/ the sentinel, which is not part of the text
+        int[] sa = buildSuffixArray(s, sigma + 1);
+        return Arrays.copyOfRange(sa, 1, n + 1);
+    }
+
+    public static int[] buildSuffixArray(int[] s, int alphabetSize)
+    {
+        //suffix array of s (s must end w/ a unique, smallest character 0; alphabet: 0..alphabetSize-1)
+
+        int n = s.length;
+        int[] sa = new int[n];
+
+        if (n == 1) sa[0] = 0;
+        else sais(s, sa, n, alphabetSize);
+
+        return sa;
+    }
+
+    private static boolean isLMS(boolean[] sType, int i)
+    {
+        //leftmost S-type position (S-type character w/ an L-type character to its left)
+        return i > 0 && sType[i] && !sType[i-1];
+    }
+
+    private static void getBuckets(int[] s, int[] bkt, int n, int k, boolean end)
+    {
+        //compute the start (or end) of the bucket of every character
+
+        Arrays.fill(bkt, 0);
+        for (int i=0; i<n; i++) bkt[s[i]]++;
+
+        int sum = 0;
+        for (int c=0; c<k; c++)
+        {
+            sum += bkt[c];
+            bkt[c] = end ? sum : sum - bkt[c];
+        }
+    }
+
+    private static void induceL(boolean[] sType, int[] sa, int[] s, int[] bkt, int n, int k)
+    {
+        //induce the order of the L-type suffixes from the sorted LMS suffixes (left to right scan)
+
+        getBuckets(s, bkt, n, k, false);
+        for (int i=0; i<n; i++)
+        {
+            int j = sa[i] - 1;
+            if (j >= 0 && !sType[j]) sa[bkt[s[j]]++] = j;
+        }
+    }
+
+    private static void induceS(boolean[] sType, int[] sa, int[] s, int[] bkt, int n, int k)
+    {
+        //induce the order of the S-type suffixes from the sorted L-type suffixes (right to left scan)
+
+        getBuckets(s, bkt, n, k, true);
+        for (int i=n-1; i>=0; i--)
+        {
+            int j = sa[i] - 1;
+            if (j >= 0 && sType[j]) sa[--bkt[s[j]]] = j;
+        }
+    }
+
+    private static void sais(int[] s, int[] sa, int n, int k)
+    {
+        //SA-IS (Nong, Zhang & Chan 2009)
+
+        //classify every suffix as S-type (smaller than its right neighbour) or L-type (larger)
+        boolean[] sType = new boolean[n];
+        sType[n-1] = true;
+        for (int i=n-2; i>=0; i--) sType[i] = s[i] < s[i+1] || (s[i] == s[i+1] && sType[i+1]);
+
+        //step 1: sort the LMS substrings by inducing from their (unsorted) bucket ends
+        int[] bkt = new int[k];
+        getBuckets(s, bkt, n, k, true);
+        Arrays.fill(sa, -1);
+        for (int i=1; i<n; i++)
+        {
+            if (isLMS(sType, i)) sa[--bkt[s[i]]] = i;
+        }
+        induceL(sType, sa, s, bkt, n, k);
+        induceS(sType, sa, s, bkt, n, k);
+
+        //move the sorted LMS substrings to the front of sa
+        int n1 = 0;
+        for (int i=0; i<n; i++)
+        {
+            if (isLMS(sType, sa[i])) sa[n1++] = sa[i];
+        }
+
+        //name the LMS substrings (equal substrings get the same name)
+        Arrays.fill(sa, n1, n, -1);
+        int name = 0;
+        int prev = -1;
+
+        for (int i=0; i<n1; i++)
+        {
+            int pos = sa[i];
+            boolean diff = false;
+
+            for (int d=0; d<n; d++)
+            {
+                if (prev == -1 || s[pos+d] != s[prev+d] || sType[pos+d] != sType[prev+d])
+                {
+                    diff = true;
+                    break;
+                }
+                else if (d > 0 && (isLMS(sType, pos+d) || isLMS(sType, prev+d))) break;
+            }
+
+            if (diff)
+            {
+                name++;
+                prev = pos;
+            }
+            sa[n1 + pos / 2] = name - 1;
+        }
+
+        int[] s1 = new int[n1];
+        for (int i=n1, j=0; i<n; i++)
+        {
+            if (sa[i] >= 0) s1[j++] = sa[i];
+        }
+
+        //step 2: sort the LMS suffixes (recursively if the names are not unique yet)
+        int[] sa1 = new int[n1];
+        if (name < n1) sais(s1, sa1, n1, name);
+        else for (int i=0; i<n1; i++) sa1[s1[i]] = i;
+
+        //step 3: induce the suffix array from the sorted LMS suffixes
+        for (int i=1, j=0; i<n; i++)
+        {
+            if (isLMS(sType, i)) s1[j++] = i;
+        }
+        for (int i=0; i<n1; i++) sa1[i] = s1[sa1[i]];
+
+        getBuckets(s, bkt, n, k, true);
+        Arrays.fill(sa, -1);
+        for (int i=n1-1; i>=0; i--)
+        {
+            int j = sa1[i];
+            sa[--bkt[s[j]]] = j;
+        }
+        induceL(sType, sa, s, bkt, n, k);
+        induceS(sType, sa, s, bkt, n, k);
+    }
+
+    private int[] constructLCP(String text, int[] sa)
+    {
+        //Kasai's algorithm: the lcp of the suffix i+1 is at least the lcp of the suffix i minus 1
+
+        int n = sa.length;
+        int[] lcp = new int[n];
+        int[] rank = new int[n];
+        for (int i=0; i<n; i++) rank[sa[i]] = i;
+
+        int h = 0;
+        for (int i=0; i<n; i++)
+        {
+            if (rank[i] == 0)
+            {
+                h = 0;
+                continue;
+            }
+
+            int j = sa[rank[i] - 1];
+            while (i + h < n && j + h < n && text.charAt(i+h) == text.charAt(j+h)) h++;
+            lcp[rank[i]] = h;
+            if (h > 0) h--;
+        }
+        return lcp;
+    }
+
+    private int constructLCPLR(int[] lcp, int[] llcp, int[] rlcp, int l, int r)
+    {
+        /*precompute the lcp of the middle suffix of every interval of the binary search
+        w/ its left and right border (l = -1 and r = n are virtual borders w/ an lcp of 0)
+        and return the lcp of the borders*/
+
+        if (r - l <= 1) return (l < 0 || r >= lcp.length) ? 0 : lcp[r];
+
+        int m = (l + r) >> 1;
+        llcp[m] = constructLCPLR(lcp, llcp, rlcp, l, m);
+        rlcp[m] = constructLCPLR(lcp, llcp, rlcp, m, r);
+
+        return Math.min(llcp[m], rlcp[m]);
+    }
+
+    private int bound(String p, boolean upper)
+    {
+        /*binary search w/ the lcp of the interval borders (Manber & Myers):
+        characters of the pattern that are known to match the borders are never compared again,
+        which gives O(m + log n) comparisons
+        lower bound: first suffix >= p, upper bound: first suffix > p (both compared on the first m characters)*/
+
+        int n = sa.limit();
+        int m = p.length();
+        int l = -1, r = n; //suffix l < p <= suffix r
+        int lcpL = 0, lcpR = 0;
+
+        while (r - l > 1)
+        {
+            int mid = (l + r) >> 1;
+            int h;
+
+            if (lcpL >= lcpR)
+            {
+                int lcpMid = llcp.get(mid);
+                if (lcpMid > lcpL)
+                {
+                    l = mid;
+                    continue;
+                }
+                if (lcpMid < lcpL)
+                {
+                    r = mid;
+                    lcpR = lcpMid;
+                    continue;
+                }
+                h = lcpL;
+            }
+            else
+            {
+                int lcpMid = rlcp.get(mid);
+                if (lcpMid > lcpR)
+                {
+                    r = mid;
+                    continue;
+                }
+                if (lcpMid < lcpR)
+                {
+                    l = mid;
+                    lcpL = lcpMid;
+                    continue;
+                }
+                h = lcpR;
+            }
+
+            //compare the pattern w/ the middle suffix, starting after the known common prefix
+            int pos = sa.get(mid);
+            while (h < m && pos + h < n && text.charAt(pos+h) == p.charAt(h)) h++;
+
+            boolean left;
+            if (h == m) left = upper;
+            else if (pos + h == n) left = true;
+            else left = text.charAt(pos+h) < p.charAt(h);
+
+            if (left)
+            {
+                l = mid;
+                lcpL = h;
+            }
+            else
+            {
+                r = mid;
+                lcpR = h;
+            }
+        }
+        return r;
+    }
+
+    public int[] findInterval(String pattern)
+    {
+        //the suffixes sa[lo] ... sa[hi-1] start w/ the pattern
+        return new int[]{bound(pattern, false), bound(pattern, true)};
+    }
+
+    public boolean search(String pattern)
+    {
+        //check if the pattern is part of the text
+        int lo = bound(pattern, false);
+        return lo < sa.limit() && text.startsWith(pattern, sa.get(lo));
+    }
+
+    public int count(String pattern)
+    {
+        //count the occurrences of the pattern in the text
+        int[] interval = findInterval(pattern);
+        return interval[1] - interval[0];
+    }
+
+    public int[] locate(String pattern)
+    {
+        //start positions of all occurrences of the pattern in the text
+        //(in the lexicographical order of the suffixes, not sorted by position)
+        int[] interval = findInterval(pattern);
+        int[] hits = new int[interval[1] - interval[0]];
+        sa.get(interval[0], hits);
+
+        return hits;
+    }
+
+    public void locate(String pattern, HitSink sink)
+    {
+        //report the start position of every occurrence to the sink (stops as soon as the sink returns false)
+
+        int[] interval = findInterval(pattern);
+        for (int i=interval[0]; i<interval[1]; i++)
+        {
+            if (!sink.hit(sa.get(i))) return;
+        }
+    }
+
+    public IntStream stream(String pattern)
+    {
+        //lazy stream of the start positions of all occurrences
+        int[] interval = findInterval(pattern);
+        return IntStream.range(interval[0], interval[1]).map(sa::get);
+    }
+}
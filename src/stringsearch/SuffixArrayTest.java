@@ -0,0 +1,184 @@
+package stringsearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the SA-IS construction, the Kasai LCP array and the pattern queries
+ * of the <code>SuffixArray</code> class against brute force results using the JUnit unittesting framework
+ */
+public class SuffixArrayTest
+{
+    private ArrayList<String> texts;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //random texts over a binary (many repeats, deep LMS recursion) and the DNA alphabet, incl. edge cases
+        Random random = new Random(27);
+        this.texts = new ArrayList<String>(Arrays.asList("", "A", "AAAAAAAAAA", "ABABABABAB", "MISSISSIPPI"));
+
+        for (int t=0; t<500; t++) texts.add(RandomSequences.randomSeq(random, random.nextInt(300), (t % 3 == 0) ? "AB" : "ACGT"));
+    }
+
+    private static int[] bruteForceSuffixArray(String text)
+    {
+        //sort the suffixes w/ String comparisons
+        Integer[] order = new Integer[text.length()];
+        for (int i=0; i<order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> text.substring(a).compareTo(text.substring(b)));
+
+        int[] sa = new int[order.length];
+        for (int i=0; i<sa.length; i++) sa[i] = order[i];
+        return sa;
+    }
+
+    private static int[] bruteForceLCP(String text, int[] sa)
+    {
+        int[] lcp = new int[sa.length];
+        for (int i=1; i<sa.length; i++)
+        {
+            int h = 0;
+            while (sa[i-1] + h < text.length() && sa[i] + h < text.length() && text.charAt(sa[i-1] + h) == text.charAt(sa[i] + h)) h++;
+            lcp[i] = h;
+        }
+        return lcp;
+    }
+
+    private static int[] bruteForceLocate(String text, String pattern)
+    {
+        ArrayList<Integer> hits = new ArrayList<Integer>();
+        for (int i=text.indexOf(pattern); i>=0; i=text.indexOf(pattern, i + 1)) hits.add(i);
+        return hits.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] toArray(IntBuffer buffer)
+    {
+        int[] array = new int[buffer.limit()];
+        buffer.duplicate().position(0).get(array);
+        return array;
+    }
+
+    /**
+     * JUnit unittest:
+     * the suffix array and the LCP array must equal the sorted suffixes and their pairwise common prefixes
+     */
+    @Test
+    public void compareConstruction()
+    {
+        for (String text: texts)
+        {
+            SuffixArray index = new SuffixArray(text);
+            int[] sa = bruteForceSuffixArray(text);
+
+            assertArrayEquals(text, sa, toArray(index.getSuffixArray()));
+            assertArrayEquals(text, bruteForceLCP(text, sa), toArray(index.getLCP()));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * SA-IS on integer alphabets (the input of the recursion) w/ a unique smallest sentinel at the end
+     */
+    @Test
+    public void compareIntegerAlphabet()
+    {
+        Random random = new Random(270);
+        for (int t=0; t<300; t++)
+        {
+            int n = 1 + random.nextInt(200);
+            int sigma = 2 + random.nextInt(20);
+            int[] s = new int[n + 1];
+            StringBuilder text = new StringBuilder();
+            for (int i=0; i<n; i++)
+            {
+                s[i] = 1 + random.nextInt(sigma - 1);
+                text.append((char)('a' + s[i]));
+            }
+
+            //the sentinel 0 is the smallest suffix, the remaining suffixes sort like the suffixes of the text
+            int[] expected = new int[n + 1];
+            expected[0] = n;
+            System.arraycopy(bruteForceSuffixArray(text.toString()), 0, expected, 1, n);
+
+            assertArrayEquals(expected, SuffixArray.buildSuffixArray(s, sigma));
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * search(), count(), locate() (array, sink and stream) must find exactly the occurrences of String.indexOf()
+     */
+    @Test
+    public void compareQueries()
+    {
+        Random random = new Random(271);
+        for (String text: texts)
+        {
+            SuffixArray index = new SuffixArray(text);
+            String alphabet = text.contains("B") ? "AB" : "ACGT";
+
+            for (int q=0; q<20; q++)
+            {
+                String pattern = RandomSequences.randomSeq(random, 1 + random.nextInt(8), alphabet);
+                if (random.nextBoolean() && text.length() > 0)
+                {
+                    int start = random.nextInt(text.length());
+                    pattern = text.substring(start, Math.min(text.length(), start + 1 + random.nextInt(10)));
+                }
+                compareQuery(index, text, pattern);
+            }
+        }
+    }
+
+    private static void compareQuery(SuffixArray index, String text, String pattern)
+    {
+        int[] expected = bruteForceLocate(text, pattern);
+
+        int[] hits = index.locate(pattern);
+        Arrays.sort(hits);
+        assertArrayEquals(pattern, expected, hits);
+        assertEquals(expected.length, index.count(pattern));
+        assertEquals(expected.length > 0, index.search(pattern));
+        assertArrayEquals(expected, index.stream(pattern).sorted().toArray());
+
+        ArrayList<Integer> sunk = new ArrayList<Integer>();
+        index.locate(pattern, position -> sunk.add(position));
+        assertArrayEquals(expected, sunk.stream().mapToInt(Integer::intValue).sorted().toArray());
+    }
+
+    /**
+     * JUnit unittest:
+     * a saved and memory-mapped index must answer the same queries as the original index
+     */
+    @Test
+    public void saveAndLoad() throws IOException
+    {
+        File file = File.createTempFile("suffixarray", ".idx");
+        file.deleteOnExit();
+        Random random = new Random(272);
+
+        try
+        {
+            for (int t=0; t<texts.size(); t+=25)
+            {
+                String text = texts.get(t);
+                new SuffixArray(text).save(file.getPath());
+                SuffixArray index = SuffixArray.load(file.getPath());
+
+                assertEquals(text, index.text);
+                assertArrayEquals(bruteForceSuffixArray(text), toArray(index.getSuffixArray()));
+                for (int q=0; q<20; q++) compareQuery(index, text, RandomSequences.randomSeq(random, 1 + random.nextInt(4), "ACGT"));
+            }
+        }
+        finally {file.delete();}
+    }
+}
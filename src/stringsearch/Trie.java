@@ -1,5 +1,6 @@
 package stringsearch;
 
+import stringsearch.CompactTrie;
 import stringsearch.Node;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -10,15 +11,26 @@ public class Trie
     //constructs a trie (like a tree) based on a input string/text
     //has a start node, which functions as the root
     //enables O(m) search of a pattern in the provided text (m: length of pattern)
+    //construction needs O(n^2) nodes (n: length of text), so only use it for short texts (e.g. to print the trie);
+    //SuffixArray is the linear time/space index for longer texts
+    //w/ compact = true the trie is stored as a CompactTrie (flat int[] child table) instead of Node objects,
+    //which needs an order of magnitude less memory
 
     public String text;
     public Node trie;
+    public CompactTrie compactTrie;
     private int start;
 
     public Trie(String text)
+    {
+        this(text, false);
+    }
+
+    public Trie(String text, boolean compact)
     {
         this.text = text;
-        this.trie = constructTrie(text);
+        if (compact) this.compactTrie = CompactTrie.suffixTrie(text);
+        else this.trie = constructTrie(text);
     }
 
     public Node constructTrie(String text)
@@ -85,7 +97,9 @@ public class Trie
         //uses the find_branch_start() function to check if a pattern is already part of the tree
         //if we run this search after the whole trie has been constructed,
         //we know if the pattern exists in the text or not
-        
+
+        if (this.compactTrie != null) return !pattern.isEmpty() && this.compactTrie.contains(pattern);
+
         findBranchStart(this.trie, pattern);
         return  this.start == -1;
     }
@@ -93,7 +107,8 @@ public class Trie
     public ArrayList<String> reconstructBranches()
         {
             //overloaded function to initialize the values
-            return reconstructBranches(this.trie, "", new ArrayList<String>());
+            Node root = (this.trie != null) ? this.trie : this.compactTrie.toNode();
+            return reconstructBranches(root, "", new ArrayList<String>());
         }
 
     public ArrayList<String> reconstructBranches(Node currNode, String branch, ArrayList<String> branches)
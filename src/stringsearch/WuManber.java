@@ -0,0 +1,175 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import stringsearch.MultiHitSink;
+import stringsearch.Nucleotides;
+import stringsearch.PackedSequence;
+
+public class WuManber
+{
+    //Wu-Manber multi-pattern search for DNA on 2-bit packed text (see PackedSequence)
+    //Horspool shifts by a single character, which on a 4 letter alphabet almost always occurs close to the end
+    //of the pattern (expected shift < 4); Wu-Manber shifts by q-grams instead: the last q bases of the window
+    //are read from the packed text as one 2q bit value, which directly indexes the shift table
+    //(4^q entries, the distance of the q-gram's last occurrence to the end of the shortest pattern)
+    //windows w/ shift 0 are verified against the patterns ending w/ that q-gram (bucket lists)
+    //q grows w/ the number of patterns, so the shift table stays sparse: for a single 20 bp pattern,
+    //the expected shift is ~14 instead of ~4
+    //patterns must consist of A, C, G and T (use DegenerateSearch for IUPAC codes); masked positions never match
+
+    private static final int MAX_Q = 10;
+
+    String[] patterns;
+    int[][] codes;       //2-bit codes of every pattern
+    long[][] packed;     //the patterns packed like the text (32 bases per long) for the verification
+    int minLength;       //length of the shortest pattern (window length)
+    int q;
+    int[] shift;         //shift[g]: safe shift if the window ends w/ the q-gram g
+    int[] bucketStart;   //patterns whose window (first minLength bases) ends w/ q-gram g:
+    int[] bucketIds;     //bucketIds[bucketStart[g]] ... bucketIds[bucketStart[g+1]-1]
+
+    public WuManber(String... patterns)
+    {
+        if (patterns.length == 0) throw new IllegalArgumentException("At least one pattern is required!");
+
+        this.patterns = patterns;
+        this.codes = new int[patterns.length][];
+        this.minLength = Integer.MAX_VALUE;
+
+        for (int id=0; id<patterns.length; id++)
+        {
+            String p = patterns[id];
+            if (p.isEmpty()) throw new IllegalArgumentException("Patterns must not be empty!");
+
+            codes[id] = new int[p.length()];
+            for (int i=0; i<p.length(); i++)
+            {
+                codes[id][i] = Nucleotides.code(p.charAt(i));
+                if (codes[id][i] < 0) throw new IllegalArgumentException("'" + p.charAt(i) + "' in pattern " + id + " is not a base (A, C, G, T)!");
+            }
+            minLength = Math.min(minLength, p.length());
+        }
+
+        //q: large enough that the (minLength-q+1) q-grams of all patterns cover only a small part of the table
+        int qGrams = patterns.length * minLength;
+        int q = 1;
+        while (q < MAX_Q && (1L << (2 * q)) < 16L * qGrams) q++;
+        this.q = Math.min(q, minLength);
+
+        buildTables();
+    }
+
+    private void buildTables()
+    {
+        int size = 1 << (2 * q);
+        int maxShift = minLength - q + 1;
+
+        this.shift = new int[size];
+        Arrays.fill(shift, maxShift);
+        this.bucketStart = new int[size + 1];
+
+        for (int[] p: codes)
+        {
+            for (int j=0; j<=minLength-q; j++)
+            {
+                int g = qGram(p, j);
+                shift[g] = Math.min(shift[g], minLength - q - j);
+            }
+            bucketStart[qGram(p, minLength - q) + 1]++;
+        }
+
+        for (int g=0; g<size; g++) bucketStart[g+1] += bucketStart[g];
+
+        this.packed = new long[codes.length][];
+        for (int id=0; id<codes.length; id++)
+        {
+            int[] p = codes[id];
+            packed[id] = new long[(p.length + 31) >>> 5];
+            for (int i=0; i<p.length; i++) packed[id][i >>> 5] |= (long)p[i] << ((i & 31) << 1);
+        }
+
+        this.bucketIds = new int[codes.length];
+        int[] fill = new int[size];
+        for (int id=0; id<codes.length; id++)
+        {
+            int g = qGram(codes[id], minLength - q);
+            bucketIds[bucketStart[g] + fill[g]++] = id;
+        }
+    }
+
+    private int qGram(int[] p, int j)
+    {
+        //q-gram p[j] ... p[j+q-1] in the bit layout of PackedSequence.bits()
+
+        int g = 0;
+        for (int i=q-1; i>=0; i--) g = (g << 2) | p[j+i];
+
+        return g;
+    }
+
+    public int getTotalPatterns() {return patterns.length;}
+    public String getPattern(int id) {return patterns[id];}
+    public int getQ() {return q;}
+
+    public ArrayList<int[]> search(String text) {return search(new PackedSequence(text));}
+
+    public ArrayList<int[]> search(PackedSequence text)
+    {
+        //every hit is returned as {pattern id, start position}
+        ArrayList<int[]> hits = new ArrayList<int[]>();
+        search(text, (id, pos) -> hits.add(new int[]{id, pos}));
+
+        return hits;
+    }
+
+    public long count(PackedSequence text)
+    {
+        HitCounter counter = new HitCounter();
+        search(text, counter);
+
+        return counter.getCount();
+    }
+
+    public void search(PackedSequence text, MultiHitSink sink)
+    {
+        //report every hit to the sink in order of the start positions (stops as soon as the sink returns false)
+
+        int n = text.length();
+        int end = minLength - 1; //last position of the current window
+
+        while (end < n)
+        {
+            int g = (int)text.bits(end - q + 1, q);
+            int s = shift[g];
+
+            if (s > 0)
+            {
+                end += s;
+                continue;
+            }
+
+            int start = end - minLength + 1;
+            for (int b=bucketStart[g]; b<bucketStart[g+1]; b++)
+            {
+                int id = bucketIds[b];
+                if (matches(text, packed[id], codes[id].length, start) && !sink.hit(id, start)) return;
+            }
+            end++;
+        }
+    }
+
+    private static boolean matches(PackedSequence text, long[] p, int m, int start)
+    {
+        //compare 32 bases at a time w/ the packed text, then check the N-mask
+
+        if (start + m > text.length()) return false;
+
+        for (int w=0; w<p.length; w++)
+        {
+            if (text.bits(start + 32 * w, Math.min(32, m - 32 * w)) != p[w]) return false;
+        }
+        return !text.hasN(start, start + m);
+    }
+}
@@ -0,0 +1,86 @@
+package stringsearch;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the Wu-Manber multi-pattern search on 2-bit packed texts of the <code>WuManber</code> class
+ * against a brute force search (<code>String.indexOf()</code> for every pattern) using the JUnit unittesting framework
+ */
+public class WuManberTest
+{
+    private ArrayList<String> texts;
+    private ArrayList<String[]> patternSets;
+
+    @Before //execute this before the actual test
+    public void setUp()
+    {
+        //texts w/ N's or soft-masked bases, few short patterns up to hundreds of patterns (different q),
+        //patterns copied from the text (N's replaced, so they must not match at the masked positions)
+        Random random = new Random(40);
+        this.texts = new ArrayList<String>();
+        this.patternSets = new ArrayList<String[]>();
+
+        for (int t=0; t<300; t++)
+        {
+            String text = RandomSequences.randomSeq(random, random.nextInt(2000), random.nextBoolean() ? "ACGTN" : "acgtACGT");
+            String[] patterns = new String[1 + random.nextInt(random.nextBoolean() ? 3 : 300)];
+            for (int p=0; p<patterns.length; p++)
+            {
+                if (text.length() > 80 && random.nextBoolean())
+                {
+                    int start = random.nextInt(text.length() - 70);
+                    patterns[p] = text.substring(start, start + 1 + random.nextInt(70)).toUpperCase().replace('N', 'A');
+                }
+                else patterns[p] = RandomSequences.randomSeq(random, 1 + random.nextInt(40), "ACGT");
+            }
+            texts.add(text);
+            patternSets.add(patterns);
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * every occurrence of every pattern must be reported exactly once, masked positions never match
+     */
+    @Test
+    public void compareSearch()
+    {
+        for (int t=0; t<texts.size(); t++)
+        {
+            String text = texts.get(t).toUpperCase();
+            String[] patterns = patternSets.get(t);
+
+            TreeSet<String> expected = new TreeSet<String>();
+            for (int p=0; p<patterns.length; p++)
+            {
+                for (int i=text.indexOf(patterns[p]); i>=0; i=text.indexOf(patterns[p], i + 1)) expected.add(p + " " + i);
+            }
+
+            WuManber search = new WuManber(patterns);
+            PackedSequence packed = new PackedSequence(texts.get(t));
+            ArrayList<int[]> hits = search.search(packed);
+            TreeSet<String> found = new TreeSet<String>();
+            for (int[] hit: hits) found.add(hit[0] + " " + hit[1]);
+
+            assertEquals(expected, found);
+            assertEquals(expected.size(), hits.size());
+            assertEquals(expected.size(), search.count(packed));
+            assertEquals(expected.size(), search.search(texts.get(t)).size());
+        }
+    }
+
+    /**
+     * JUnit unittest:
+     * patterns w/ other characters than A, C, G and T are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectDegeneratePatterns()
+    {
+        new WuManber("ACGT", "ACNT");
+    }
+}